@@ -0,0 +1,54 @@
+package com.shell.bench;
+
+import com.shell.ShellSession;
+import com.shell.parser.Command;
+import com.shell.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of running a built-in once the line is parsed: registry lookup, Invocation and output,
+ * with and without a redirection to open.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuiltinDispatchBenchmark {
+
+    private ShellSession session;
+    private Command echo;
+    private Command echoRedirected;
+
+    @Setup
+    public void createSession() {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        session = new ShellSession(dir, InputStream.nullInputStream(),
+                new PrintStream(OutputStream.nullOutputStream()), new PrintStream(OutputStream.nullOutputStream()));
+        echo = Parser.parse("echo hello world");
+        echoRedirected = Parser.parse("echo hello world > /dev/null");
+    }
+
+    @Benchmark
+    public int echo() {
+        return session.execute(echo);
+    }
+
+    @Benchmark
+    public int echoRedirected() {
+        return session.execute(echoRedirected);
+    }
+
+    @Benchmark
+    public int parseAndEcho() {
+        return session.execute("echo hello world");
+    }
+}
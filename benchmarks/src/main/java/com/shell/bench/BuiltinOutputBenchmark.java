@@ -0,0 +1,106 @@
+package com.shell.bench;
+
+import com.shell.ShellSession;
+import com.shell.builtin.BuiltinRegistry;
+import com.shell.exec.ChannelOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in output to a descriptor (/dev/null), flushed when the built-in returns, like a session
+ * on the process's stdout does. "fd" is a plain FileOutputStream on the descriptor, which
+ * built-ins wrote to before the channel layer; "channel" is the session's ChannelOutputStream.
+ *
+ * echoLines prints many short lines in one built-in run; grep writes a whole file of lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuiltinOutputBenchmark {
+
+    private static final int INPUT_MB = 4;
+
+    @Param({"fd", "channel"})
+    public String sink;
+
+    private final BuiltinRegistry builtins = BuiltinRegistry.load();
+    private ShellSession shell;
+    private OutputStream stdout;
+    private OutputStream stderr;
+    private Path dir;
+    private List<String> grepArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("output-bench-");
+        Path input = dir.resolve("input.log");
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < INPUT_MB * 1024 * 1024) {
+            text.append("line ").append(random.nextLong()).append(" of some text to print\n");
+        }
+        Files.writeString(input, text);
+        grepArgs = List.of("-v", "zzz", input.toString());
+
+        shell = new ShellSession(dir, InputStream.nullInputStream(),
+                new PrintStream(OutputStream.nullOutputStream()), new PrintStream(OutputStream.nullOutputStream()));
+        // The streams a session on the process's stdout and stderr hands to built-ins
+        FileOutputStream out = new FileOutputStream("/dev/null");
+        FileOutputStream err = new FileOutputStream("/dev/null");
+        if (sink.equals("channel")) {
+            stdout = new ChannelOutputStream(out.getChannel(), 64 * 1024);
+            stderr = new ChannelOutputStream(err.getChannel(), 64 * 1024);
+        } else {
+            stdout = out;
+            stderr = new PrintStream(err, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stdout.close();
+        stderr.close();
+        Files.deleteIfExists(dir.resolve("input.log"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int echo() throws IOException {
+        int status = builtins.run("echo", List.of("hello", "world"), InputStream.nullInputStream(), stdout, stderr,
+                shell, false);
+        stdout.flush();
+        return status;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int echoLines() throws IOException {
+        int status = 0;
+        for (int i = 0; i < 1000; i++) {
+            status |= builtins.run("echo", List.of("hello", "world"), InputStream.nullInputStream(), stdout,
+                    stderr, shell, false);
+        }
+        stdout.flush();
+        return status;
+    }
+
+    @Benchmark
+    public int grep() throws IOException {
+        int status = builtins.run("grep", grepArgs, InputStream.nullInputStream(), stdout, stderr, shell, false);
+        stdout.flush();
+        return status;
+    }
+}
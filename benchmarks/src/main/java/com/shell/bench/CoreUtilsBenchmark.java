@@ -0,0 +1,85 @@
+package com.shell.bench;
+
+import com.shell.coreutils.CoreUtils;
+import com.shell.exec.InProcessCommands;
+import com.shell.exec.PipelineExecutor;
+import com.shell.parser.Command;
+import com.shell.parser.Parser;
+import com.shell.parser.PipelineCommand;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code grep 500 access.log | sort | uniq -c | wc -l} with the in-process coreutils pack
+ * against the same pipeline forking the real binaries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoreUtilsBenchmark {
+
+    private static final InProcessCommands CORE_UTILS = new InProcessCommands() {
+        @Override
+        public boolean isInProcess(String executable) {
+            return CoreUtils.names().contains(executable);
+        }
+
+        @Override
+        public int run(String executable, List<String> args, InputStream in, OutputStream out, OutputStream err)
+                throws IOException {
+            return CoreUtils.run(executable, args, in, out, err);
+        }
+    };
+
+    @Param({"4", "256", "16384"})
+    public int inputKb;
+
+    private Path dir;
+    private Path input;
+    private List<Command> pipeline;
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        dir = Files.createTempDirectory("coreutils-bench-");
+        input = dir.resolve("access.log");
+        int[] statuses = {200, 200, 200, 301, 404, 500};
+        Random random = new Random(1);
+        StringBuilder log = new StringBuilder();
+        while (log.length() < inputKb * 1024) {
+            log.append("10.0.0.").append(random.nextInt(256))
+                    .append(" GET /page/").append(random.nextInt(50))
+                    .append(' ').append(statuses[random.nextInt(statuses.length)]).append('\n');
+        }
+        Files.writeString(input, log);
+        pipeline = ((PipelineCommand) Parser.parse(
+                "grep 500 " + input + " | sort | uniq -c | wc -l > " + dir.resolve("out.txt"))).getCommands();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(dir.resolve("out.txt"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int inProcess() {
+        return PipelineExecutor.execute(pipeline, dir, CORE_UTILS);
+    }
+
+    @Benchmark
+    public int forked() {
+        return PipelineExecutor.execute(pipeline, dir, InProcessCommands.NONE);
+    }
+}
@@ -0,0 +1,84 @@
+package com.shell.bench;
+
+import com.shell.daemon.DaemonClient;
+import com.shell.daemon.ShellDaemon;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `j-shell -c 'echo hi'` three ways: a new JVM running the shell (coldStart), a new JVM running
+ * the client against a daemon (client), and the client's round trip alone, from inside this JVM
+ * (roundTrip). The daemon runs in this JVM; both process benchmarks use this JVM's java and
+ * class path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaemonBenchmark {
+
+    private static final String[] LINE = {"-c", "echo hi"};
+
+    private Path dir;
+    private ShellDaemon daemon;
+    private List<String> coldStart;
+    private List<String> client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("daemon-bench-");
+        daemon = new ShellDaemon(dir.resolve("j-shell.sock"), null);
+        daemon.start();
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+        coldStart = new ArrayList<>(Arrays.asList(java, "-cp", classPath, "com.shell.Shell"));
+        coldStart.addAll(Arrays.asList(LINE));
+        // The JVM options bin/j-shell gives the client
+        client = new ArrayList<>(Arrays.asList(java, "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC",
+                "-Djshell.daemon.socket=" + daemon.socket(), "-cp", classPath, "com.shell.daemon.DaemonClient"));
+        client.addAll(Arrays.asList(LINE));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        daemon.close();
+        Files.deleteIfExists(dir);
+    }
+
+    private static int run(List<String> command) throws IOException, InterruptedException {
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start()
+                .waitFor();
+    }
+
+    @Benchmark
+    public int coldStart() throws IOException, InterruptedException {
+        return run(coldStart);
+    }
+
+    @Benchmark
+    public int client() throws IOException, InterruptedException {
+        return run(client);
+    }
+
+    @Benchmark
+    public int roundTrip() throws IOException {
+        return DaemonClient.run(daemon.socket(), LINE, dir, System.getenv(),
+                InputStream.nullInputStream(), OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+    }
+}
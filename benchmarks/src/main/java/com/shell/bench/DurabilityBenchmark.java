@@ -0,0 +1,79 @@
+package com.shell.bench;
+
+import com.shell.ShellSession;
+import com.shell.exec.DurabilityPolicy;
+import com.shell.parser.Command;
+import com.shell.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `echo ... >> audit.log` under each durability mode. append is the latency of one command as a
+ * script sees it; burst runs 100 appends and then waits until all of them are on disk, the time a
+ * batch takes to become durable. The log lives in java.io.tmpdir, so run with
+ * {@code -Djava.io.tmpdir=} on the disk of interest: on tmpfs every fsync is free.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DurabilityBenchmark {
+
+    private static final int BURST = 100;
+
+    @Param({"none", "per-command", "group"})
+    public String mode;
+
+    private Path dir;
+    private ShellSession session;
+    private Command append;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("durability-bench-");
+        session = new ShellSession(dir, InputStream.nullInputStream(),
+                new PrintStream(OutputStream.nullOutputStream()), new PrintStream(OutputStream.nullOutputStream()));
+        session.setDurability(new DurabilityPolicy(DurabilityPolicy.Mode.of(mode),
+                DurabilityPolicy.DEFAULT_GROUP_MILLIS, DurabilityPolicy.DEFAULT_GROUP_BYTES));
+        append = Parser.parse("echo 2026-01-01T00:00:00Z user=alice action=login result=ok >> audit.log");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        session.close();
+        Files.deleteIfExists(dir.resolve("audit.log"));
+        Files.deleteIfExists(dir);
+    }
+
+    /** The log would grow by gigabytes over a run; start each iteration on an empty one. */
+    @Setup(Level.Iteration)
+    public void truncate() throws IOException {
+        session.close();
+        Files.deleteIfExists(dir.resolve("audit.log"));
+    }
+
+    @Benchmark
+    public int append() {
+        return session.execute(append);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int burst() throws IOException {
+        int status = 0;
+        for (int i = 0; i < BURST; i++) {
+            status |= session.execute(append);
+        }
+        session.durability().sync();
+        return status;
+    }
+}
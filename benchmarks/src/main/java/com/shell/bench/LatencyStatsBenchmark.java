@@ -0,0 +1,43 @@
+package com.shell.bench;
+
+import com.shell.exec.LatencyStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What recording one phase costs a command: the phase's and the executable's histogram, from one
+ * thread and from four at once (sessions of a daemon sharing the statistics).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyStatsBenchmark {
+
+    private final LatencyStats stats = new LatencyStats();
+
+    @State(Scope.Thread)
+    public static class Durations {
+        long next = 1_000;
+
+        long next() {
+            // 1 us to about 1 ms, so the records spread over many buckets
+            next = next * 31 % 1_000_003;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public void record(Durations durations) {
+        stats.record(LatencyStats.Phase.RUN, "grep", durations.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Durations durations) {
+        stats.record(LatencyStats.Phase.RUN, "grep", durations.next());
+    }
+}
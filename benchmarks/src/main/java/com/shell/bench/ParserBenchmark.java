@@ -0,0 +1,61 @@
+package com.shell.bench;
+
+import com.shell.parser.Command;
+import com.shell.parser.CommandCache;
+import com.shell.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Parser.tokenize} and {@code Parser.parse} on the three shapes of command line, and a
+ * parse served by the {@link CommandCache}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"simple", "redirection", "pipeline"})
+    public String shape;
+
+    private String line;
+    private final CommandCache cache = new CommandCache(256);
+
+    @Setup
+    public void pickLine() {
+        switch (shape) {
+            case "simple":
+                line = "echo hello world";
+                break;
+            case "redirection":
+                line = "sort -r < \"input file.txt\" >> sorted.txt 2> errors.log";
+                break;
+            case "pipeline":
+                line = "cat access.log | grep -v '^#' | cut -d ' ' -f 1 | sort | uniq -c | sort -rn"
+                        + " | head -n 20 | tee top.txt | wc -l > count.txt";
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return Parser.tokenize(line);
+    }
+
+    @Benchmark
+    public Command parse() {
+        return Parser.parse(line);
+    }
+
+    @Benchmark
+    public Command cachedParse() {
+        return cache.parse(line);
+    }
+}
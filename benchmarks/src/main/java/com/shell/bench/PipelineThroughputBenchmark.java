@@ -0,0 +1,82 @@
+package com.shell.bench;
+
+import com.shell.ShellSession;
+import com.shell.parser.Command;
+import com.shell.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of {@code type input | grep -v zzz | ... > out} through N grep stages,
+ * run in-process (BoundedPipe between stages) or forked (kernel pipes). The {@code megabytes}
+ * counter is the input pushed through the pipeline per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineThroughputBenchmark {
+
+    private static final int INPUT_MB = 16;
+
+    @Param({"1", "4", "8"})
+    public int stages;
+
+    @Param({"true", "false"})
+    public boolean inProcess;
+
+    private Path dir;
+    private ShellSession session;
+    private Command pipeline;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public double megabytes;
+    }
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        System.setProperty("jshell.coreutils", Boolean.toString(inProcess));
+        dir = Files.createTempDirectory("pipeline-bench-");
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < INPUT_MB * 1024 * 1024) {
+            text.append("line ").append(random.nextLong()).append(" of some text to pass along\n");
+        }
+        Files.writeString(dir.resolve("input.txt"), text);
+
+        StringBuilder line = new StringBuilder("type input.txt");
+        for (int i = 0; i < stages; i++) {
+            line.append(" | grep -v zzz");
+        }
+        pipeline = Parser.parse(line.append(" > out.txt").toString());
+        session = new ShellSession(dir, InputStream.nullInputStream(),
+                new PrintStream(OutputStream.nullOutputStream()), System.err);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        System.clearProperty("jshell.coreutils");
+        Files.deleteIfExists(dir.resolve("input.txt"));
+        Files.deleteIfExists(dir.resolve("out.txt"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int pipeline(Bytes bytes) {
+        int status = session.execute(pipeline);
+        bytes.megabytes += INPUT_MB;
+        return status;
+    }
+}
@@ -0,0 +1,50 @@
+package com.shell.bench;
+
+import com.shell.path.ExecutableCache;
+import com.shell.path.PathIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command lookup as the shell does it for every external command: a warm per-session cache, a
+ * cold one backed by the PATH index, and a cold one that has to search PATH directories.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolverBenchmark {
+
+    @Param({"ls", "no-such-command"})
+    public String command;
+
+    private PathIndex index;
+    private ExecutableCache warm;
+
+    @Setup
+    public void buildIndex() throws InterruptedException {
+        index = new PathIndex(System.getenv("PATH"), null);
+        index.start();
+        index.awaitReady(30, TimeUnit.SECONDS);
+        warm = new ExecutableCache(() -> System.getenv("PATH"), index);
+        warm.resolve(command);
+    }
+
+    @Benchmark
+    public String warmCache() {
+        return warm.resolve(command);
+    }
+
+    @Benchmark
+    public String coldCacheWithIndex() {
+        return new ExecutableCache(() -> System.getenv("PATH"), index).resolve(command);
+    }
+
+    @Benchmark
+    public String coldCachePathSearch() {
+        return new ExecutableCache(() -> System.getenv("PATH"), null).resolve(command);
+    }
+}
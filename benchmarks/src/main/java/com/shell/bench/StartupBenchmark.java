@@ -0,0 +1,110 @@
+package com.shell.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An interactive j-shell started in a new JVM: time until the first prompt is printed
+ * (firstPrompt), and until the output of `echo` typed at it arrives (firstOutput). With
+ * archive=cds the JVM maps a class-data-sharing archive written by a StartupTraining run in the
+ * trial's setup, as {@code bin/j-shell --cds} does. Uses this JVM's java and class path (a jar,
+ * which the archive needs).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final byte[] PROMPT = "my-shell$ ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OUTPUT = "first-output\n".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"none", "cds"})
+    public String archive;
+
+    private Path dir;
+    private List<String> shell;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        dir = Files.createTempDirectory("startup-bench-");
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+        shell = new ArrayList<>(Arrays.asList(java, "-cp", classPath));
+        if (archive.equals("cds")) {
+            Path jsa = dir.resolve("j-shell.jsa");
+            int status = new ProcessBuilder(java, "-XX:ArchiveClassesAtExit=" + jsa, "-Xlog:cds=off",
+                    "-Xlog:cds+dynamic=off", "-cp", classPath, "com.shell.StartupTraining")
+                    .inheritIO().start().waitFor();
+            if (status != 0 || !Files.exists(jsa)) {
+                throw new IllegalStateException("training run failed with status " + status);
+            }
+            shell.add(1, "-XX:SharedArchiveFile=" + jsa);
+        }
+        shell.add("com.shell.Shell");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir.resolve("j-shell.jsa"));
+        Files.deleteIfExists(dir);
+    }
+
+    /** Ends the shell of the last invocation, outside the measured time. */
+    @TearDown(Level.Invocation)
+    public void exit() throws IOException, InterruptedException {
+        if (process != null) {
+            process.getOutputStream().close();
+            process.waitFor();
+            process = null;
+        }
+    }
+
+    private InputStream start() throws IOException {
+        process = new ProcessBuilder(shell)
+                .directory(dir.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return process.getInputStream();
+    }
+
+    /** Reads until the output ends with marker. */
+    private static void await(InputStream in, byte[] marker) throws IOException {
+        int matched = 0;
+        for (int b; (b = in.read()) >= 0; ) {
+            matched = b == marker[matched] ? matched + 1 : b == marker[0] ? 1 : 0;
+            if (matched == marker.length) {
+                return;
+            }
+        }
+        throw new IOException("shell exited before printing " + new String(marker, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void firstPrompt() throws IOException {
+        await(start(), PROMPT);
+    }
+
+    @Benchmark
+    public void firstOutput() throws IOException {
+        InputStream in = start();
+        OutputStream stdin = process.getOutputStream();
+        stdin.write("echo first-output\n".getBytes(StandardCharsets.UTF_8));
+        stdin.flush();
+        await(in, OUTPUT);
+    }
+}
@@ -0,0 +1,92 @@
+package com.shell.bench;
+
+import com.shell.Shell;
+import com.shell.parser.Parser;
+import com.shell.parser.RedirectionCommand;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the `type` built-in against /bin/cat copying the same file to a file.
+ *
+ * The "bytes" secondary result is the copy rate in bytes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeThroughputBenchmark {
+
+    @Param({"1", "64", "512"})
+    public int fileSizeMb;
+
+    private Path dir;
+    private Path input;
+    private Path output;
+    private RedirectionCommand typeCommand;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createInput() throws IOException {
+        dir = Files.createTempDirectory("type-bench-");
+        input = dir.resolve("input.log");
+        output = dir.resolve("output.log");
+
+        // Log-like text so line-oriented implementations are not flattered by one huge line
+        Random random = new Random(1);
+        byte[] line = new byte[120];
+        long target = fileSizeMb * 1024L * 1024L;
+        try (OutputStream out = Files.newOutputStream(input)) {
+            for (long written = 0; written < target; written += line.length) {
+                for (int i = 0; i < line.length - 1; i++) {
+                    line[i] = (byte) ('a' + random.nextInt(26));
+                }
+                line[line.length - 1] = '\n';
+                out.write(line);
+            }
+        }
+        typeCommand = (RedirectionCommand) Parser.parse("type " + input + " > " + output);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public void typeBuiltin(Bytes bytes) throws IOException {
+        Shell.executeRedirectionCommand(typeCommand);
+        bytes.bytes += Files.size(input);
+    }
+
+    @Benchmark
+    public void binCat(Bytes bytes) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder("/bin/cat", input.toString())
+                .redirectOutput(output.toFile())
+                .start();
+        if (p.waitFor() != 0) {
+            throw new IllegalStateException("cat failed");
+        }
+        bytes.bytes += Files.size(input);
+    }
+}
@@ -0,0 +1,139 @@
+package com.shell;
+
+import com.shell.exec.LatencyStats;
+import com.shell.parser.Command;
+import com.shell.parser.CommandCache;
+import com.shell.parser.Parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs the lines of a script or of {@code -c} in a session, without prompt or banner.
+ *
+ * A reader thread parses the lines ahead of execution, so reading and parsing the next lines
+ * overlaps with the command that is running. Only parsing happens ahead: a Command is compiled
+ * for the session right before it runs, since earlier lines may change the directory or PATH it
+ * resolves against. The parse still counts as the session's parse phase in its
+ * {@link LatencyStats}. The session's stdout is flushed after every command, so a large buffered
+ * stdout keeps command output in order with what children write.
+ *
+ * Blank lines and lines starting with {@code #} (including a {@code #!} line) are skipped. A line
+ * that does not parse is reported and the script goes on, with status 2 for that line.
+ */
+public final class ScriptRunner {
+
+    // How many parsed lines the reader may run ahead of execution
+    private static final int LOOKAHEAD = 256;
+
+    private final ShellSession session;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    /**
+     * @param out the session's stdout, flushed after every command
+     * @param err the session's stderr, for parse errors
+     */
+    public ScriptRunner(ShellSession session, PrintStream out, PrintStream err) {
+        this.session = session;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Executes every line of script until its end or `exit`.
+     *
+     * @param name the script's name in error messages
+     * @return status of the last command, or the status passed to `exit`
+     */
+    public int run(String name, Reader script) {
+        BlockingQueue<Line> lines = new ArrayBlockingQueue<>(LOOKAHEAD);
+        Thread reader = new Thread(() -> parseAhead(script, lines), "j-shell-script-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        int status = 0;
+        try {
+            while (!session.hasExited()) {
+                Line line = lines.take();
+                if (line.end) {
+                    if (line.error != null) {
+                        err.println(name + ": " + line.error);
+                        status = 1;
+                    }
+                    break;
+                }
+                if (line.command == null) {
+                    err.println(name + ": line " + line.number + ": Parse error: " + line.error);
+                    status = 2;
+                    continue;
+                }
+                status = session.execute(line.command);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 130;
+        } finally {
+            // The reader may be blocked on a full queue or on input nobody will read now
+            reader.interrupt();
+            out.flush();
+        }
+        return status;
+    }
+
+    private void parseAhead(Reader script, BlockingQueue<Line> lines) {
+        CommandCache cache = CommandCache.shared();
+        BufferedReader reader = new BufferedReader(script);
+        Line end;
+        try {
+            int number = 0;
+            for (String text; (text = reader.readLine()) != null; ) {
+                number++;
+                text = text.trim();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                Line line;
+                try {
+                    long start = System.nanoTime();
+                    Command command = cache != null ? cache.parse(text) : Parser.parse(text);
+                    session.stats().record(LatencyStats.Phase.PARSE, null, System.nanoTime() - start);
+                    line = new Line(number, command, null, false);
+                } catch (RuntimeException e) {
+                    line = new Line(number, null, e.getMessage(), false);
+                }
+                lines.put(line);
+            }
+            end = new Line(number, null, null, true);
+        } catch (IOException e) {
+            end = new Line(0, null, e.getMessage(), true);
+        } catch (InterruptedException e) {
+            return; // execution stopped early
+        }
+        try {
+            lines.put(end);
+        } catch (InterruptedException e) {
+            // execution stopped early
+        }
+    }
+
+    /** A parsed line, a line that failed to parse, or the end of the script. */
+    private static final class Line {
+        final int number;
+        final Command command;
+        final String error;
+        final boolean end;
+
+        Line(int number, Command command, String error, boolean end) {
+            this.number = number;
+            this.command = command;
+            this.error = error;
+            this.end = end;
+        }
+    }
+}
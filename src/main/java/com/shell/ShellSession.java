@@ -0,0 +1,750 @@
+package com.shell;
+
+import com.shell.builtin.BuiltinRegistry;
+import com.shell.builtin.ShellContext;
+import com.shell.exec.AppendFileCache;
+import com.shell.exec.ChannelOutputStream;
+import com.shell.exec.DurabilityPolicy;
+import com.shell.exec.ExecutionContext;
+import com.shell.exec.ExecutionPlan;
+import com.shell.exec.InProcessCommands;
+import com.shell.exec.LatencyStats;
+import com.shell.exec.NonClosingOutputStream;
+import com.shell.exec.PipelineExecutor;
+import com.shell.exec.PumpExecutor;
+import com.shell.exec.PumpGroup;
+import com.shell.exec.ResourceMeter;
+import com.shell.exec.ResourceUsage;
+import com.shell.job.Job;
+import com.shell.job.JobTable;
+import com.shell.parser.*;
+import com.shell.path.ExecutableCache;
+import com.shell.path.PathIndex;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One shell: working directory, environment, standard streams and remembered command locations.
+ * Nothing here touches JVM-wide state (user.dir, System.exit, System.out), so any number of
+ * sessions can run side by side in one JVM, each on its own thread.
+ *
+ * Streams that are the JVM's own are inherited by children; other streams are pumped, and
+ * children of such a session see an empty stdin unless it is redirected or
+ * {@link #setForwardInput forwarded}.
+ *
+ * Files built-ins append to with {@code >>} stay open between commands; {@link #close()} releases
+ * them and commits pending output under the session's {@link DurabilityPolicy}, and so does `exit`.
+ *
+ * A line ending with {@code &} starts a job and returns at once; the job's stages report their
+ * own exit, so no thread of the session waits for it. Jobs keep running when the session ends.
+ *
+ * A line starting with {@code time}, or every line with {@code -Djshell.time=always}, reports
+ * what each of its processes and built-ins cost on stderr once it finishes; see {@link ResourceMeter}.
+ * Where the time of every command goes (parse, resolve, spawn, run, reap) is recorded into
+ * {@link LatencyStats}, see the `stats` built-in.
+ */
+public final class ShellSession implements ShellContext, AutoCloseable {
+
+    private static final String PROMPT = "my-shell$ ";
+
+    private static final PrintStream ORIGINAL_STDOUT = System.out;
+    private static final PrintStream ORIGINAL_STDERR = System.err;
+
+    // Built-ins keep no state of their own, so every session shares one registry. Indexing it
+    // reads every built-in's annotation, tens of milliseconds at startup, so it happens on first
+    // use or in the background after preload()
+    private static final class Builtins {
+        static final BuiltinRegistry REGISTRY = BuiltinRegistry.load();
+    }
+
+    // Parsed lines shared by all sessions, when -Djshell.parseCache is set
+    private static final CommandCache PARSE_CACHE = CommandCache.shared();
+
+    private final Map<String, String> environment;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final PathIndex pathIndex;
+    private final ExecutableCache executables;
+    // Created with the registry on first use
+    private volatile InProcessCommands pipelineBuiltins;
+
+    // Files built-ins append to, kept open across commands; null when -Djshell.appendCache=0
+    private final AppendFileCache appendFiles;
+
+    // When `>` and `>>` output reaches the disk; -Djshell.durability unless set otherwise
+    private volatile DurabilityPolicy durability = DurabilityPolicy.shared();
+
+    private final JobTable jobs = new JobTable();
+
+    // Phase latencies; the JVM-wide statistics unless set otherwise
+    private volatile LatencyStats stats = LatencyStats.shared();
+
+    // Copy a stdin that is not the JVM's own into external commands
+    private volatile boolean forwardInput;
+
+    // Report the cost of every foreground command, not only of `time ...`
+    private volatile boolean timeAll = "always".equals(System.getProperty("jshell.time"));
+
+    // What built-ins write to when the session is on the process's own stdout/stderr: buffered
+    // straight to the descriptors and flushed when the built-in returns. Null otherwise.
+    private final ChannelOutputStream stdoutChannel;
+    private final ChannelOutputStream stderrChannel;
+
+    // Compiled plans of cached Commands; null unless the parse cache is on
+    private final Map<Command, ExecutionPlan> plans;
+    private String plansPath;
+
+    private volatile Path workingDir;
+    // Set by run(): job starts and completions are announced
+    private volatile boolean interactive;
+    private volatile boolean exited;
+    private volatile int exitStatus;
+
+    /**
+     * A session with the JVM's environment and no PATH index.
+     */
+    public ShellSession(Path workingDir, InputStream in, PrintStream out, PrintStream err) {
+        this(workingDir, System.getenv(), in, out, err, null);
+    }
+
+    /**
+     * @param environment initial environment, copied
+     * @param pathIndex index of the executables on PATH for lookups and suggestions, may be null
+     */
+    public ShellSession(Path workingDir, Map<String, String> environment, InputStream in, PrintStream out,
+                        PrintStream err, PathIndex pathIndex) {
+        this.workingDir = workingDir.toAbsolutePath().normalize();
+        this.environment = new ConcurrentHashMap<>(environment);
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.pathIndex = pathIndex;
+        this.executables = new ExecutableCache(() -> this.environment.get("PATH"), pathIndex);
+        this.appendFiles = AppendFileCache.createDefault();
+        this.stdoutChannel = out == System.out && out == ORIGINAL_STDOUT
+                ? ChannelOutputStream.of(FileDescriptor.out) : null;
+        this.stderrChannel = err == System.err && err == ORIGINAL_STDERR
+                ? ChannelOutputStream.of(FileDescriptor.err) : null;
+        this.plans = PARSE_CACHE == null ? null : new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Command, ExecutionPlan> eldest) {
+                return size() > PARSE_CACHE.capacity();
+            }
+        };
+    }
+
+    /**
+     * Loads the built-in registry and the parser on a background thread, so that a shell that is
+     * starting can print its prompt (or read its script) meanwhile instead of before.
+     */
+    public static void preload() {
+        Thread t = new Thread(() -> {
+            Builtins.REGISTRY.isBuiltin("echo");
+            Parser.parse("echo preload | cat > /dev/null");
+        }, "j-shell-preload");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public InProcessCommands inProcessCommands() {
+        return pipelineBuiltins();
+    }
+
+    private InProcessCommands pipelineBuiltins() {
+        InProcessCommands builtins = pipelineBuiltins;
+        if (builtins == null) {
+            // A race only creates an equivalent second wrapper
+            builtins = Builtins.REGISTRY.inPipeline(this);
+            pipelineBuiltins = builtins;
+        }
+        return builtins;
+    }
+
+    /**
+     * Reads and executes lines from the session's stdin until EOF or `exit`.
+     *
+     * @return the status passed to `exit`, 0 at EOF
+     */
+    public int run() {
+        interactive = true;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        try {
+            while (!exited) {
+                reportFinishedJobs();
+                out.print(PROMPT);
+                out.flush();
+                String line = reader.readLine();
+                if (line == null) { // EOF (e.g., Ctrl-D)
+                    out.println();
+                    break;
+                }
+                execute(line);
+            }
+        } catch (IOException e) {
+            err.println("I/O error: " + e.getMessage());
+        }
+        return exitStatus;
+    }
+
+    /**
+     * Parses and executes one command line.
+     *
+     * @return exit status of the command, 2 if the line does not parse
+     */
+    public int execute(String line) {
+        line = line.trim();
+        if (line.isEmpty()) {
+            return 0;
+        }
+        Command command;
+        long start = System.nanoTime();
+        try {
+            command = PARSE_CACHE != null ? PARSE_CACHE.parse(line) : Parser.parse(line);
+        } catch (Exception e) {
+            err.println("Parse error: " + e.getMessage());
+            return 2;
+        }
+        stats.record(LatencyStats.Phase.PARSE, null, System.nanoTime() - start);
+        return execute(command);
+    }
+
+    /**
+     * Executes a parsed command.
+     *
+     * @return exit status of the command
+     */
+    public int execute(Command command) {
+        String executable = command.getExecutable();
+        if (executable == null || executable.isBlank()) {
+            throw new IllegalArgumentException("empty command");
+        }
+        return execute(plan(command));
+    }
+
+    /**
+     * Compiles a command for this session's current directory, PATH and built-ins. The plan can
+     * be run any number of times with {@link #execute(ExecutionPlan)}.
+     */
+    @Override
+    public ExecutionPlan compile(Command command) {
+        return ExecutionPlan.compile(command, workingDir, this::findExecutable, Builtins.REGISTRY::isBuiltin);
+    }
+
+    /**
+     * Runs a compiled command in the directory it was compiled for, with this session's
+     * environment and streams.
+     *
+     * @return exit status of the last stage
+     */
+    public int execute(ExecutionPlan plan) {
+        ExecutionPlan.Stage last = plan.stage(plan.size() - 1);
+        forgetTruncated(last);
+        DurabilityPolicy durability = this.durability;
+        boolean durable = last.outFile() != null && durability.isEnabled();
+        long sizeBefore = durable && last.isAppend() ? DurabilityPolicy.sizeOf(last.outFile().toPath()) : 0;
+        if (plan.isBackground()) {
+            Job job = startJob(plan);
+            if (job == null) {
+                return 127;
+            }
+            if (durable) {
+                job.onExit().thenAccept(status -> commitOutput(durability, last, sizeBefore, status));
+            }
+            return 0;
+        }
+        int status;
+        if (plan.isTimed() || timeAll) {
+            List<ResourceUsage> usage = new ArrayList<>(plan.size());
+            long start = System.nanoTime();
+            status = dispatch(plan, usage);
+            reportUsage(plan, System.nanoTime() - start, usage);
+        } else {
+            status = dispatch(plan, null);
+        }
+        return durable ? commitOutput(durability, last, sizeBefore, status) : status;
+    }
+
+    /**
+     * Prints what a command cost: one row per process or built-in and, for a pipeline or a
+     * command that never started, a total over the wall time of the whole line.
+     */
+    private void reportUsage(ExecutionPlan plan, long wallNanos, List<ResourceUsage> usage) {
+        out.flush();
+        err.println(ResourceUsage.header());
+        for (ResourceUsage stage : usage) {
+            err.println(stage.toRow());
+        }
+        if (usage.size() != 1) {
+            err.println(ResourceUsage.total("total", wallNanos, usage).toRow());
+        }
+        err.flush();
+    }
+
+    /**
+     * Starts a plan as a job, announcing it as {@code [n] pid...} at a prompt.
+     *
+     * @return the job, or null if it could not be started
+     */
+    private Job startJob(ExecutionPlan plan) {
+        ExecutionContext ctx = new ExecutionContext(plan.workingDir(), environment, in, out, err,
+                this::findExecutable);
+        out.flush();
+        PipelineExecutor.Running pipeline;
+        try {
+            pipeline = PipelineExecutor.start(plan, ctx, pipelineBuiltins());
+        } catch (IOException e) {
+            err.println("Error starting process: " + e.getMessage());
+            return null;
+        }
+        Job job = jobs.add(commandLine(plan), pipeline);
+        if (interactive) {
+            StringBuilder pids = new StringBuilder();
+            for (ProcessHandle p : job.processes()) {
+                pids.append(' ').append(p.pid());
+            }
+            err.println("[" + job.id() + "]" + pids);
+        }
+        return job;
+    }
+
+    /** Prints the jobs that finished since the last prompt, as {@code [n]+ Done  command}. */
+    private void reportFinishedJobs() {
+        for (Job job : jobs.takeFinished()) {
+            err.printf("[%d]+  %-10s %s%n", job.id(), job.state(), job.command());
+        }
+    }
+
+    /** A plan as a command line, for job listings. */
+    private static String commandLine(ExecutionPlan plan) {
+        StringBuilder line = new StringBuilder();
+        for (ExecutionPlan.Stage stage : plan.stages()) {
+            if (line.length() > 0) {
+                line.append(" | ");
+            }
+            line.append(stage.name());
+            for (String arg : stage.args()) {
+                line.append(' ').append(arg);
+            }
+            if (stage.inFile() != null) {
+                line.append(" < ").append(stage.inFile().getName());
+            }
+            if (stage.outFile() != null) {
+                line.append(stage.isAppend() ? " >> " : " > ").append(stage.outFile().getName());
+            }
+            if (stage.errFile() != null) {
+                line.append(" 2> ").append(stage.errFile().getName());
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Runs a foreground plan.
+     *
+     * @param usage if not null, receives what each stage that ran cost
+     */
+    private int dispatch(ExecutionPlan plan, List<ResourceUsage> usage) {
+        if (plan.size() > 1) {
+            ExecutionContext ctx = new ExecutionContext(plan.workingDir(), environment, in, out, err,
+                    this::findExecutable).withStats(stats);
+            return PipelineExecutor.execute(plan, ctx, pipelineBuiltins(), usage);
+        }
+        ExecutionPlan.Stage stage = plan.stage(0);
+        if (stage.isBuiltin()) {
+            ResourceMeter meter = usage != null ? ResourceMeter.ofCurrentThread() : null;
+            long start = System.nanoTime();
+            int status = runBuiltin(stage);
+            stats.record(LatencyStats.Phase.RUN, stage.name(), System.nanoTime() - start);
+            if (meter != null) {
+                usage.add(meter.finish(stage.words()));
+            }
+            return status;
+        }
+        if (stage.isRedirected()) {
+            return executeRedirection(plan.workingDir(), stage, usage);
+        }
+        return executeSimple(plan.workingDir(), stage, usage);
+    }
+
+    /**
+     * The plan for a command, reused while the directory and PATH it was compiled for are
+     * current and its commands still resolve as they did. Plans are only kept alongside the parse
+     * cache, whose Commands repeat.
+     */
+    private ExecutionPlan plan(Command command) {
+        if (plans == null) {
+            return compile(command);
+        }
+        String path = environment.get("PATH");
+        ExecutionPlan cached;
+        synchronized (plans) {
+            if (!Objects.equals(path, plansPath)) {
+                plans.clear();
+                plansPath = path;
+            }
+            cached = plans.get(command);
+        }
+        if (cached != null && cached.workingDir().equals(workingDir) && isCurrent(cached)) {
+            return cached;
+        }
+        ExecutionPlan plan = compile(command);
+        synchronized (plans) {
+            plans.put(command, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * True if every stage of a cached plan still runs what compiling it now would: the same
+     * built-in, or the same executable. The lookup goes through the ExecutableCache like any
+     * other, so `hash -r`, its expiry of commands not found and its PATH checks apply.
+     */
+    private boolean isCurrent(ExecutionPlan plan) {
+        for (ExecutionPlan.Stage stage : plan.stages()) {
+            boolean builtin = Builtins.REGISTRY.isBuiltin(stage.name());
+            if (builtin != stage.isBuiltin()
+                    || !builtin && !Objects.equals(findExecutable(stage.name()), stage.executable())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands what a command wrote to its {@code >}/{@code >>} file to the durability policy.
+     *
+     * @return the command's status, or 1 if its output could not be made durable
+     */
+    private int commitOutput(DurabilityPolicy durability, ExecutionPlan.Stage stage, long sizeBefore, int status) {
+        Path file = stage.outFile().toPath();
+        try {
+            durability.written(file, DurabilityPolicy.sizeOf(file) - sizeBefore,
+                    appendFiles != null ? appendFiles.channel(stage.outFile()) : null);
+            return status;
+        } catch (IOException e) {
+            err.println(stage.name() + ": " + file + ": sync failed: " + e.getMessage());
+            return status != 0 ? status : 1;
+        }
+    }
+
+    /** Sets where this session records how long the phases of its commands take. */
+    public void setStats(LatencyStats stats) {
+        this.stats = Objects.requireNonNull(stats);
+    }
+
+    @Override
+    public LatencyStats stats() {
+        return stats;
+    }
+
+    /**
+     * Whether an external command that runs on its own gets the session's stdin when that is not
+     * the JVM's, handed over as the command reads it (see {@link PumpExecutor#forward}), rather
+     * than an empty one. Only for a session whose stdin
+     * is meant for its commands and not also read for lines, as a script's or a daemon client's.
+     */
+    public void setForwardInput(boolean forwardInput) {
+        this.forwardInput = forwardInput;
+    }
+
+    /** Whether every foreground command reports its cost, as if it started with {@code time}. */
+    public void setTimeAll(boolean timeAll) {
+        this.timeAll = timeAll;
+    }
+
+    /** Sets when this session's {@code >} and {@code >>} output is forced to disk. */
+    public void setDurability(DurabilityPolicy durability) {
+        this.durability = Objects.requireNonNull(durability);
+    }
+
+    public DurabilityPolicy durability() {
+        return durability;
+    }
+
+    /** True once `exit` ran outside a pipeline; the session reads no further lines. */
+    public boolean hasExited() {
+        return exited;
+    }
+
+    /** Live view of the session's environment, which its children inherit. */
+    @Override
+    public Map<String, String> environment() {
+        return environment;
+    }
+
+    @Override
+    public Path workingDirectory() {
+        return workingDir;
+    }
+
+    @Override
+    public void changeDirectory(Path directory) {
+        workingDir = directory.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public ExecutableCache executables() {
+        return executables;
+    }
+
+    @Override
+    public JobTable jobs() {
+        return jobs;
+    }
+
+    @Override
+    public void exit(int status) {
+        out.flush();
+        close();
+        exitStatus = status;
+        exited = true;
+    }
+
+    /**
+     * Flushes and closes the files kept open for {@code >>} and commits output the durability
+     * policy still holds back. The session stays usable and opens the files again when needed.
+     */
+    @Override
+    public void close() {
+        try {
+            if (appendFiles != null) {
+                appendFiles.close();
+            }
+        } catch (IOException e) {
+            err.println(e.getMessage());
+        }
+        try {
+            durability.sync();
+        } catch (IOException e) {
+            err.println("sync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops cached handles of the files a stage truncates with {@code >} or {@code 2>}: the cached
+     * channel would still be valid, but the shell no longer appends to that file.
+     */
+    private void forgetTruncated(ExecutionPlan.Stage stage) {
+        if (appendFiles == null) {
+            return;
+        }
+        if (stage.outFile() != null && !stage.isAppend()) {
+            appendFiles.invalidate(stage.outFile());
+        }
+        if (stage.errFile() != null) {
+            appendFiles.invalidate(stage.errFile());
+        }
+    }
+
+    /**
+     * Handles simple commands (no redirection or piping).
+     */
+    private int executeSimple(Path dir, ExecutionPlan.Stage stage, List<ResourceUsage> usage) {
+        // External command
+        String exePath = stage.executable();
+        out.println("ExePath: " + exePath);
+        if (exePath == null) {
+            out.printf("%s: command not found%n", stage.name());
+            List<String> suggestions = pathIndex != null ? pathIndex.suggest(stage.name()) : Collections.emptyList();
+            if (!suggestions.isEmpty()) {
+                out.println("Did you mean: " + String.join(", ", suggestions) + "?");
+            }
+            return 127;
+        }
+        try {
+            return runExternal(dir, stage, usage);
+        } catch (IOException e) {
+            // Distinguish common errors if you want:
+            // e.g., "Permission denied" vs "No such file"
+            out.println("Error : " + e.getMessage());
+            err.println("Error running command: " + e.getMessage());
+            return 126;
+        }
+    }
+
+    /**
+     * Handles commands with I/O redirection.
+     */
+    private int executeRedirection(Path dir, ExecutionPlan.Stage stage, List<ResourceUsage> usage) {
+        try {
+            return runExternal(dir, stage, usage);
+        } catch (IOException e) {
+            // executable not found / permission denied
+            writeError(stage.name() + ": " + e.getMessage(), stage.errFile());
+            return 127;
+        }
+    }
+
+    /**
+     * The single dispatch path for built-ins outside pipelines: opens the redirection targets,
+     * or uses the session's own streams, and runs the built-in on them.
+     */
+    private int runBuiltin(ExecutionPlan.Stage stage) {
+        // Built-ins may write through the raw descriptors; flush whatever the shell printed first
+        out.flush();
+        err.flush();
+        InputStream stdin = in;
+        OutputStream stdout = stdoutChannel != null ? stdoutChannel : out;
+        OutputStream stderr = stderrChannel != null ? stderrChannel : err;
+        List<Closeable> opened = new ArrayList<>(3);
+        try {
+            if (stage.inFile() != null) {
+                stdin = new FileInputStream(stage.inFile());
+                opened.add(stdin);
+            }
+            if (stage.outFile() != null) {
+                // Closing a cached file only flushes it, so the next `>>` finds it open
+                stdout = stage.isAppend() && appendFiles != null ? appendFiles.open(stage.outFile())
+                        : new FileOutputStream(stage.outFile(), stage.isAppend());
+                opened.add(stdout);
+            }
+            if (stage.errFile() != null) {
+                stderr = new FileOutputStream(stage.errFile());
+                opened.add(stderr);
+            }
+            return Builtins.REGISTRY.run(stage.name(), stage.args(), stdin, stdout, stderr, this, false);
+        } catch (IOException e) {
+            // stderr is the 2> file once it is open, the session's stderr before that
+            new PrintStream(stderr, true).println(stage.name() + ": " + e.getMessage());
+            return 1;
+        } finally {
+            flushChannels();
+            for (Closeable c : opened) {
+                try {
+                    c.close();
+                } catch (IOException e) {
+                    err.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void flushChannels() {
+        try {
+            if (stdoutChannel != null) {
+                stdoutChannel.flush();
+            }
+        } catch (IOException e) {
+            err.println("stdout: " + e.getMessage());
+        }
+        try {
+            if (stderrChannel != null) {
+                stderrChannel.flush();
+            }
+        } catch (IOException e) {
+            // nowhere left to report it
+        }
+    }
+
+    /**
+     * Runs one child with the session's environment. Unredirected streams are inherited when
+     * they are the JVM's own and pumped otherwise.
+     *
+     * @param usage if not null, receives what the child cost
+     */
+    private int runExternal(Path dir, ExecutionPlan.Stage stage, List<ResourceUsage> usage) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(stage.argv());
+        pb.directory(dir.toFile());
+        pb.environment().clear();
+        pb.environment().putAll(environment);
+
+        // STDIN redirection (< input.txt)
+        if (stage.input() != null) {
+            pb.redirectInput(stage.input());
+        } else if (in == System.in) {
+            pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        }
+        // STDOUT redirection (> output.txt or >> output.txt)
+        if (stage.output() != null) {
+            pb.redirectOutput(stage.output());
+        } else if (out == System.out) {
+            pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        }
+        // STDERR redirection (2> errors.txt)
+        if (stage.error() != null) {
+            pb.redirectError(stage.error());
+        } else if (err == System.err) {
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+
+        out.flush();
+        try (PumpGroup pumps = new PumpGroup(err)) {
+            long spawn = System.nanoTime();
+            Process p = pb.start();
+            long started = System.nanoTime();
+            stats.record(LatencyStats.Phase.SPAWN, stage.name(), started - spawn);
+            ResourceMeter meter = usage != null ? ResourceMeter.of(p, spawn) : null;
+            if (pb.redirectInput() == ProcessBuilder.Redirect.PIPE) {
+                if (forwardInput) {
+                    PumpExecutor.forward(in, p);
+                } else {
+                    p.getOutputStream().close();
+                }
+            }
+            if (pb.redirectOutput() == ProcessBuilder.Redirect.PIPE) {
+                pumps.pump(p.getInputStream(), new NonClosingOutputStream(out));
+            }
+            if (pb.redirectError() == ProcessBuilder.Redirect.PIPE) {
+                pumps.pump(p.getErrorStream(), new NonClosingOutputStream(err));
+            }
+            try {
+                int status = p.waitFor();
+                long exited = System.nanoTime();
+                pumps.awaitAll();
+                stats.record(LatencyStats.Phase.RUN, stage.name(), exited - started);
+                stats.record(LatencyStats.Phase.REAP, stage.name(), System.nanoTime() - exited);
+                if (meter != null) {
+                    usage.add(meter.finish(stage.words()));
+                }
+                return status;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                p.destroy();
+                writeError("process interrupted", stage.errFile());
+                return 130;
+            }
+        }
+    }
+
+    private String findExecutable(String command) {
+        long start = System.nanoTime();
+        String name = command;
+        // Relative paths such as ./run.sh are relative to this session, not to the JVM
+        if (command != null && command.contains("/")) {
+            command = resolve(command).getPath();
+        }
+        String executable = executables.resolve(command);
+        stats.record(LatencyStats.Phase.RESOLVE, name, System.nanoTime() - start);
+        return executable;
+    }
+
+    private File resolve(String fileName) {
+        return workingDir.resolve(fileName).toFile();
+    }
+
+    private void writeError(String message, File errorFile) {
+        if (errorFile != null) {
+            if (appendFiles != null) {
+                appendFiles.invalidate(errorFile);
+            }
+            try {
+                Files.writeString(errorFile.toPath(), message);
+            } catch (IOException e) {
+                err.println(e.getMessage());
+            }
+        } else {
+            err.print(message.endsWith("\n") ? message : message + System.lineSeparator());
+        }
+    }
+}
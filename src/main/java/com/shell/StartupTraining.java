@@ -0,0 +1,72 @@
+package com.shell;
+
+import com.shell.path.PathIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The training run behind {@code bin/j-shell --cds}: run with {@code -XX:ArchiveClassesAtExit},
+ * it takes a session through what a shell does in its first commands (parsing, built-ins,
+ * redirections, forked and in-process pipelines, a background job, the prompt loop and script
+ * mode), so the classes and lambda forms they need are in the class-data-sharing archive and
+ * the next start maps them instead of loading them. Everything runs in a temp directory and
+ * prints nothing.
+ */
+public final class StartupTraining {
+
+    private static final String LINES = String.join("\n",
+            "echo hello world > greeting.txt",
+            "echo again >> greeting.txt",
+            "type greeting.txt",
+            "type greeting.txt | grep -v zzz | sort | uniq -c | wc -l",
+            "cat greeting.txt | head -n 1 > first.txt",
+            "cat < first.txt 2> errors.txt",
+            "echo x | parallel echo",
+            "true &",
+            "wait",
+            "jobs",
+            "hash",
+            "type nosuchcommand-training",
+            "echo 'unterminated",
+            "cd ..",
+            "");
+
+    private StartupTraining() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path dir = Files.createTempDirectory("j-shell-training-");
+        PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream(), true);
+        try {
+            // The prompt loop, as at an interactive start
+            PathIndex pathIndex = new PathIndex(System.getenv("PATH"), null);
+            pathIndex.start();
+            ShellSession interactive = new ShellSession(dir, System.getenv(),
+                    new ByteArrayInputStream(LINES.getBytes(StandardCharsets.UTF_8)), nowhere, nowhere, pathIndex);
+            interactive.run();
+            interactive.close();
+            pathIndex.awaitReady(10, TimeUnit.SECONDS);
+
+            // Script and -c mode
+            ShellSession script = new ShellSession(dir, System.getenv(), InputStream.nullInputStream(),
+                    nowhere, nowhere, null);
+            new ScriptRunner(script, nowhere, nowhere).run("training", new StringReader(LINES));
+            script.close();
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
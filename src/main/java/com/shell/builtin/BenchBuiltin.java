@@ -0,0 +1,455 @@
+package com.shell.builtin;
+
+import com.shell.exec.ExecutionContext;
+import com.shell.exec.ExecutionPlan;
+import com.shell.exec.PipelineExecutor;
+import com.shell.exec.ResourceMeter;
+import com.shell.exec.ResourceUsage;
+import com.shell.parser.Command;
+import com.shell.parser.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * bench [-w warmups] [-n runs] [-i] [--export-json file] command...
+ *
+ * Runs each command, a shell line given as one argument ({@code bench 'sort big.txt | uniq -c'}),
+ * warmups times unmeasured and then runs times (default 0 and 10), and reports mean, standard
+ * deviation, min, p50, p95, p99 and max of its wall time and of its CPU time. Wall time covers
+ * compiling the line (command lookup included), starting it, pumping its output and reaping it,
+ * exactly as the shell runs a pipeline. CPU is what its built-ins used plus what the children the
+ * JVM reaped during the run used, counted by the kernel in 10 ms ticks: for commands shorter than
+ * that only its mean is meaningful, and children of background jobs that end meanwhile count too.
+ * The commands' output is discarded.
+ *
+ * Runs whose wall time is far from the median (a modified z-score above 3.5) are counted as
+ * outliers. With several commands a summary compares them to the fastest. --export-json writes
+ * every result, with each run's times in seconds, in a hyperfine-like layout.
+ *
+ * A command that fails stops the benchmark with status 1 and its stderr, unless -i is given.
+ */
+@Builtin.Name("bench")
+public final class BenchBuiltin implements Builtin {
+
+    // Iglewicz and Hoaglin: a modified z-score above 3.5 is a potential outlier
+    private static final double OUTLIER_Z = 3.5;
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        Options options;
+        try {
+            options = Options.parse(call.args());
+        } catch (IllegalArgumentException e) {
+            call.err().println("bench: " + e.getMessage());
+            call.err().println("usage: bench [-w warmups] [-n runs] [-i] [--export-json file] command...");
+            return 2;
+        }
+        List<Command> commands = new ArrayList<>(options.commands.size());
+        for (String line : options.commands) {
+            try {
+                commands.add(Parser.parse(line));
+            } catch (RuntimeException e) {
+                call.err().println("bench: " + line + ": " + e.getMessage());
+                return 2;
+            }
+        }
+
+        PrintStream out = call.printer();
+        List<Result> results = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            String line = options.commands.get(i);
+            out.println("Benchmark " + (i + 1) + ": " + line);
+            out.flush();
+            Result result = measure(call, line, commands.get(i), options);
+            if (result == null) {
+                return Thread.currentThread().isInterrupted() ? 130 : 1;
+            }
+            print(out, result, options);
+            results.add(result);
+        }
+        if (results.size() > 1) {
+            printSummary(out, results);
+        }
+        if (options.jsonFile != null) {
+            Path file = call.shell().workingDirectory().resolve(options.jsonFile);
+            try (Writer json = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                json.write(toJson(results, options));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Runs one command warmups + runs times.
+     *
+     * @return its times, or null if it failed (reported) or the shell was interrupted
+     */
+    private static Result measure(Invocation call, String line, Command command, Options options) {
+        ShellContext shell = call.shell();
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        Result result = new Result(line, options.runs);
+        for (int run = -options.warmups; run < options.runs; run++) {
+            stderr.reset();
+            List<ResourceUsage> usage = new ArrayList<>(2);
+            long[] childrenBefore = ResourceMeter.reapedChildrenCpu();
+            long start = System.nanoTime();
+            ExecutionPlan plan;
+            int status;
+            try {
+                plan = shell.compile(command);
+                ExecutionContext ctx = new ExecutionContext(plan.workingDir(), shell.environment(),
+                        InputStream.nullInputStream(), discard, new PrintStream(stderr, true),
+                        name -> shell.executables().resolve(name));
+                status = PipelineExecutor.execute(plan, ctx, shell.inProcessCommands(), usage);
+            } catch (RuntimeException e) {
+                call.err().println("bench: " + line + ": " + e.getMessage());
+                return null;
+            }
+            long wall = System.nanoTime() - start;
+            long[] childrenAfter = ResourceMeter.reapedChildrenCpu();
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            // -1 means the command could not be started, e.g. not found
+            status = status < 0 ? 127 : status;
+            if (status != 0 && !options.ignoreFailure) {
+                call.err().print(stderr.toString(StandardCharsets.UTF_8));
+                call.err().println("bench: " + line + ": exited with status " + status
+                        + "; -i ignores failures");
+                return null;
+            }
+            if (run < 0) {
+                continue;
+            }
+            if (childrenBefore == null || childrenAfter == null || usage.size() != plan.size()) {
+                ResourceUsage total = ResourceUsage.total(line, wall, usage);
+                result.record(run, wall, total.userNanos(), total.systemNanos(), status);
+                continue;
+            }
+            // Children that exit before their first sample show no CPU; what the JVM reaped does
+            long user = childrenAfter[0] - childrenBefore[0];
+            long system = childrenAfter[1] - childrenBefore[1];
+            for (int i = 0; i < plan.size(); i++) {
+                if (plan.stage(i).isBuiltin()) {
+                    user += Math.max(usage.get(i).userNanos(), 0);
+                    system += Math.max(usage.get(i).systemNanos(), 0);
+                }
+            }
+            result.record(run, wall, user, system, status);
+        }
+        return result;
+    }
+
+    private static void print(PrintStream out, Result result, Options options) {
+        out.printf(Locale.ROOT, "%6s %10s %10s %10s %10s %10s %10s %10s%n",
+                "", "mean", "stddev", "min", "p50", "p95", "p99", "max");
+        out.println(row("wall", result.wall()));
+        out.println(row("cpu", result.cpu()));
+        int outliers = outliers(result.wallNanos);
+        out.printf(Locale.ROOT, "  %d runs, %d warmups%s%n", options.runs, options.warmups,
+                outliers == 0 ? "" : ", " + outliers + (outliers == 1 ? " outlier" : " outliers"));
+        if (outliers > 0) {
+            out.println("  Warning: some runs took much longer or shorter than the rest, e.g. because of"
+                    + " other load or cold caches; more warmups (-w) or runs (-n) may help");
+        }
+        out.println();
+    }
+
+    private static String row(String label, Summary s) {
+        return String.format(Locale.ROOT, "%6s %10s %10s %10s %10s %10s %10s %10s", label, duration(s.mean),
+                duration(s.stddev), duration(s.min), duration(s.p50), duration(s.p95), duration(s.p99),
+                duration(s.max));
+    }
+
+    /** The commands side by side, relative to the fastest mean wall time. */
+    private static void printSummary(PrintStream out, List<Result> results) {
+        Summary fastest = results.get(0).wall();
+        for (Result r : results) {
+            if (r.wall().mean < fastest.mean) {
+                fastest = r.wall();
+            }
+        }
+        out.println("Summary");
+        out.printf(Locale.ROOT, "  %10s %10s %10s %16s  %s%n", "wall", "stddev", "cpu", "relative", "command");
+        for (Result r : results) {
+            Summary wall = r.wall();
+            out.printf(Locale.ROOT, "  %10s %10s %10s %16s  %s%n", duration(wall.mean), duration(wall.stddev),
+                    duration(r.cpu().mean), relative(wall, fastest), r.command);
+        }
+    }
+
+    /** mean over the fastest mean, with both standard deviations propagated: "1.42 +/- 0.05" */
+    static String relative(Summary s, Summary fastest) {
+        if (s == fastest) {
+            return "1.00";
+        }
+        double ratio = s.mean / fastest.mean;
+        double error = ratio * Math.sqrt(Math.pow(s.stddev / s.mean, 2) + Math.pow(fastest.stddev / fastest.mean, 2));
+        return String.format(Locale.ROOT, "%.2f +/- %.2f", ratio, error);
+    }
+
+    /** 812.0 us, 3.140 ms, 1.207 s */
+    static String duration(double nanos) {
+        if (nanos < 1e6) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1e9) {
+            return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.3f s", nanos / 1e9);
+    }
+
+    /** Samples whose modified z-score, |0.6745 (x - median) / MAD|, is above 3.5. */
+    static int outliers(long[] samples) {
+        double median = Summary.of(samples).p50;
+        long[] deviations = new long[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            deviations[i] = Math.round(Math.abs(samples[i] - median));
+        }
+        double mad = Summary.of(deviations).p50;
+        if (mad == 0) {
+            return 0;
+        }
+        int outliers = 0;
+        for (long sample : samples) {
+            if (Math.abs(0.6745 * (sample - median) / mad) > OUTLIER_Z) {
+                outliers++;
+            }
+        }
+        return outliers;
+    }
+
+    static String toJson(List<Result> results, Options options) {
+        Summary fastest = null;
+        for (Result r : results) {
+            if (fastest == null || r.wall().mean < fastest.mean) {
+                fastest = r.wall();
+            }
+        }
+        StringBuilder json = new StringBuilder("{\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            Summary wall = r.wall();
+            json.append(i == 0 ? "\n" : ",\n").append("    {\n");
+            json.append("      \"command\": ").append(quote(r.command)).append(",\n");
+            json.append("      \"runs\": ").append(options.runs).append(",\n");
+            json.append("      \"warmups\": ").append(options.warmups).append(",\n");
+            appendSummary(json, wall, "      ");
+            json.append("      \"cpu\": {\n");
+            appendSummary(json, r.cpu(), "        ");
+            json.setLength(json.length() - 2);
+            json.append("\n      },\n");
+            json.append("      \"user\": ").append(seconds(Summary.of(r.userNanos).mean)).append(",\n");
+            json.append("      \"system\": ").append(seconds(Summary.of(r.systemNanos).mean)).append(",\n");
+            json.append("      \"relative\": ").append(String.format(Locale.ROOT, "%.4f", wall.mean / fastest.mean))
+                    .append(",\n");
+            json.append("      \"outliers\": ").append(outliers(r.wallNanos)).append(",\n");
+            json.append("      \"times\": ").append(secondsArray(r.wallNanos)).append(",\n");
+            json.append("      \"cpu_times\": ").append(secondsArray(r.cpuNanos())).append(",\n");
+            json.append("      \"exit_codes\": ").append(Arrays.toString(r.exitCodes)).append("\n");
+            json.append("    }");
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static void appendSummary(StringBuilder json, Summary s, String indent) {
+        json.append(indent).append("\"mean\": ").append(seconds(s.mean)).append(",\n");
+        json.append(indent).append("\"stddev\": ").append(seconds(s.stddev)).append(",\n");
+        json.append(indent).append("\"min\": ").append(seconds(s.min)).append(",\n");
+        json.append(indent).append("\"median\": ").append(seconds(s.p50)).append(",\n");
+        json.append(indent).append("\"p95\": ").append(seconds(s.p95)).append(",\n");
+        json.append(indent).append("\"p99\": ").append(seconds(s.p99)).append(",\n");
+        json.append(indent).append("\"max\": ").append(seconds(s.max)).append(",\n");
+    }
+
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String secondsArray(long[] nanos) {
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < nanos.length; i++) {
+            array.append(i == 0 ? "" : ", ").append(seconds(nanos[i]));
+        }
+        return array.append(']').toString();
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /** Mean, sample standard deviation and percentiles of a set of samples. */
+    static final class Summary {
+        final double mean;
+        final double stddev;
+        final double min;
+        final double p50;
+        final double p95;
+        final double p99;
+        final double max;
+
+        private Summary(double mean, double stddev, double min, double p50, double p95, double p99, double max) {
+            this.mean = mean;
+            this.stddev = stddev;
+            this.min = min;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        static Summary of(long[] samples) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (long s : sorted) {
+                sum += s;
+            }
+            double mean = sum / sorted.length;
+            double squares = 0;
+            for (long s : sorted) {
+                squares += (s - mean) * (s - mean);
+            }
+            double stddev = sorted.length > 1 ? Math.sqrt(squares / (sorted.length - 1)) : 0;
+            return new Summary(mean, stddev, sorted[0], percentile(sorted, 50), percentile(sorted, 95),
+                    percentile(sorted, 99), sorted[sorted.length - 1]);
+        }
+
+        /** Linearly interpolated between the two closest ranks, so the p50 of an even count is the median. */
+        static double percentile(long[] sorted, double p) {
+            double rank = (sorted.length - 1) * p / 100;
+            int below = (int) Math.floor(rank);
+            int above = Math.min(below + 1, sorted.length - 1);
+            return sorted[below] + (rank - below) * (sorted[above] - sorted[below]);
+        }
+    }
+
+    /** The measured runs of one command. */
+    static final class Result {
+        final String command;
+        final long[] wallNanos;
+        final long[] userNanos;
+        final long[] systemNanos;
+        final int[] exitCodes;
+        private Summary wall;
+        private Summary cpu;
+
+        Result(String command, int runs) {
+            this.command = command;
+            this.wallNanos = new long[runs];
+            this.userNanos = new long[runs];
+            this.systemNanos = new long[runs];
+            this.exitCodes = new int[runs];
+        }
+
+        void record(int run, long wall, long user, long system, int status) {
+            wallNanos[run] = wall;
+            userNanos[run] = Math.max(user, 0);
+            systemNanos[run] = Math.max(system, 0);
+            exitCodes[run] = status;
+        }
+
+        long[] cpuNanos() {
+            long[] cpu = new long[wallNanos.length];
+            for (int i = 0; i < cpu.length; i++) {
+                cpu[i] = userNanos[i] + systemNanos[i];
+            }
+            return cpu;
+        }
+
+        /** Summaries of the recorded runs, computed on first use. */
+        Summary wall() {
+            if (wall == null) {
+                wall = Summary.of(wallNanos);
+            }
+            return wall;
+        }
+
+        Summary cpu() {
+            if (cpu == null) {
+                cpu = Summary.of(cpuNanos());
+            }
+            return cpu;
+        }
+    }
+
+    static final class Options {
+        int warmups = 0;
+        int runs = 10;
+        boolean ignoreFailure;
+        String jsonFile;
+        List<String> commands;
+
+        static Options parse(List<String> args) {
+            Options o = new Options();
+            int i = 0;
+            for (; i < args.size(); i++) {
+                String arg = args.get(i);
+                if (arg.equals("-w") || arg.equals("--warmup")) {
+                    o.warmups = count(value(args, ++i, arg), arg, 0);
+                } else if (arg.equals("-n") || arg.equals("--runs")) {
+                    o.runs = count(value(args, ++i, arg), arg, 1);
+                } else if (arg.equals("-i") || arg.equals("--ignore-failure")) {
+                    o.ignoreFailure = true;
+                } else if (arg.equals("--export-json")) {
+                    o.jsonFile = value(args, ++i, arg);
+                } else if (arg.equals("--")) {
+                    i++;
+                    break;
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException(arg + ": unknown option");
+                } else {
+                    break;
+                }
+            }
+            if (i == args.size()) {
+                throw new IllegalArgumentException("no command given");
+            }
+            o.commands = args.subList(i, args.size());
+            return o;
+        }
+
+        private static String value(List<String> args, int i, String option) {
+            if (i >= args.size()) {
+                throw new IllegalArgumentException(option + ": option requires an argument");
+            }
+            return args.get(i);
+        }
+
+        private static int count(String value, String option, int min) {
+            try {
+                int n = Integer.parseInt(value);
+                if (n < min) {
+                    throw new IllegalArgumentException(option + ": must be at least " + min + ": " + value);
+                }
+                return n;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option + ": not a number: " + value);
+            }
+        }
+    }
+}
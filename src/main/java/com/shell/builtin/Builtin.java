@@ -0,0 +1,41 @@
+package com.shell.builtin;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A command that runs inside the shell instead of being forked.
+ *
+ * Implementations are found with {@link java.util.ServiceLoader}: list the class in
+ * {@code META-INF/services/com.shell.builtin.Builtin} and annotate it with {@link Name}.
+ * The registry reads the names from the annotation, so an implementation is only
+ * instantiated the first time one of its commands runs.
+ */
+public interface Builtin {
+
+    /** The command names an implementation answers to. */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @interface Name {
+        String[] value();
+    }
+
+    /**
+     * Runs the command to completion. Redirections are already applied to the invocation's streams.
+     *
+     * @return exit status
+     * @throws IOException typically a broken pipe when the next pipeline stage stopped reading
+     */
+    int run(Invocation call) throws IOException;
+
+    /**
+     * Whether name should currently run in-process. A built-in that returns false is looked up
+     * on PATH like any other command.
+     */
+    default boolean isEnabled(String name) {
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package com.shell.builtin;
+
+import com.shell.exec.InProcessCommands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every {@link Builtin} on the class path, by name. Looking a name up is a single hash lookup;
+ * implementations are created on first use and then reused.
+ *
+ * Built-ins keep no state of their own, so one registry serves any number of shells: the shell
+ * a built-in acts on is passed with each run.
+ */
+public final class BuiltinRegistry {
+
+    private final Map<String, ServiceLoader.Provider<Builtin>> providers;
+    private final Map<Class<?>, Builtin> instances = new ConcurrentHashMap<>();
+
+    private BuiltinRegistry(Map<String, ServiceLoader.Provider<Builtin>> providers) {
+        this.providers = providers;
+    }
+
+    /**
+     * Indexes the built-ins visible to the class loader that loaded this class. Only the
+     * implementation classes are loaded, none is instantiated.
+     *
+     * @throws IllegalStateException if two implementations claim the same name
+     */
+    public static BuiltinRegistry load() {
+        Map<String, ServiceLoader.Provider<Builtin>> providers = new HashMap<>();
+        ServiceLoader.load(Builtin.class, BuiltinRegistry.class.getClassLoader()).stream().forEach(provider -> {
+            Builtin.Name name = provider.type().getAnnotation(Builtin.Name.class);
+            if (name == null) {
+                throw new IllegalStateException(provider.type().getName() + " has no @Builtin.Name");
+            }
+            for (String n : name.value()) {
+                ServiceLoader.Provider<Builtin> previous = providers.putIfAbsent(n, provider);
+                if (previous != null) {
+                    throw new IllegalStateException("built-in " + n + " is provided by both "
+                            + previous.type().getName() + " and " + provider.type().getName());
+                }
+            }
+        });
+        return new BuiltinRegistry(providers);
+    }
+
+    /** True if name is a built-in and currently enabled. */
+    public boolean isBuiltin(String name) {
+        Builtin builtin = get(name);
+        return builtin != null && builtin.isEnabled(name);
+    }
+
+    /** The implementation of name, created on first use, or null. */
+    public Builtin get(String name) {
+        ServiceLoader.Provider<Builtin> provider = providers.get(name);
+        if (provider == null) {
+            return null;
+        }
+        return instances.computeIfAbsent(provider.type(), type -> provider.get());
+    }
+
+    /** Every registered name, enabled or not. */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(new TreeSet<>(providers.keySet()));
+    }
+
+    /** Number of implementations created so far. */
+    int instantiated() {
+        return instances.size();
+    }
+
+    /**
+     * Runs a built-in with the given streams, which are flushed but not closed.
+     *
+     * @param subshell true for a pipeline stage, see {@link Invocation#isSubshell()}
+     * @return exit status
+     */
+    public int run(String name, List<String> args, InputStream in, OutputStream out, OutputStream err,
+                   ShellContext shell, boolean subshell) throws IOException {
+        Builtin builtin = get(name);
+        if (builtin == null) {
+            throw new IllegalArgumentException(name + ": not a built-in");
+        }
+        Invocation call = new Invocation(name, args, in, out, err, shell, subshell);
+        int status = builtin.run(call);
+        return call.flush() ? status : 1;
+    }
+
+    /** The built-ins as pipeline stages of the given shell, where they behave like in a subshell. */
+    public InProcessCommands inPipeline(ShellContext shell) {
+        return new InProcessCommands() {
+            @Override
+            public boolean isInProcess(String executable) {
+                return isBuiltin(executable);
+            }
+
+            @Override
+            public int run(String executable, List<String> args, InputStream in, OutputStream out,
+                           OutputStream err) throws IOException {
+                return BuiltinRegistry.this.run(executable, args, in, out, err, shell, true);
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.shell.builtin;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * cd dir changes the shell's working directory; `~` is the home directory. As a pipeline stage
+ * it only checks that the directory exists.
+ */
+@Builtin.Name("cd")
+public final class CdBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) {
+        if (call.args().isEmpty()) {
+            if (!call.isSubshell()) {
+                call.printer().println("No directory specified");
+            }
+            return 0;
+        }
+
+        String target = call.args().get(0);
+        if (!call.isSubshell()) {
+            call.printer().println("Target: " + target);
+        }
+        Path candidate;
+        if (target.equals("~") || target.equals("~/")) {
+            candidate = Paths.get(System.getProperty("user.home")).toAbsolutePath();
+        } else {
+            try {
+                candidate = call.shell().workingDirectory().resolve(target).normalize().toAbsolutePath();
+            } catch (InvalidPathException e) {
+                // A name no file can have, such as one holding a NUL
+                candidate = null;
+            }
+        }
+        if (candidate == null || !Files.isDirectory(candidate)) {
+            call.printer().printf("cd: %s: No such file or directory%n", target);
+            return 1;
+        }
+        if (call.isSubshell()) {
+            return 0;
+        }
+
+        call.shell().changeDirectory(candidate);
+        if (!target.startsWith("~")) {
+            call.printer().println(candidate);
+        }
+        return 0;
+    }
+}
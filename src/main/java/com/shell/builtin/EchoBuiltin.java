@@ -0,0 +1,14 @@
+package com.shell.builtin;
+
+/**
+ * echo args... prints its arguments separated by single spaces.
+ */
+@Builtin.Name("echo")
+public final class EchoBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) {
+        call.printer().println(String.join(" ", call.args()));
+        return 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.shell.builtin;
+
+/**
+ * exit [N] terminates the shell with status N (default 0). As a pipeline stage it only sets the
+ * stage's status.
+ */
+@Builtin.Name("exit")
+public final class ExitBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) {
+        int status = 0;
+        if (!call.args().isEmpty()) {
+            try {
+                status = Integer.parseInt(call.args().get(0));
+            } catch (NumberFormatException e) {
+                call.err().println("exit: numeric argument required");
+                status = 1;
+            }
+        }
+        if (!call.isSubshell()) {
+            call.err().flush();
+            call.shell().exit(status);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,67 @@
+package com.shell.builtin;
+
+import com.shell.path.ExecutableCache;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * hash          - list remembered commands with their hit counts
+ * hash name...  - look up and remember the given commands
+ * hash -r       - forget all remembered commands
+ * hash -d name  - forget the given commands
+ * hash -s       - print cache hit/miss counters
+ */
+@Builtin.Name("hash")
+public final class HashBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) {
+        ExecutableCache executables = call.shell().executables();
+        List<String> args = call.args();
+        PrintStream out = call.printer();
+        PrintStream err = call.err();
+
+        if (args.isEmpty()) {
+            Map<String, String> entries = executables.entries();
+            if (entries.isEmpty()) {
+                out.println("hash: hash table empty");
+                return 0;
+            }
+            out.println("hits\tcommand");
+            entries.forEach((name, path) -> out.printf("%4d\t%s%n", executables.hits(name), path));
+            return 0;
+        }
+
+        int status = 0;
+        switch (args.get(0)) {
+            case "-r":
+                executables.clear();
+                break;
+            case "-s":
+                out.printf("hits: %d, misses: %d%n", executables.hits(), executables.misses());
+                break;
+            case "-d":
+                if (args.size() < 2) {
+                    err.println("hash: -d: option requires an argument");
+                    return 2;
+                }
+                for (String name : args.subList(1, args.size())) {
+                    if (!executables.remove(name)) {
+                        err.printf("hash: %s: not found%n", name);
+                        status = 1;
+                    }
+                }
+                break;
+            default:
+                for (String name : args) {
+                    if (!executables.add(name)) {
+                        err.printf("hash: %s: not found%n", name);
+                        status = 1;
+                    }
+                }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,103 @@
+package com.shell.builtin;
+
+import com.shell.exec.ChannelOutputStream;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * One run of a built-in: its arguments, its three streams and the shell it runs in.
+ *
+ * The streams are owned by the caller and must not be closed. {@link #printer()} is a text view of
+ * stdout that the caller flushes when the built-in returns.
+ */
+public final class Invocation {
+
+    private final String name;
+    private final List<String> args;
+    private final InputStream in;
+    private final OutputStream out;
+    private final PrintStream err;
+    private final ShellContext shell;
+    private final boolean subshell;
+    private PrintStream printer;
+
+    public Invocation(String name, List<String> args, InputStream in, OutputStream out, OutputStream err,
+                      ShellContext shell, boolean subshell) {
+        this.name = name;
+        this.args = args;
+        this.in = in;
+        this.out = out;
+        // A ChannelOutputStream is flushed by its owner when the built-in returns; anything else is
+        // flushed line by line, as stderr should be
+        if (err instanceof PrintStream) {
+            this.err = (PrintStream) err;
+        } else if (err instanceof ChannelOutputStream) {
+            this.err = ((ChannelOutputStream) err).printer();
+        } else {
+            this.err = new PrintStream(err, true);
+        }
+        this.shell = shell;
+        this.subshell = subshell;
+    }
+
+    /** The command name as typed, for built-ins that answer to several names. */
+    public String name() {
+        return name;
+    }
+
+    public List<String> args() {
+        return args;
+    }
+
+    public InputStream in() {
+        return in;
+    }
+
+    /** Raw stdout, for built-ins that copy bytes. */
+    public OutputStream out() {
+        return out;
+    }
+
+    /** stdout for text output. */
+    public PrintStream printer() {
+        if (printer == null) {
+            if (out instanceof PrintStream) {
+                printer = (PrintStream) out;
+            } else if (out instanceof ChannelOutputStream) {
+                printer = ((ChannelOutputStream) out).printer();
+            } else {
+                printer = new PrintStream(out);
+            }
+        }
+        return printer;
+    }
+
+    public PrintStream err() {
+        return err;
+    }
+
+    public ShellContext shell() {
+        return shell;
+    }
+
+    /**
+     * True when running as a pipeline stage. Like in a subshell, changes to the shell's state
+     * (directory, exit) must then not be applied.
+     */
+    public boolean isSubshell() {
+        return subshell;
+    }
+
+    /**
+     * Flushes what the built-in printed.
+     *
+     * @return false if writing to stdout failed, e.g. because the next stage exited
+     */
+    boolean flush() {
+        err.flush();
+        return printer == null || !printer.checkError();
+    }
+}
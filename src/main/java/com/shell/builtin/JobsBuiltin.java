@@ -0,0 +1,256 @@
+package com.shell.builtin;
+
+import com.shell.exec.NonClosingOutputStream;
+import com.shell.exec.PumpGroup;
+import com.shell.job.Job;
+import com.shell.job.JobTable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * jobs [-l]             - list background jobs (with their pids), forgetting finished ones
+ * fg [%n]               - wait for a job in the foreground and return its status
+ * bg [%n]               - let a stopped job continue in the background (SIGCONT)
+ * wait [%n | pid]...    - wait for the given jobs or processes, or for every job
+ * kill [-9|-KILL|-SIG] %n|pid...  - terminate jobs or processes
+ *
+ * kill terminates with SIGTERM and, after a grace period, SIGKILL, which is all the JVM can send;
+ * other signals (e.g. -STOP) are passed on to the system's kill. Jobs are looked up as
+ * {@code %n}, {@code %%}/{@code %+} (newest) or {@code %-} (the one before).
+ */
+@Builtin.Name({"jobs", "fg", "bg", "wait", "kill"})
+public final class JobsBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        JobTable jobs = call.shell().jobs();
+        if (jobs == null) {
+            call.err().println(call.name() + ": no job control in this shell");
+            return 1;
+        }
+        switch (call.name()) {
+            case "jobs":
+                return jobs(call, jobs);
+            case "fg":
+                return fg(call, jobs);
+            case "bg":
+                return bg(call, jobs);
+            case "wait":
+                return waitFor(call, jobs);
+            default:
+                return kill(call, jobs);
+        }
+    }
+
+    private static int jobs(Invocation call, JobTable jobs) {
+        boolean pids = call.args().contains("-l");
+        PrintStream out = call.printer();
+        Job current = jobs.current();
+        for (Job job : jobs.list()) {
+            out.printf("[%d]%s  %-10s %s%s%n", job.id(), job == current ? "+" : " ", job.state(), job.command(),
+                    pids ? "  (" + String.join(" ", pids(job)) + ")" : "");
+            if (job.isDone()) {
+                jobs.remove(job);
+            }
+        }
+        return 0;
+    }
+
+    private static int fg(Invocation call, JobTable jobs) {
+        Job job = job(call, jobs);
+        if (job == null) {
+            return 1;
+        }
+        call.printer().println(job.command());
+        call.printer().flush();
+        try {
+            int status = job.waitFor();
+            jobs.remove(job);
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    private static int bg(Invocation call, JobTable jobs) throws IOException {
+        Job job = job(call, jobs);
+        if (job == null) {
+            return 1;
+        }
+        if (job.isDone()) {
+            call.err().printf("bg: job %d has terminated%n", job.id());
+            return 1;
+        }
+        int status = systemKill(call, "-CONT", pids(job));
+        call.printer().printf("[%d] %s &%n", job.id(), job.command());
+        return status;
+    }
+
+    private static int waitFor(Invocation call, JobTable jobs) {
+        try {
+            if (call.args().isEmpty()) {
+                for (Job job : new ArrayList<>(jobs.list())) {
+                    job.waitFor();
+                    jobs.remove(job);
+                }
+                return 0;
+            }
+            int status = 0;
+            for (String arg : call.args()) {
+                if (arg.startsWith("%")) {
+                    Job job = jobs.find(arg);
+                    if (job == null) {
+                        call.err().printf("wait: %s: no such job%n", arg);
+                        status = 127;
+                        continue;
+                    }
+                    status = job.waitFor();
+                    jobs.remove(job);
+                    continue;
+                }
+                Optional<ProcessHandle> process = process(call, "wait", arg);
+                if (process.isEmpty()) {
+                    status = 127;
+                    continue;
+                }
+                Job job = jobOf(jobs, process.get());
+                if (job == null) {
+                    call.err().printf("wait: pid %s is not a child of this shell%n", arg);
+                    status = 127;
+                    continue;
+                }
+                // The pid's own exit, as ProcessHandle reports no status; the job's last stage gives one
+                process.get().onExit().join();
+                status = job.processes().get(job.processes().size() - 1).equals(process.get())
+                        ? job.waitFor() : 0;
+            }
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    private static int kill(Invocation call, JobTable jobs) throws IOException {
+        List<String> args = call.args();
+        String signal = "TERM";
+        int first = 0;
+        if (!args.isEmpty() && args.get(0).equals("-s") && args.size() > 1) {
+            signal = args.get(1);
+            first = 2;
+        } else if (!args.isEmpty() && args.get(0).startsWith("-") && args.get(0).length() > 1) {
+            signal = args.get(0).substring(1);
+            first = 1;
+        }
+        signal = signal.toUpperCase().replaceFirst("^SIG", "");
+        if (first >= args.size()) {
+            call.err().println("kill: usage: kill [-s sigspec | -sigspec] pid | %job ...");
+            return 2;
+        }
+        boolean term = signal.equals("TERM") || signal.equals("15");
+        boolean forcibly = signal.equals("KILL") || signal.equals("9");
+
+        int status = 0;
+        for (String target : args.subList(first, args.size())) {
+            if (target.startsWith("%")) {
+                Job job = jobs.find(target);
+                if (job == null) {
+                    call.err().printf("kill: %s: no such job%n", target);
+                    status = 1;
+                } else if (term || forcibly) {
+                    job.kill(forcibly);
+                } else {
+                    status |= systemKill(call, "-" + signal, pids(job));
+                }
+                continue;
+            }
+            Optional<ProcessHandle> process = process(call, "kill", target);
+            if (process.isEmpty()) {
+                status = 1;
+            } else if (process.get().equals(ProcessHandle.current())) {
+                // ProcessHandle refuses to destroy it, and it may host other sessions
+                call.err().printf("kill: (%s) - cannot signal the shell itself%n", target);
+                status = 1;
+            } else if (term || forcibly) {
+                boolean sent = forcibly ? process.get().destroyForcibly() : process.get().destroy();
+                if (!sent) {
+                    call.err().printf("kill: (%s) - Operation not permitted%n", target);
+                    status = 1;
+                }
+            } else {
+                status |= systemKill(call, "-" + signal, List.of(target));
+            }
+        }
+        return status;
+    }
+
+    /** The job named by the first argument, or the newest; reports and returns null if there is none. */
+    private static Job job(Invocation call, JobTable jobs) {
+        String spec = call.args().isEmpty() ? "%+" : call.args().get(0);
+        Job job = jobs.find(spec);
+        if (job == null) {
+            call.err().printf("%s: %s: no such job%n", call.name(), call.args().isEmpty() ? "current" : spec);
+        }
+        return job;
+    }
+
+    private static Optional<ProcessHandle> process(Invocation call, String name, String pid) {
+        try {
+            Optional<ProcessHandle> process = ProcessHandle.of(Long.parseLong(pid));
+            if (process.isEmpty()) {
+                call.err().printf("%s: (%s) - No such process%n", name, pid);
+            }
+            return process;
+        } catch (NumberFormatException e) {
+            call.err().printf("%s: %s: arguments must be process or job IDs%n", name, pid);
+            return Optional.empty();
+        }
+    }
+
+    private static Job jobOf(JobTable jobs, ProcessHandle process) {
+        for (Job job : jobs.list()) {
+            if (job.processes().contains(process)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> pids(Job job) {
+        return job.processes().stream().map(p -> Long.toString(p.pid())).collect(Collectors.toList());
+    }
+
+    /** Sends a signal the JVM cannot send itself with the system's kill, on the call's streams. */
+    private static int systemKill(Invocation call, String signal, List<String> pids) throws IOException {
+        if (pids.isEmpty()) {
+            return 0;
+        }
+        String kill = call.shell().executables().resolve("kill");
+        if (kill == null) {
+            call.err().println(call.name() + ": cannot send " + signal + ": no kill on PATH");
+            return 1;
+        }
+        List<String> argv = new ArrayList<>();
+        argv.add(kill);
+        argv.add(signal);
+        argv.addAll(pids);
+        Process process = new ProcessBuilder(argv).start();
+        process.getOutputStream().close();
+        try (PumpGroup pumps = new PumpGroup(call.err())) {
+            pumps.pump(process.getInputStream(), new NonClosingOutputStream(call.out()));
+            pumps.pump(process.getErrorStream(), new NonClosingOutputStream(call.err()));
+            int status = process.waitFor();
+            pumps.awaitAll();
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.shell.builtin;
+
+import com.shell.exec.ExecutionContext;
+import com.shell.exec.ExecutionPlan;
+import com.shell.exec.InProcessCommands;
+import com.shell.exec.PipelineExecutor;
+import com.shell.parser.Parser;
+import com.shell.path.ExecutableCache;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * parallel [-j N] [-k] [--joblog file] command... ::: arg...
+ * ... | parallel [-j N] [-k] [--joblog file] command...
+ *
+ * Runs command once per argument (or per line of stdin), at most N at a time (default: one per
+ * core). In the command {} is replaced by the argument, {.} by the argument without its extension
+ * and {#} by the job number; without any of them the argument is appended. The command is a shell
+ * line, so it may contain pipes and redirections: {@code parallel 'grep -c ERROR {} > {}.count' ::: *.log}.
+ *
+ * Every command is forked, with executables looked up in the shell's command cache. Each job's
+ * stdout and stderr are collected and written as one group when it finishes; -k writes the groups
+ * in input order instead. --joblog writes a line per job in GNU parallel's format (Seq, Host,
+ * Starttime, JobRuntime, Send, Receive, Exitval, Signal, Command). The status is the number of
+ * jobs that failed, at most 101.
+ */
+@Builtin.Name("parallel")
+public final class ParallelBuiltin implements Builtin {
+
+    private static final String ARGS_SEPARATOR = ":::";
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        Options options;
+        try {
+            options = Options.parse(call.args());
+        } catch (IllegalArgumentException e) {
+            call.err().println("parallel: " + e.getMessage());
+            call.err().println("usage: parallel [-j N] [-k] [--joblog file] command... [::: arg...]");
+            return 2;
+        }
+        List<String> inputs = options.inputs != null ? options.inputs : readLines(call.in());
+
+        PrintStream jobLog = null;
+        if (options.jobLog != null) {
+            Path file = call.shell().workingDirectory().resolve(options.jobLog);
+            jobLog = new PrintStream(new FileOutputStream(file.toFile()), false, StandardCharsets.UTF_8);
+            jobLog.println("Seq\tHost\tStarttime\tJobRuntime\tSend\tReceive\tExitval\tSignal\tCommand");
+        }
+
+        ExecutableCache executables = call.shell().executables();
+        Path dir = call.shell().workingDirectory();
+        Map<String, String> environment = call.shell().environment();
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(options.jobs, r -> {
+            Thread t = new Thread(r, "j-shell-parallel-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        int failed = 0;
+        try {
+            CompletionService<Result> completions = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < inputs.size(); i++) {
+                int seq = i + 1;
+                String line = expand(options.template, inputs.get(i), seq);
+                completions.submit(() -> runJob(seq, line, dir, environment, executables));
+            }
+
+            Result[] done = new Result[inputs.size() + 1];
+            int next = 1;
+            for (int i = 0; i < inputs.size(); i++) {
+                Result result = completions.take().get();
+                if (result.status != 0) {
+                    failed++;
+                }
+                if (jobLog != null) {
+                    jobLog.printf(Locale.ROOT, "%d\t:\t%.3f\t%.3f\t0\t%d\t%d\t%d\t%s%n", result.seq,
+                            result.startMillis / 1000.0, result.runtimeNanos / 1e9, result.out.length,
+                            result.status, result.status > 128 ? result.status - 128 : 0, result.line);
+                }
+                if (!options.keepOrder) {
+                    write(call, result);
+                    continue;
+                }
+                done[result.seq] = result;
+                for (; next < done.length && done[next] != null; next++) {
+                    write(call, done[next]);
+                    done[next] = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        } catch (ExecutionException e) {
+            call.err().println("parallel: " + e.getCause().getMessage());
+            return 1;
+        } finally {
+            executor.shutdownNow();
+            if (jobLog != null) {
+                jobLog.close();
+            }
+        }
+        return Math.min(failed, 101);
+    }
+
+    /** Runs one job to completion with its output collected. */
+    private static Result runJob(int seq, String line, Path dir, Map<String, String> environment,
+                                 ExecutableCache executables) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errors = new PrintStream(err, true);
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        int status;
+        // The shell's own lookup, with relative paths such as ./run.sh taken from its directory
+        UnaryOperator<String> resolver = name -> executables.resolve(
+                name.contains("/") ? dir.resolve(name).toString() : name);
+        try {
+            ExecutionPlan plan = ExecutionPlan.compile(Parser.parse(line), dir, resolver, name -> false);
+            ExecutionContext ctx = new ExecutionContext(dir, environment, InputStream.nullInputStream(),
+                    new PrintStream(out), errors, resolver);
+            status = PipelineExecutor.execute(plan, ctx, InProcessCommands.NONE);
+            // -1 means the command could not be started, e.g. not found
+            status = status < 0 ? 127 : status;
+        } catch (RuntimeException e) {
+            errors.println("parallel: " + line + ": " + e.getMessage());
+            status = 2;
+        }
+        return new Result(seq, line, status, startMillis, System.nanoTime() - start, out.toByteArray(),
+                err.toByteArray());
+    }
+
+    private static void write(Invocation call, Result result) throws IOException {
+        call.out().write(result.out);
+        call.out().flush();
+        if (result.err.length > 0) {
+            call.err().write(result.err);
+            call.err().flush();
+        }
+    }
+
+    /** The template with the argument substituted, quoted so it stays one word. */
+    static String expand(String template, String arg, int seq) {
+        String quoted = quote(arg);
+        if (!template.contains("{}") && !template.contains("{.}") && !template.contains("{#}")) {
+            return template + " " + quoted;
+        }
+        int dot = arg.lastIndexOf('.');
+        String stem = dot > arg.lastIndexOf('/') + 1 ? arg.substring(0, dot) : arg;
+        return template.replace("{}", quoted).replace("{.}", quote(stem)).replace("{#}", Integer.toString(seq));
+    }
+
+    /** 'arg' with every ' written as '\'' */
+    private static String quote(String arg) {
+        return "'" + arg.replace("'", "'\\''") + "'";
+    }
+
+    private static List<String> readLines(InputStream in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        for (String line; (line = reader.readLine()) != null; ) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static final class Options {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean keepOrder;
+        String jobLog;
+        String template;
+        List<String> inputs;
+
+        static Options parse(List<String> args) {
+            Options o = new Options();
+            int i = 0;
+            for (; i < args.size(); i++) {
+                String arg = args.get(i);
+                if (arg.equals("-k") || arg.equals("--keep-order")) {
+                    o.keepOrder = true;
+                } else if (arg.equals("-j") || arg.equals("--jobs")) {
+                    o.jobs = jobs(value(args, ++i, arg));
+                } else if (arg.startsWith("-j") && arg.length() > 2) {
+                    o.jobs = jobs(arg.substring(2));
+                } else if (arg.equals("--joblog")) {
+                    o.jobLog = value(args, ++i, arg);
+                } else if (arg.startsWith("-") && !arg.equals(ARGS_SEPARATOR)) {
+                    throw new IllegalArgumentException(arg + ": unknown option");
+                } else {
+                    break;
+                }
+            }
+            int separator = args.indexOf(ARGS_SEPARATOR);
+            int end = separator >= i ? separator : args.size();
+            if (end == i) {
+                throw new IllegalArgumentException("no command given");
+            }
+            o.template = String.join(" ", args.subList(i, end));
+            o.inputs = separator >= i ? args.subList(separator + 1, args.size()) : null;
+            return o;
+        }
+
+        private static String value(List<String> args, int i, String option) {
+            if (i >= args.size()) {
+                throw new IllegalArgumentException(option + ": option requires an argument");
+            }
+            return args.get(i);
+        }
+
+        private static int jobs(String value) {
+            try {
+                int n = Integer.parseInt(value);
+                if (n < 1) {
+                    throw new IllegalArgumentException("-j: must be at least 1: " + value);
+                }
+                return n;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("-j: not a number: " + value);
+            }
+        }
+    }
+
+    private static final class Result {
+        final int seq;
+        final String line;
+        final int status;
+        final long startMillis;
+        final long runtimeNanos;
+        final byte[] out;
+        final byte[] err;
+
+        Result(int seq, String line, int status, long startMillis, long runtimeNanos, byte[] out, byte[] err) {
+            this.seq = seq;
+            this.line = line;
+            this.status = status;
+            this.startMillis = startMillis;
+            this.runtimeNanos = runtimeNanos;
+            this.out = out;
+            this.err = err;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.shell.builtin;
+
+import com.shell.exec.ExecutionPlan;
+import com.shell.exec.InProcessCommands;
+import com.shell.exec.LatencyStats;
+import com.shell.job.JobTable;
+import com.shell.parser.Command;
+import com.shell.path.ExecutableCache;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The parts of the shell's state a built-in may read or change.
+ */
+public interface ShellContext {
+
+    Path workingDirectory();
+
+    void changeDirectory(Path directory);
+
+    /** The environment children of the shell get. */
+    default Map<String, String> environment() {
+        return System.getenv();
+    }
+
+    /** Remembered command locations, see the `hash` built-in. */
+    ExecutableCache executables();
+
+    /**
+     * Compiles a parsed line the way the shell runs it: in its directory, with its command lookup
+     * and its built-ins. This default knows no built-ins and forks every stage.
+     */
+    default ExecutionPlan compile(Command command) {
+        Path dir = workingDirectory();
+        return ExecutionPlan.compile(command, dir,
+                name -> executables().resolve(name.contains("/") ? dir.resolve(name).toString() : name),
+                name -> false);
+    }
+
+    /** Runs the built-in stages of a {@link #compile compiled} plan. */
+    default InProcessCommands inProcessCommands() {
+        return InProcessCommands.NONE;
+    }
+
+    /** Terminates the shell. */
+    void exit(int status);
+
+    /** Where the shell records how long the phases of its commands take, see `stats`. */
+    default LatencyStats stats() {
+        return LatencyStats.DISABLED;
+    }
+
+    /** Background jobs, see `jobs`; null if the shell has no job control. */
+    default JobTable jobs() {
+        return null;
+    }
+}
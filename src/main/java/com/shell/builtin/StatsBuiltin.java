@@ -0,0 +1,60 @@
+package com.shell.builtin;
+
+import com.shell.exec.LatencyHistogram;
+import com.shell.exec.LatencyStats;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * stats [reset]
+ *
+ * Prints how long the phases of the shell's commands took: count, mean, p50, p90, p99, p99.9 and
+ * max of parse, resolve, spawn, run and reap over all commands ("(all)"), then for each command
+ * name the phases it went through. `stats reset` forgets them. Shows whether the shell's own work
+ * (parse, resolve, spawn, reap) or the commands themselves (run) take the time; see
+ * {@link LatencyStats}.
+ */
+@Builtin.Name("stats")
+public final class StatsBuiltin implements Builtin {
+
+    private static final String FORMAT = "%-12s %-8s %8s %10s %10s %10s %10s %10s %10s%n";
+
+    @Override
+    public int run(Invocation call) {
+        LatencyStats stats = call.shell().stats();
+        if (!stats.isEnabled()) {
+            call.err().println("stats: not recorded, -Djshell.stats=false");
+            return 1;
+        }
+        if (call.args().equals(List.of("reset"))) {
+            stats.reset();
+            return 0;
+        }
+        if (!call.args().isEmpty()) {
+            call.err().println("usage: stats [reset]");
+            return 2;
+        }
+
+        PrintStream out = call.printer();
+        out.printf(Locale.ROOT, FORMAT, "command", "phase", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+        for (LatencyStats.Phase phase : LatencyStats.Phase.values()) {
+            row(out, "(all)", phase, stats.phase(phase));
+        }
+        stats.byExecutable().forEach((name, phases) ->
+                phases.forEach((phase, histogram) -> row(out, name, phase, histogram)));
+        return 0;
+    }
+
+    private static void row(PrintStream out, String name, LatencyStats.Phase phase, LatencyHistogram h) {
+        if (h.count() == 0) {
+            out.printf(Locale.ROOT, FORMAT, name, phase.label(), 0, "-", "-", "-", "-", "-", "-");
+            return;
+        }
+        out.printf(Locale.ROOT, FORMAT, name, phase.label(), h.count(), BenchBuiltin.duration(h.mean()),
+                BenchBuiltin.duration(h.percentile(50)), BenchBuiltin.duration(h.percentile(90)),
+                BenchBuiltin.duration(h.percentile(99)), BenchBuiltin.duration(h.percentile(99.9)),
+                BenchBuiltin.duration(h.max()));
+    }
+}
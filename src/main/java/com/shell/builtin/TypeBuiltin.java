@@ -0,0 +1,95 @@
+package com.shell.builtin;
+
+import com.shell.exec.ChannelOutputStream;
+import com.shell.exec.PumpGroup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * `type filename...` copies file contents byte for byte to stdout.
+ * Bytes are moved with FileChannel.transferTo (sendfile where the OS supports it, i.e. when stdout
+ * is a file or the terminal), so memory use is bounded regardless of file size and line endings
+ * and encoding are left untouched.
+ */
+@Builtin.Name("type")
+public final class TypeBuiltin implements Builtin {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        if (call.args().isEmpty()) {
+            call.err().println("type: missing operand");
+            return 1;
+        }
+
+        WritableByteChannel out;
+        if (call.out() instanceof ChannelOutputStream) {
+            out = ((ChannelOutputStream) call.out()).channel();
+        } else if (call.out() instanceof FileOutputStream) {
+            out = ((FileOutputStream) call.out()).getChannel();
+        } else {
+            out = Channels.newChannel(call.out());
+        }
+        int status = 0;
+        for (String filename : call.args()) {
+            File f;
+            try {
+                f = call.shell().workingDirectory().resolve(filename).toFile();
+            } catch (InvalidPathException e) {
+                // A name no file can have, such as one holding a NUL
+                f = null;
+            }
+            if (f == null || !f.exists()) {
+                call.err().print("type:" + filename + ": No such file or directory\n");
+                status = 1;
+                continue;
+            }
+            if (f.isDirectory()) {
+                call.err().print("type:" + filename + ": Is a directory\n");
+                status = 1;
+                continue;
+            }
+            try (FileChannel in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+                transferFully(in, out);
+            } catch (IOException e) {
+                if (PumpGroup.isBrokenPipe(e)) {
+                    throw e;
+                }
+                call.err().print("type: " + filename + ": " + e.getMessage() + "\n");
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Copies a file channel to its end. Files that report size 0 but still have content
+     * (e.g. /proc entries) are read through a small bounded buffer instead.
+     */
+    private static void transferFully(FileChannel in, WritableByteChannel out) throws IOException {
+        long position = 0;
+        long n;
+        while ((n = in.transferTo(position, Long.MAX_VALUE - position, out)) > 0) {
+            position += n;
+        }
+        if (position == 0) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buf) > 0) {
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    out.write(buf);
+                }
+                buf.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.shell.coreutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process versions of grep, wc, head, tail, sort, uniq and cut, working directly on bytes.
+ * Running these as built-ins saves a fork/exec per pipeline stage, which dominates on small
+ * and medium inputs. Only the commonly used options are implemented; as built-ins, everything
+ * else runs the real binary.
+ *
+ * The pack is off by default. {@code -Djshell.coreutils=true} turns it on and
+ * {@code -Djshell.coreutils.<name>=false} then sends a single utility back to the real binary.
+ */
+public final class CoreUtils {
+
+    private static final String PROPERTY = "jshell.coreutils";
+
+    private static final Map<String, Utility> UTILITIES =
+            Stream.of(new Grep(), new Wc(), new Head(), new Tail(), new Sort(), new Uniq(), new Cut())
+                    .collect(Collectors.toUnmodifiableMap(Utility::name, Function.identity()));
+
+    private CoreUtils() {
+    }
+
+    /**
+     * True if the pack is on and name is a utility of it that has not been switched back to the
+     * real binary.
+     */
+    public static boolean isEnabled(String name) {
+        return UTILITIES.containsKey(name)
+                && Boolean.getBoolean(PROPERTY)
+                && !"false".equals(System.getProperty(PROPERTY + "." + name));
+    }
+
+    /** Every utility in the pack, enabled or not. */
+    public static Set<String> names() {
+        return new TreeSet<>(UTILITIES.keySet());
+    }
+
+    /**
+     * Runs a utility with file operands relative to the JVM's working directory.
+     *
+     * @see #run(String, List, Path, InputStream, OutputStream, OutputStream)
+     */
+    public static int run(String name, List<String> args, InputStream in, OutputStream out, OutputStream err)
+            throws IOException {
+        return run(name, args, null, in, out, err);
+    }
+
+    /**
+     * Runs a utility to completion. The streams are not closed. Options and patterns the pack
+     * does not implement are reported as usage errors.
+     *
+     * @param workingDir directory relative file operands are resolved against, null for the JVM's
+     * @return the exit status the real utility would return
+     * @throws IOException typically a broken pipe when the next stage stopped reading
+     */
+    public static int run(String name, List<String> args, Path workingDir, InputStream in, OutputStream out,
+                          OutputStream err) throws IOException {
+        return run(name, args, workingDir, in, out, err, null);
+    }
+
+    /**
+     * Runs a utility to completion, handing what the pack does not implement to real.
+     */
+    static int run(String name, List<String> args, Path workingDir, InputStream in, OutputStream out,
+                   OutputStream err, Utility.RealUtility real) throws IOException {
+        Utility utility = UTILITIES.get(name);
+        if (utility == null) {
+            throw new IllegalArgumentException(name + ": not a core utility");
+        }
+        PrintStream errors = err instanceof PrintStream ? (PrintStream) err : new PrintStream(err, true);
+        int status = utility.execute(args, workingDir, in, out, errors, real);
+        errors.flush();
+        return status;
+    }
+}
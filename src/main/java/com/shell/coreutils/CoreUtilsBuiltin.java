@@ -0,0 +1,78 @@
+package com.shell.coreutils;
+
+import com.shell.builtin.Builtin;
+import com.shell.builtin.Invocation;
+import com.shell.builtin.ShellContext;
+import com.shell.exec.NonClosingOutputStream;
+import com.shell.exec.ProcessTrees;
+import com.shell.exec.PumpExecutor;
+import com.shell.exec.PumpGroup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the pack with the built-in registry once {@code -Djshell.coreutils=true} turns it on.
+ * A utility switched off with {@code -Djshell.coreutils.<name>=false} is not a built-in and runs
+ * the real binary, and so does every run with options or patterns the pack does not implement.
+ */
+@Builtin.Name({"grep", "wc", "head", "tail", "sort", "uniq", "cut"})
+public final class CoreUtilsBuiltin implements Builtin {
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        return CoreUtils.run(call.name(), call.args(), call.shell().workingDirectory(), call.in(), call.out(),
+                call.err(), (name, args, readsStdin) -> runReal(call, args, readsStdin));
+    }
+
+    @Override
+    public boolean isEnabled(String name) {
+        return CoreUtils.isEnabled(name);
+    }
+
+    /**
+     * Runs the real binary in the shell's directory and environment, on the built-in's streams.
+     * stdin is handed over when it is the JVM's own and forwarded otherwise, but only to a
+     * pipeline stage or a run that names no file: anything else gets an empty stdin, so that it
+     * cannot take input meant for later commands.
+     */
+    private static int runReal(Invocation call, List<String> args, boolean readsStdin) throws IOException {
+        ShellContext shell = call.shell();
+        String executable = shell.executables().resolve(call.name());
+        if (executable == null) {
+            return Utility.RealUtility.NOT_INSTALLED;
+        }
+        List<String> argv = new ArrayList<>(args.size() + 1);
+        argv.add(executable);
+        argv.addAll(args);
+        ProcessBuilder pb = new ProcessBuilder(argv);
+        pb.directory(shell.workingDirectory().toFile());
+        pb.environment().clear();
+        pb.environment().putAll(shell.environment());
+        boolean input = call.isSubshell() || readsStdin;
+        if (input && call.in() == System.in) {
+            pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        }
+
+        Process process = pb.start();
+        try (PumpGroup pumps = new PumpGroup(call.err())) {
+            if (!input) {
+                process.getOutputStream().close();
+            } else if (call.in() != System.in) {
+                PumpExecutor.forward(call.in(), process);
+            }
+            pumps.pump(process.getInputStream(), new NonClosingOutputStream(call.out()));
+            pumps.pump(process.getErrorStream(), new NonClosingOutputStream(call.err()));
+            try {
+                int status = process.waitFor();
+                pumps.awaitAll();
+                return status;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ProcessTrees.destroy(process.toHandle());
+                return 130;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * cut -f LIST [-d DELIM] [-s] [FILE...]
+ * cut -c LIST [FILE...]   (-b is the same: characters are bytes)
+ *
+ * LIST is a comma separated list of N, N-M, N- and -M, counting from 1.
+ */
+final class Cut extends Utility {
+
+    Cut() {
+        super("cut", 1, "bcdf");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        String list = null;
+        boolean fields = false;
+        byte delimiter = '\t';
+        boolean delimitedOnly = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.length() < 2 || !arg.startsWith("-")) {
+                files.add(arg);
+                continue;
+            }
+            char option = arg.charAt(1);
+            if (option == 's') {
+                delimitedOnly = true;
+                continue;
+            }
+            String value = arg.length() > 2 ? arg.substring(2) : null;
+            if (value == null) {
+                if (++i >= args.size()) {
+                    throw new UsageException("option requires an argument -- '" + option + "'");
+                }
+                value = args.get(i);
+            }
+            switch (option) {
+                case 'f':
+                    fields = true;
+                    list = value;
+                    break;
+                case 'c':
+                case 'b':
+                    list = value;
+                    break;
+                case 'd':
+                    if (value.getBytes().length != 1) {
+                        throw new UsageException("the delimiter must be a single character");
+                    }
+                    delimiter = value.getBytes()[0];
+                    break;
+                default:
+                    throw new UsageException("invalid option -- '" + option + "'");
+            }
+        }
+        if (list == null) {
+            throw new UsageException("you must specify a list of bytes, characters, or fields");
+        }
+
+        Ranges ranges = Ranges.parse(list);
+        boolean byField = fields;
+        byte delim = delimiter;
+        boolean onlyDelimited = delimitedOnly;
+        BufferedOutputStream buffered = buffered(out);
+        int status = in.forEach(files, (label, input) -> {
+            LineScanner lines = new LineScanner(input);
+            while (lines.next()) {
+                if (byField) {
+                    cutFields(lines.buffer(), lines.start(), lines.length(), ranges, delim, onlyDelimited, buffered);
+                } else {
+                    cutBytes(lines.buffer(), lines.start(), lines.length(), ranges, buffered);
+                }
+            }
+        });
+        buffered.flush();
+        return status;
+    }
+
+    private static void cutBytes(byte[] b, int off, int len, Ranges ranges, OutputStream out) throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (ranges.contains(i + 1)) {
+                out.write(b[off + i]);
+            }
+        }
+        out.write('\n');
+    }
+
+    private static void cutFields(byte[] b, int off, int len, Ranges ranges, byte delim, boolean delimitedOnly,
+                                  OutputStream out) throws IOException {
+        int end = off + len;
+        if (Grep.indexOf(b, off, len, new byte[]{delim}) < 0) {
+            // lines without the delimiter are passed through whole, like GNU cut
+            if (!delimitedOnly) {
+                out.write(b, off, len);
+                out.write('\n');
+            }
+            return;
+        }
+        int field = 1;
+        int fieldStart = off;
+        boolean written = false;
+        for (int i = off; i <= end; i++) {
+            if (i < end && b[i] != delim) {
+                continue;
+            }
+            if (ranges.contains(field)) {
+                if (written) {
+                    out.write(delim);
+                }
+                out.write(b, fieldStart, i - fieldStart);
+                written = true;
+            }
+            field++;
+            fieldStart = i + 1;
+        }
+        out.write('\n');
+    }
+
+    /** The positions selected by a LIST argument. */
+    private static final class Ranges {
+        private final List<long[]> ranges = new ArrayList<>();
+
+        static Ranges parse(String list) throws UsageException {
+            Ranges r = new Ranges();
+            for (String part : list.split(",")) {
+                try {
+                    int dash = part.indexOf('-');
+                    long from;
+                    long to;
+                    if (dash < 0) {
+                        from = to = Long.parseLong(part);
+                    } else {
+                        from = dash == 0 ? 1 : Long.parseLong(part.substring(0, dash));
+                        to = dash == part.length() - 1 ? Long.MAX_VALUE : Long.parseLong(part.substring(dash + 1));
+                    }
+                    if (from < 1 || to < from) {
+                        throw new NumberFormatException();
+                    }
+                    r.ranges.add(new long[]{from, to});
+                } catch (NumberFormatException e) {
+                    throw new UsageException("invalid field value '" + part + "'");
+                }
+            }
+            return r;
+        }
+
+        boolean contains(long position) {
+            for (long[] range : ranges) {
+                if (position >= range[0] && position <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
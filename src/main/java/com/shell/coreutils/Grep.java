@@ -0,0 +1,237 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * grep [-icvnlqFE] [-e] PATTERN [FILE...]
+ *
+ * Patterns that are plain strings, or any pattern with -F, are matched directly on the line
+ * bytes. A pattern with metacharacters of a basic regular expression, or of an extended one with
+ * -E, is left to the real grep: Java's regular expressions differ from both.
+ */
+final class Grep extends Utility {
+
+    // What makes a pattern more than a string in a basic regular expression: there + ? { } ( ) |
+    // are ordinary characters, and \+ and the like start with a backslash
+    private static final String BASIC_METACHARACTERS = ".[]*^$\\";
+    private static final String EXTENDED_METACHARACTERS = BASIC_METACHARACTERS + "+?{}()|";
+
+    Grep() {
+        super("grep", 2, "ABCDdefm");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        boolean ignoreCase = false;
+        boolean invert = false;
+        boolean count = false;
+        boolean lineNumbers = false;
+        boolean filesOnly = false;
+        boolean quiet = false;
+        boolean fixed = false;
+        boolean extended = false;
+        String pattern = null;
+
+        int i = 0;
+        for (; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--")) {
+                i++;
+                break;
+            }
+            if (!arg.startsWith("-") || arg.length() == 1) {
+                break;
+            }
+            for (int k = 1; k < arg.length(); k++) {
+                char c = arg.charAt(k);
+                switch (c) {
+                    case 'i': ignoreCase = true; break;
+                    case 'v': invert = true; break;
+                    case 'c': count = true; break;
+                    case 'n': lineNumbers = true; break;
+                    case 'l': filesOnly = true; break;
+                    case 'q': quiet = true; break;
+                    case 'F': fixed = true; break;
+                    case 'E': extended = true; break;
+                    case 'e':
+                        if (k + 1 < arg.length()) {
+                            pattern = arg.substring(k + 1);
+                        } else if (++i < args.size()) {
+                            pattern = args.get(i);
+                        } else {
+                            throw new UsageException("option requires an argument -- 'e'");
+                        }
+                        k = arg.length();
+                        break;
+                    default:
+                        throw new UsageException("invalid option -- '" + c + "'");
+                }
+            }
+        }
+        if (pattern == null) {
+            if (i >= args.size()) {
+                throw new UsageException("no pattern given");
+            }
+            pattern = args.get(i++);
+        }
+        List<String> files = new ArrayList<>(args.subList(i, args.size()));
+
+        LineMatcher matcher = compile(pattern, fixed, extended, ignoreCase);
+        boolean prefix = files.size() > 1;
+        BufferedOutputStream buffered = buffered(out);
+        Options options = new Options(invert, count, lineNumbers, filesOnly, quiet, prefix);
+        long[] selected = {0};
+
+        int status = in.forEach(files, (label, input) -> {
+            if (options.quiet && selected[0] > 0) {
+                return;
+            }
+            selected[0] += grep(label, input, matcher, options, buffered);
+        });
+        buffered.flush();
+        if (status != 0 && !(quiet && selected[0] > 0)) {
+            return 2;
+        }
+        return selected[0] > 0 ? 0 : 1;
+    }
+
+    private static final class Options {
+        final boolean invert;
+        final boolean count;
+        final boolean lineNumbers;
+        final boolean filesOnly;
+        final boolean quiet;
+        final boolean prefix;
+
+        Options(boolean invert, boolean count, boolean lineNumbers, boolean filesOnly, boolean quiet, boolean prefix) {
+            this.invert = invert;
+            this.count = count;
+            this.lineNumbers = lineNumbers;
+            this.filesOnly = filesOnly;
+            this.quiet = quiet;
+            this.prefix = prefix;
+        }
+    }
+
+    private static long grep(String label, InputStream input, LineMatcher matcher, Options o, OutputStream out)
+            throws IOException {
+        byte[] name = (label.equals("-") ? "(standard input)" : label).getBytes();
+        LineScanner lines = new LineScanner(input);
+        long selected = 0;
+        long lineNumber = 0;
+        while (lines.next()) {
+            lineNumber++;
+            if (matcher.matches(lines.buffer(), lines.start(), lines.length()) == o.invert) {
+                continue;
+            }
+            selected++;
+            if (o.quiet) {
+                return selected;
+            }
+            if (o.filesOnly) {
+                out.write(name);
+                out.write('\n');
+                return selected;
+            }
+            if (o.count) {
+                continue;
+            }
+            if (o.prefix) {
+                out.write(name);
+                out.write(':');
+            }
+            if (o.lineNumbers) {
+                writeNumber(out, lineNumber);
+                out.write(':');
+            }
+            out.write(lines.buffer(), lines.start(), lines.length());
+            out.write('\n');
+        }
+        if (o.count && !o.quiet) {
+            if (o.prefix) {
+                out.write(name);
+                out.write(':');
+            }
+            writeNumber(out, selected);
+            out.write('\n');
+        }
+        return selected;
+    }
+
+    /** The pattern is the first operand unless -e or -f gave it; -r searches "." without files. */
+    @Override
+    List<String> files(List<String> operands, String options) {
+        boolean patternGiven = options.indexOf('e') >= 0 || options.indexOf('f') >= 0;
+        List<String> files = patternGiven || operands.isEmpty() ? operands : operands.subList(1, operands.size());
+        boolean recursive = options.indexOf('r') >= 0 || options.indexOf('R') >= 0;
+        return files.isEmpty() && recursive ? List.of(".") : files;
+    }
+
+    private interface LineMatcher {
+        boolean matches(byte[] b, int off, int len);
+    }
+
+    /**
+     * @throws UsageException for a regular expression, which only the real grep matches right
+     */
+    private static LineMatcher compile(String pattern, boolean fixed, boolean extended, boolean ignoreCase)
+            throws UsageException {
+        String metacharacters = extended ? EXTENDED_METACHARACTERS : BASIC_METACHARACTERS;
+        if (!fixed && pattern.chars().anyMatch(c -> metacharacters.indexOf(c) >= 0)) {
+            throw new UsageException("regular expressions need the real grep: " + pattern);
+        }
+        byte[] needle = pattern.getBytes(StandardCharsets.UTF_8);
+        if (!ignoreCase) {
+            return (b, off, len) -> indexOf(b, off, len, needle) >= 0;
+        }
+        if (pattern.chars().allMatch(c -> c < 0x80)) {
+            return (b, off, len) -> indexOfIgnoreCase(b, off, len, needle) >= 0;
+        }
+        Pattern quoted = Pattern.compile(Pattern.quote(pattern), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return (b, off, len) -> quoted.matcher(new String(b, off, len, StandardCharsets.UTF_8)).find();
+    }
+
+    static int indexOf(byte[] b, int off, int len, byte[] needle) {
+        if (needle.length == 0) {
+            return off;
+        }
+        byte first = needle[0];
+        int last = off + len - needle.length;
+        outer:
+        for (int i = off; i <= last; i++) {
+            if (b[i] != first) {
+                continue;
+            }
+            for (int k = 1; k < needle.length; k++) {
+                if (b[i + k] != needle[k]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoreCase(byte[] b, int off, int len, byte[] needle) {
+        int last = off + len - needle.length;
+        outer:
+        for (int i = off; i <= last; i++) {
+            for (int k = 0; k < needle.length; k++) {
+                if (lower(b[i + k]) != lower(needle[k])) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int lower(byte c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
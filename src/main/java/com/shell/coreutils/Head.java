@@ -0,0 +1,90 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * head [-n N | -N | -c N] [FILE...]
+ *
+ * Stops reading as soon as enough has been copied, so an endless producer upstream
+ * sees a broken pipe.
+ */
+final class Head extends Utility {
+
+    Head() {
+        super("head", 1, "nc");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        long count = 10;
+        boolean bytes = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-n") || arg.equals("-c")) {
+                if (++i >= args.size()) {
+                    throw new UsageException("option requires an argument -- '" + arg.charAt(1) + "'");
+                }
+                bytes = arg.equals("-c");
+                count = parseCount(args.get(i));
+            } else if (arg.startsWith("-n") || arg.startsWith("-c")) {
+                bytes = arg.startsWith("-c");
+                count = parseCount(arg.substring(2));
+            } else if (arg.length() > 1 && arg.startsWith("-") && Character.isDigit(arg.charAt(1))) {
+                count = parseCount(arg.substring(1));
+            } else if (arg.startsWith("-") && arg.length() > 1) {
+                throw new UsageException("invalid option -- '" + arg.charAt(1) + "'");
+            } else {
+                files.add(arg);
+            }
+        }
+
+        long limit = count;
+        boolean byteMode = bytes;
+        boolean headers = files.size() > 1;
+        BufferedOutputStream buffered = buffered(out);
+        boolean[] first = {true};
+        int status = in.forEach(files, (label, input) -> {
+            if (headers) {
+                buffered.write(((first[0] ? "" : "\n") + "==> " + label + " <==\n").getBytes());
+                first[0] = false;
+            }
+            if (byteMode) {
+                copyBytes(input, buffered, limit);
+            } else {
+                copyLines(input, buffered, limit);
+            }
+        });
+        buffered.flush();
+        return status;
+    }
+
+    private static void copyBytes(InputStream input, OutputStream out, long limit) throws IOException {
+        byte[] buf = new byte[LineScanner.BUFFER_SIZE];
+        long remaining = limit;
+        int n;
+        while (remaining > 0 && (n = input.read(buf, 0, (int) Math.min(buf.length, remaining))) != -1) {
+            out.write(buf, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private static void copyLines(InputStream input, OutputStream out, long limit) throws IOException {
+        byte[] buf = new byte[LineScanner.BUFFER_SIZE];
+        long remaining = limit;
+        int n;
+        while (remaining > 0 && (n = input.read(buf)) != -1) {
+            int end = n;
+            for (int i = 0; i < n; i++) {
+                if (buf[i] == '\n' && --remaining == 0) {
+                    end = i + 1;
+                    break;
+                }
+            }
+            out.write(buf, 0, end);
+        }
+    }
+}
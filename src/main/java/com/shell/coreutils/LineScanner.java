@@ -0,0 +1,101 @@
+package com.shell.coreutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream into '\n'-terminated lines without decoding it.
+ *
+ * After {@link #next()} returns true the current line is {@code buffer()[start() .. start()+length())},
+ * without its newline. The bytes are only valid until the next call.
+ */
+final class LineScanner {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    // bytes in [pos, scanned) are known to contain no newline
+    private int scanned;
+    private boolean eof;
+
+    private int start;
+    private int length;
+    private boolean terminated;
+
+    LineScanner(InputStream in) {
+        this.in = in;
+    }
+
+    boolean next() throws IOException {
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    start = pos;
+                    length = i - pos;
+                    terminated = true;
+                    pos = i + 1;
+                    scanned = pos;
+                    return true;
+                }
+            }
+            scanned = limit;
+            if (eof) {
+                if (pos < limit) {
+                    start = pos;
+                    length = limit - pos;
+                    terminated = false;
+                    pos = limit;
+                    scanned = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            scanned -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            // a line longer than the buffer
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /** False only for a last line that has no trailing newline. */
+    boolean terminated() {
+        return terminated;
+    }
+
+    /** A copy of the current line, for utilities that must keep lines around. */
+    byte[] copy() {
+        return Arrays.copyOfRange(buf, start, start + length);
+    }
+}
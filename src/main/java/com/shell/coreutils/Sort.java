@@ -0,0 +1,120 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * sort [-rnuf] [FILE...]
+ *
+ * Lines are compared as unsigned bytes, i.e. like sort in the C locale.
+ */
+final class Sort extends Utility {
+
+    Sort() {
+        super("sort", 2, "kotST");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        boolean reverse = false;
+        boolean numeric = false;
+        boolean unique = false;
+        boolean foldCase = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (char c : arg.substring(1).toCharArray()) {
+                    switch (c) {
+                        case 'r': reverse = true; break;
+                        case 'n': numeric = true; break;
+                        case 'u': unique = true; break;
+                        case 'f': foldCase = true; break;
+                        default: throw new UsageException("invalid option -- '" + c + "'");
+                    }
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+
+        List<byte[]> lines = new ArrayList<>();
+        int status = in.forEach(files, (label, input) -> {
+            LineScanner scanner = new LineScanner(input);
+            while (scanner.next()) {
+                lines.add(scanner.copy());
+            }
+        });
+        if (status != 0) {
+            return 2;
+        }
+
+        Comparator<byte[]> key = foldCase ? Sort::compareFolded : Sort::compareBytes;
+        if (numeric) {
+            key = Comparator.comparingDouble(Sort::leadingNumber);
+        }
+        // the whole line breaks ties, except where -u compares keys only
+        Comparator<byte[]> order = unique || !(numeric || foldCase) ? key : key.thenComparing(Sort::compareBytes);
+        lines.sort(reverse ? order.reversed() : order);
+
+        BufferedOutputStream buffered = buffered(out);
+        byte[] previous = null;
+        for (byte[] line : lines) {
+            if (unique && previous != null && key.compare(previous, line) == 0) {
+                continue;
+            }
+            buffered.write(line);
+            buffered.write('\n');
+            previous = line;
+        }
+        buffered.flush();
+        return 0;
+    }
+
+    static int compareBytes(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    private static int compareFolded(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int d = upper(a[i]) - upper(b[i]);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static int upper(byte c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c & 0xff;
+    }
+
+    /** The number at the start of the line after blanks, 0 when there is none, like sort -n. */
+    private static double leadingNumber(byte[] line) {
+        int i = 0;
+        while (i < line.length && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        int start = i;
+        if (i < line.length && line[i] == '-') {
+            i++;
+        }
+        boolean digits = false;
+        while (i < line.length && (Character.isDigit(line[i]) || line[i] == '.')) {
+            digits |= line[i] != '.';
+            i++;
+        }
+        if (!digits) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(new String(line, start, i - start));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * tail [-n N | -N | -n +N] [FILE...]
+ *
+ * Regular files are read backwards from their end, so the cost depends on N rather than on
+ * the file size. Pipes keep only the last N lines in memory.
+ */
+final class Tail extends Utility {
+
+    Tail() {
+        super("tail", 1, "ncs");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        String count = "10";
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-n")) {
+                if (++i >= args.size()) {
+                    throw new UsageException("option requires an argument -- 'n'");
+                }
+                count = args.get(i);
+            } else if (arg.startsWith("-n")) {
+                count = arg.substring(2);
+            } else if (arg.length() > 1 && arg.startsWith("-") && Character.isDigit(arg.charAt(1))) {
+                count = arg.substring(1);
+            } else if (arg.startsWith("-") && arg.length() > 1) {
+                throw new UsageException("invalid option -- '" + arg.charAt(1) + "'");
+            } else {
+                files.add(arg);
+            }
+        }
+        boolean fromStart = count.startsWith("+");
+        long n = parseCount(fromStart ? count.substring(1) : count);
+
+        boolean headers = files.size() > 1;
+        BufferedOutputStream buffered = buffered(out);
+        boolean[] first = {true};
+        int status = in.forEach(files, (label, input) -> {
+            if (headers) {
+                buffered.write(((first[0] ? "" : "\n") + "==> " + label + " <==\n").getBytes());
+                first[0] = false;
+            }
+            if (fromStart) {
+                skipLines(input, buffered, n);
+            } else if (input instanceof FileInputStream && ((FileInputStream) input).getChannel().size() > 0) {
+                tailFile(((FileInputStream) input).getChannel(), buffered, n);
+            } else {
+                tailStream(input, buffered, n);
+            }
+        });
+        buffered.flush();
+        return status;
+    }
+
+    /** tail -n +N: everything from line N on. */
+    private static void skipLines(InputStream input, OutputStream out, long fromLine) throws IOException {
+        LineScanner lines = new LineScanner(input);
+        long lineNumber = 0;
+        while (lines.next()) {
+            if (++lineNumber >= fromLine) {
+                out.write(lines.buffer(), lines.start(), lines.length());
+                if (lines.terminated()) {
+                    out.write('\n');
+                }
+            }
+        }
+    }
+
+    private static void tailStream(InputStream input, OutputStream out, long n) throws IOException {
+        if (n == 0) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return;
+        }
+        ArrayDeque<byte[]> last = new ArrayDeque<>();
+        boolean terminated = true;
+        LineScanner lines = new LineScanner(input);
+        while (lines.next()) {
+            if (last.size() == n) {
+                last.removeFirst();
+            }
+            last.addLast(lines.copy());
+            terminated = lines.terminated();
+        }
+        while (!last.isEmpty()) {
+            out.write(last.removeFirst());
+            if (!last.isEmpty() || terminated) {
+                out.write('\n');
+            }
+        }
+    }
+
+    private static void tailFile(FileChannel channel, OutputStream out, long n) throws IOException {
+        if (n == 0) {
+            return;
+        }
+        long size = channel.size();
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        long start = size;
+        long newlines = 0;
+        // a trailing newline ends the last line rather than starting a new one
+        long position = size;
+        boolean skipTrailing = true;
+        search:
+        while (position > 0) {
+            int chunk = (int) Math.min(buf.capacity(), position);
+            position -= chunk;
+            buf.clear().limit(chunk);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = chunk - 1; i >= 0; i--) {
+                if (buf.get(i) != '\n') {
+                    skipTrailing = false;
+                    continue;
+                }
+                if (skipTrailing) {
+                    skipTrailing = false;
+                    continue;
+                }
+                if (++newlines == n) {
+                    start = position + i + 1;
+                    break search;
+                }
+            }
+            start = position;
+        }
+        channel.position(start);
+        byte[] copy = new byte[LineScanner.BUFFER_SIZE];
+        ByteBuffer wrapped = ByteBuffer.wrap(copy);
+        int read;
+        while ((read = channel.read(wrapped.clear())) > 0) {
+            out.write(copy, 0, read);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * uniq [-cdui] [FILE]
+ *
+ * Collapses runs of adjacent equal lines.
+ */
+final class Uniq extends Utility {
+
+    Uniq() {
+        super("uniq", 1, "fsw");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        boolean count = false;
+        boolean repeatedOnly = false;
+        boolean uniqueOnly = false;
+        boolean ignoreCase = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (char c : arg.substring(1).toCharArray()) {
+                    switch (c) {
+                        case 'c': count = true; break;
+                        case 'd': repeatedOnly = true; break;
+                        case 'u': uniqueOnly = true; break;
+                        case 'i': ignoreCase = true; break;
+                        default: throw new UsageException("invalid option -- '" + c + "'");
+                    }
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.size() > 1) {
+            throw new UsageException("extra operand '" + files.get(1) + "'");
+        }
+
+        Run run = new Run(count, repeatedOnly, uniqueOnly, ignoreCase, buffered(out));
+        int status = in.forEach(files, (label, input) -> {
+            LineScanner lines = new LineScanner(input);
+            while (lines.next()) {
+                run.add(lines);
+            }
+        });
+        run.flush();
+        return status;
+    }
+
+    /** The current run of equal lines. */
+    private static final class Run {
+        final boolean count;
+        final boolean repeatedOnly;
+        final boolean uniqueOnly;
+        final boolean ignoreCase;
+        final BufferedOutputStream out;
+        byte[] line;
+        long length;
+
+        Run(boolean count, boolean repeatedOnly, boolean uniqueOnly, boolean ignoreCase, BufferedOutputStream out) {
+            this.count = count;
+            this.repeatedOnly = repeatedOnly;
+            this.uniqueOnly = uniqueOnly;
+            this.ignoreCase = ignoreCase;
+            this.out = out;
+        }
+
+        void add(LineScanner lines) throws IOException {
+            if (line != null && equal(lines.buffer(), lines.start(), lines.length())) {
+                length++;
+                return;
+            }
+            emit();
+            line = lines.copy();
+            length = 1;
+        }
+
+        private boolean equal(byte[] b, int off, int len) {
+            if (len != line.length) {
+                return false;
+            }
+            if (!ignoreCase) {
+                return Arrays.equals(line, 0, len, b, off, off + len);
+            }
+            for (int i = 0; i < len; i++) {
+                if (Character.toLowerCase(line[i]) != Character.toLowerCase(b[off + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void emit() throws IOException {
+            if (line == null || (repeatedOnly && length < 2) || (uniqueOnly && length > 1)) {
+                return;
+            }
+            if (count) {
+                writePadded(out, length, 7);
+                out.write(' ');
+            }
+            out.write(line);
+            out.write('\n');
+        }
+
+        void flush() throws IOException {
+            emit();
+            out.flush();
+        }
+    }
+}
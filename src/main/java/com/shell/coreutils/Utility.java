@@ -0,0 +1,204 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One text utility of the pack. Implementations read and write raw bytes and never close
+ * the streams they are given.
+ */
+abstract class Utility {
+
+    private final String name;
+    private final int usageStatus;
+    private final String optionsWithValue;
+
+    /**
+     * @param optionsWithValue the real utility's short options that take a value, to tell its
+     *                         operands apart in {@link #readsStdin}
+     */
+    Utility(String name, int usageStatus, String optionsWithValue) {
+        this.name = name;
+        this.usageStatus = usageStatus;
+        this.optionsWithValue = optionsWithValue;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Runs the utility. Arguments it does not handle, whether the real one would reject them or
+     * the pack does not implement them, go to the real utility if there is one and are otherwise
+     * reported like the real one does.
+     *
+     * @param real runs the real utility instead, may be null
+     * @return exit status, following the real utility's conventions
+     */
+    final int execute(List<String> args, Path workingDir, InputStream in, OutputStream out, PrintStream err,
+                      RealUtility real) throws IOException {
+        try {
+            return run(args, new Inputs(workingDir, in, err), out, err);
+        } catch (UsageException e) {
+            // Thrown before any input is read, so the real utility still gets all of it
+            int status = real != null ? real.run(name, args, readsStdin(args)) : RealUtility.NOT_INSTALLED;
+            if (status != RealUtility.NOT_INSTALLED) {
+                return status;
+            }
+            err.println(name + ": " + e.getMessage());
+            return usageStatus;
+        }
+    }
+
+    abstract int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException;
+
+    /**
+     * Whether the real utility reads stdin with these arguments: when they name no file, or "-".
+     * Options are told from operands as getopt does, anywhere before "--"; long options are
+     * taken to carry their value after "=".
+     */
+    final boolean readsStdin(List<String> args) {
+        List<String> operands = new ArrayList<>();
+        StringBuilder options = new StringBuilder();
+        boolean optionsEnded = false;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (optionsEnded || !arg.startsWith("-") || arg.length() == 1) {
+                operands.add(arg);
+            } else if (arg.equals("--")) {
+                optionsEnded = true;
+            } else if (!arg.startsWith("--")) {
+                for (int j = 1; j < arg.length(); j++) {
+                    char option = arg.charAt(j);
+                    options.append(option);
+                    if (optionsWithValue.indexOf(option) >= 0) {
+                        // The value is the rest of the argument, or the next one
+                        if (j == arg.length() - 1) {
+                            i++;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        List<String> files = files(operands, options.toString());
+        return files.isEmpty() || files.contains("-");
+    }
+
+    /** The operands that name files, given the short options used. All of them unless overridden. */
+    List<String> files(List<String> operands, String options) {
+        return operands;
+    }
+
+    /**
+     * Arguments the utility does not handle: something the real one would also reject, or does
+     * and the pack does not. Reported as "name: message" when there is no real utility to run.
+     */
+    static final class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    /** Runs the real binary of a utility on the same streams. */
+    interface RealUtility {
+        int NOT_INSTALLED = -1;
+
+        /**
+         * @param readsStdin whether args make it read stdin, see {@link Utility#readsStdin}
+         * @return its exit status, or {@link #NOT_INSTALLED}
+         */
+        int run(String name, List<String> args, boolean readsStdin) throws IOException;
+    }
+
+    /** Receives one input: stdin or an opened file operand. */
+    interface InputHandler {
+        void accept(String label, InputStream in) throws IOException;
+    }
+
+    /** stdin and the file operands, which are relative to the shell's working directory. */
+    final class Inputs {
+        private final Path workingDir;
+        private final InputStream stdin;
+        private final PrintStream err;
+
+        Inputs(Path workingDir, InputStream stdin, PrintStream err) {
+            this.workingDir = workingDir;
+            this.stdin = stdin;
+            this.err = err;
+        }
+
+        /**
+         * Calls handler for every file operand in order, or once for stdin when there are none.
+         * "-" also means stdin. Unreadable files are reported and skipped.
+         *
+         * @return 0, or 1 if any file could not be opened
+         */
+        int forEach(List<String> files, InputHandler handler) throws IOException {
+            if (files.isEmpty()) {
+                handler.accept("-", stdin);
+                return 0;
+            }
+            int status = 0;
+            for (String file : files) {
+                if (file.equals("-")) {
+                    handler.accept(file, stdin);
+                    continue;
+                }
+                File f = workingDir == null ? new File(file) : workingDir.resolve(file).toFile();
+                if (f.isDirectory()) {
+                    err.println(name + ": " + file + ": Is a directory");
+                    status = 1;
+                    continue;
+                }
+                InputStream in;
+                try {
+                    in = new FileInputStream(f);
+                } catch (FileNotFoundException e) {
+                    err.println(name + ": " + file + ": No such file or directory");
+                    status = 1;
+                    continue;
+                }
+                try (InputStream fileIn = in) {
+                    handler.accept(file, fileIn);
+                }
+            }
+            return status;
+        }
+    }
+
+    /** Parses a non-negative count such as the N of {@code -n N}. */
+    long parseCount(String value) throws UsageException {
+        try {
+            long n = Long.parseLong(value);
+            if (n >= 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new UsageException("invalid number: '" + value + "'");
+    }
+
+    static BufferedOutputStream buffered(OutputStream out) {
+        return new BufferedOutputStream(out, LineScanner.BUFFER_SIZE);
+    }
+
+    static void writeNumber(OutputStream out, long n) throws IOException {
+        out.write(Long.toString(n).getBytes());
+    }
+
+    /** Like printf("%{width}d") without the cost of a Formatter per line. */
+    static void writePadded(OutputStream out, long n, int width) throws IOException {
+        byte[] digits = Long.toString(n).getBytes();
+        for (int i = digits.length; i < width; i++) {
+            out.write(' ');
+        }
+        out.write(digits);
+    }
+}
@@ -0,0 +1,118 @@
+package com.shell.coreutils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * wc [-lwc] [FILE...]
+ *
+ * Counts newlines, words and bytes in one pass over fixed-size chunks.
+ */
+final class Wc extends Utility {
+
+    Wc() {
+        super("wc", 1, "");
+    }
+
+    @Override
+    int run(List<String> args, Inputs in, OutputStream out, PrintStream err)
+            throws IOException, UsageException {
+        boolean lines = false;
+        boolean words = false;
+        boolean bytes = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (char c : arg.substring(1).toCharArray()) {
+                    switch (c) {
+                        case 'l': lines = true; break;
+                        case 'w': words = true; break;
+                        case 'c': bytes = true; break;
+                        default: throw new UsageException("invalid option -- '" + c + "'");
+                    }
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+        if (!lines && !words && !bytes) {
+            lines = words = bytes = true;
+        }
+
+        List<String> labels = new ArrayList<>();
+        List<long[]> counts = new ArrayList<>();
+        int status = in.forEach(files, (label, input) -> {
+            labels.add(label);
+            counts.add(count(input));
+        });
+        if (counts.size() > 1) {
+            long[] total = new long[3];
+            for (long[] c : counts) {
+                for (int k = 0; k < 3; k++) {
+                    total[k] += c[k];
+                }
+            }
+            labels.add("total");
+            counts.add(total);
+        }
+
+        boolean[] selected = {lines, words, bytes};
+        int columns = (lines ? 1 : 0) + (words ? 1 : 0) + (bytes ? 1 : 0);
+        int width = 1;
+        if (columns > 1 || counts.size() > 1) {
+            // like GNU wc: wide enough for the largest count, 7 when reading stdin
+            long max = 0;
+            for (long[] c : counts) {
+                max = Math.max(max, Math.max(c[0], Math.max(c[1], c[2])));
+            }
+            width = Math.max(Long.toString(max).length(), files.isEmpty() || files.contains("-") ? 7 : 1);
+        }
+
+        PrintStream printer = new PrintStream(buffered(out));
+        for (int i = 0; i < counts.size(); i++) {
+            StringBuilder line = new StringBuilder();
+            for (int k = 0; k < 3; k++) {
+                if (!selected[k]) {
+                    continue;
+                }
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                String n = Long.toString(counts.get(i)[k]);
+                line.append(" ".repeat(Math.max(0, width - n.length()))).append(n);
+            }
+            if (!files.isEmpty()) {
+                line.append(' ').append(labels.get(i));
+            }
+            printer.print(line.append('\n'));
+        }
+        printer.flush();
+        return status;
+    }
+
+    /** {lines, words, bytes} of the whole stream. */
+    private static long[] count(InputStream input) throws IOException {
+        byte[] buf = new byte[LineScanner.BUFFER_SIZE];
+        long lines = 0;
+        long words = 0;
+        long bytes = 0;
+        boolean inWord = false;
+        int n;
+        while ((n = input.read(buf)) != -1) {
+            bytes += n;
+            for (int i = 0; i < n; i++) {
+                byte b = buf[i];
+                if (b == '\n') {
+                    lines++;
+                }
+                boolean space = b == ' ' || (b >= '\t' && b <= '\r');
+                if (!space && !inWord) {
+                    words++;
+                }
+                inWord = !space;
+            }
+        }
+        return new long[]{lines, words, bytes};
+    }
+}
@@ -0,0 +1,176 @@
+package com.shell.daemon;
+
+import com.shell.Shell;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * j-shell through a running {@link ShellDaemon}: sends argv, the working directory and the
+ * environment, then copies the daemon's stdout and stderr frames to its own and exits with the
+ * status it is sent. Same usage as {@link Shell}.
+ *
+ * Loads nothing of the shell unless it has to run it itself: without arguments (a prompt needs
+ * the terminal) or when no daemon is listening, it falls back to {@link Shell#main}.
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            Shell.main(args);
+            return;
+        }
+        SocketChannel channel = connect(Protocol.defaultSocket());
+        if (channel == null) {
+            Shell.main(args);
+            return;
+        }
+        int status;
+        try {
+            status = run(channel, args, Paths.get(System.getProperty("user.dir")), System.getenv(),
+                    System.in, new FileOutputStream(FileDescriptor.out), new FileOutputStream(FileDescriptor.err));
+        } catch (IOException e) {
+            System.err.println("j-shell: daemon: " + e.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    /**
+     * A connection to the daemon, or null to run in this JVM instead: when no daemon is listening
+     * (or there is no Java 16), and when the socket's directory is not private to the user, which
+     * is also reported.
+     */
+    private static SocketChannel connect(Path socket) {
+        try {
+            Protocol.checkPrivate(socket.getParent());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("j-shell: daemon: " + e.getMessage() + "; not connecting");
+            return null;
+        }
+        try {
+            return UnixSockets.connect(socket);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs args in the daemon listening on socket.
+     *
+     * @return the status of the script or -c lines
+     * @throws IOException if no daemon is listening, the socket's directory is not private to the
+     *                     user, or the connection breaks
+     */
+    public static int run(Path socket, String[] args, Path workingDir, Map<String, String> environment,
+                          InputStream in, OutputStream out, OutputStream err) throws IOException {
+        Protocol.checkPrivate(socket.getParent());
+        return run(UnixSockets.connect(socket), args, workingDir, environment, in, out, err);
+    }
+
+    private static int run(SocketChannel channel, String[] args, Path workingDir, Map<String, String> environment,
+                           InputStream in, OutputStream out, OutputStream err) throws IOException {
+        try (SocketChannel c = channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(UnixSockets.out(c)));
+            request.writeInt(Protocol.MAGIC);
+            request.writeInt(args.length);
+            for (String arg : args) {
+                Protocol.writeString(request, arg);
+            }
+            Protocol.writeString(request, workingDir.toAbsolutePath().toString());
+            request.writeInt(environment.size());
+            for (Map.Entry<String, String> e : environment.entrySet()) {
+                Protocol.writeString(request, e.getKey());
+                Protocol.writeString(request, e.getValue());
+            }
+            request.flush();
+
+            DataInputStream frames = new DataInputStream(new BufferedInputStream(UnixSockets.in(c)));
+            byte[] buffer = new byte[Protocol.MAX_FRAME];
+            ExecutorService stdin = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "j-shell-client-stdin");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                while (true) {
+                    byte type;
+                    int n;
+                    try {
+                        type = frames.readByte();
+                        n = frames.readInt();
+                    } catch (EOFException e) {
+                        throw new IOException("connection closed before the command finished");
+                    }
+                    switch (type) {
+                        case Protocol.STDOUT:
+                        case Protocol.STDERR:
+                            if (n < 0 || n > buffer.length) {
+                                throw new IOException("bad frame length " + n);
+                            }
+                            frames.readFully(buffer, 0, n);
+                            OutputStream target = type == Protocol.STDOUT ? out : err;
+                            target.write(buffer, 0, n);
+                            target.flush();
+                            break;
+                        case Protocol.READ:
+                            int wanted = Math.max(1, Math.min(n, Protocol.MAX_FRAME));
+                            stdin.execute(() -> answer(request, in, wanted));
+                            break;
+                        case Protocol.EXIT:
+                            return n;
+                        default:
+                            throw new IOException("unknown frame " + type);
+                    }
+                }
+            } finally {
+                // A read still waiting for the terminal is abandoned; its thread does not hold the JVM
+                stdin.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Sends the daemon up to wanted bytes of stdin, or its end if there are none or stdin fails.
+     * Runs on a thread of its own, see {@link Protocol}.
+     */
+    private static void answer(DataOutputStream request, InputStream in, int wanted) {
+        byte[] buffer = new byte[wanted];
+        int read;
+        try {
+            read = in.read(buffer, 0, wanted);
+        } catch (IOException e) {
+            read = -1;
+        }
+        try {
+            request.writeByte(Protocol.INPUT);
+            request.writeInt(Math.max(read, 0));
+            if (read > 0) {
+                request.write(buffer, 0, read);
+            }
+            request.flush();
+        } catch (IOException e) {
+            // the connection is gone, which the frame loop reports
+        }
+    }
+}
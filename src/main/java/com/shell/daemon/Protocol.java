@@ -0,0 +1,111 @@
+package com.shell.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * What client and daemon say to each other over one connection.
+ *
+ * <pre>
+ * client  request  MAGIC, argc, argv..., cwd, envc, (name, value)...
+ * daemon  frames   type byte, int n, then n bytes for STDOUT, STDERR; no bytes for READ, EXIT
+ * client  INPUT    int n, n bytes of stdin, sent once for each READ; n = 0 at end of stdin
+ * </pre>
+ *
+ * Strings are an int length and that many bytes of UTF-8. The daemon asks for stdin only when a
+ * built-in reads it or an external command is blocked reading it, and for no more than was asked
+ * for, so a client on a terminal does not swallow input typed ahead for later. Without /proc to
+ * tell, it asks for as long as an external command runs. The client answers READ on a thread of its own: output and EXIT
+ * keep coming while stdin has nothing to say, and a READ may still be open at EXIT. EXIT carries
+ * the status and is the last frame.
+ */
+final class Protocol {
+
+    /** "JSH1": first int of every request, so a stray connection is told apart from a client. */
+    static final int MAGIC = 0x4a534831;
+
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte READ = 'R';
+    static final byte INPUT = 'I';
+    static final byte EXIT = 'X';
+
+    /** Largest payload of one frame; longer writes are split. */
+    static final int MAX_FRAME = 64 * 1024;
+
+    private Protocol() {
+    }
+
+    /**
+     * The socket set with {@code -Djshell.daemon.socket}, otherwise j-shell.sock in
+     * $XDG_RUNTIME_DIR, otherwise in a j-shell-$USER directory under java.io.tmpdir.
+     */
+    static Path defaultSocket() {
+        String configured = System.getProperty("jshell.daemon.socket");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isEmpty()) {
+            return Paths.get(runtime, "j-shell.sock");
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "j-shell-" + System.getProperty("user.name"),
+                "daemon.sock");
+    }
+
+    /**
+     * Fails unless dir is a directory of the current user, not a link, that only they can enter
+     * (mode 700). The socket in it runs commands as the daemon's user and clients send it their
+     * environment, so nobody else may be able to replace it or to have made the directory, which
+     * in a shared place like java.io.tmpdir anyone could. Nothing is checked on a file system
+     * without POSIX permissions.
+     *
+     * @throws java.nio.file.NoSuchFileException if dir does not exist
+     */
+    static void checkPrivate(Path dir) throws IOException {
+        PosixFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(dir, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        if (!attributes.isDirectory()) {
+            throw new IOException(dir + ": not a directory");
+        }
+        String user = System.getProperty("user.name");
+        if (!attributes.owner().getName().equals(user)) {
+            throw new IOException(dir + ": owned by " + attributes.owner().getName() + ", not by " + user);
+        }
+        Set<PosixFilePermission> permissions = attributes.permissions();
+        if (!permissions.equals(PosixFilePermissions.fromString("rwx------"))) {
+            throw new IOException(dir + ": mode is " + PosixFilePermissions.toString(permissions)
+                    + ", must be rwx------");
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 16 * 1024 * 1024) {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,385 @@
+package com.shell.daemon;
+
+import com.shell.ScriptRunner;
+import com.shell.ShellSession;
+import com.shell.path.PathIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long-lived j-shell that runs scripts and {@code -c} lines for {@link DaemonClient}s over a
+ * Unix domain socket, so a short command no longer pays for JVM startup and class loading.
+ *
+ * Every request gets a fresh {@link ShellSession} on its own thread, in the client's directory
+ * and environment, with stdout and stderr sent back as frames and stdin read from the client
+ * on demand, by built-ins and forwarded to external commands (see {@link Protocol}). Sessions share only what the JVM keeps warm: loaded and
+ * JIT-compiled code, the built-in registry, the parse cache when it is on, and a PATH index built
+ * once for the daemon's own PATH. If the client goes away, its session is interrupted.
+ *
+ * The socket is created in a directory only the user can enter, and made owner-only itself:
+ * whoever can connect can run commands as the daemon's user. A directory that already exists
+ * must be the user's own with mode 700, or the daemon does not start.
+ */
+public final class ShellDaemon implements Closeable {
+
+    // Same as the stdout buffer of script mode; flushed after every command
+    private static final int STDOUT_BUFFER = 64 * 1024;
+
+    private final Path socket;
+    private final PathIndex pathIndex;
+    private final AtomicInteger requests = new AtomicInteger();
+    private ServerSocketChannel server;
+    private Thread acceptor;
+
+    /**
+     * @param pathIndex index of the executables on PATH shared by every session, may be null
+     */
+    public ShellDaemon(Path socket, PathIndex pathIndex) {
+        this.socket = socket.toAbsolutePath();
+        this.pathIndex = pathIndex;
+    }
+
+    /** The socket set with {@code -Djshell.daemon.socket}, or j-shell.sock in $XDG_RUNTIME_DIR. */
+    public static Path defaultSocket() {
+        return Protocol.defaultSocket();
+    }
+
+    /**
+     * Listens on the socket and serves requests on background threads until {@link #close()}. A
+     * socket file left by a daemon that is gone is replaced.
+     *
+     * @throws IOException if another daemon is listening there, the socket's directory is not
+     *                     private to the user, or sockets are unavailable
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("already started");
+        }
+        Path dir = socket.getParent();
+        if (!Files.isDirectory(dir)) {
+            Files.createDirectories(dir);
+            restrict(dir, "rwx------");
+        }
+        Protocol.checkPrivate(dir);
+        if (Files.exists(socket)) {
+            if (isListening(socket)) {
+                throw new IOException(socket + ": a daemon is already listening");
+            }
+            Files.delete(socket);
+        }
+        server = UnixSockets.bind(socket);
+        restrict(socket, "rw-------");
+        acceptor = new Thread(this::accept, "j-shell-daemon");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static boolean isListening(Path socket) {
+        try {
+            UnixSockets.connect(socket).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void restrict(Path path, String permissions) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system: nothing finer to set
+        }
+    }
+
+    public Path socket() {
+        return socket;
+    }
+
+    /** Number of requests accepted so far. */
+    public int requests() {
+        return requests.get();
+    }
+
+    /** Waits until the daemon is closed. */
+    public void awaitClose() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = acceptor;
+        }
+        if (t != null) {
+            t.join();
+        }
+    }
+
+    /** Stops accepting and removes the socket; requests already running finish. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (server == null) {
+            return;
+        }
+        server.close();
+        server = null;
+        Files.deleteIfExists(socket);
+    }
+
+    private void accept() {
+        ServerSocketChannel s;
+        synchronized (this) {
+            s = server;
+        }
+        while (s != null && s.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = s.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("j-shell: daemon: " + e.getMessage());
+                continue;
+            }
+            Connection connection = new Connection(channel);
+            Thread t = new Thread(connection, "j-shell-daemon-" + requests.incrementAndGet());
+            t.setDaemon(true);
+            connection.thread = t;
+            t.start();
+        }
+    }
+
+    /** One client's request, from its argv to the EXIT frame. */
+    private final class Connection implements Runnable {
+        private final SocketChannel channel;
+        private final OutputStream raw;
+        private final DataInputStream input;
+        private volatile Thread thread;
+        private volatile boolean broken;
+        private PrintStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.raw = UnixSockets.out(channel);
+            this.input = new DataInputStream(new BufferedInputStream(UnixSockets.in(channel)));
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (input.readInt() != Protocol.MAGIC) {
+                    return;
+                }
+                int argc = input.readInt();
+                if (argc < 0 || argc > Protocol.MAX_FRAME) {
+                    return;
+                }
+                String[] args = new String[argc];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = Protocol.readString(input);
+                }
+                Path dir = Paths.get(Protocol.readString(input));
+                int count = input.readInt();
+                if (count < 0 || count > Protocol.MAX_FRAME) {
+                    return;
+                }
+                Map<String, String> environment = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    environment.put(Protocol.readString(input), Protocol.readString(input));
+                }
+                int status;
+                try {
+                    status = execute(args, dir, environment);
+                } catch (RuntimeException e) {
+                    status = failed(e);
+                }
+                send(Protocol.EXIT, status, null, 0, 0);
+            } catch (IOException e) {
+                // the client went away; nobody is left to tell
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // already gone
+                }
+            }
+        }
+
+        /**
+         * Reports a session that failed with an unexpected exception, to the client on stderr and
+         * with its stack trace on the daemon's, so that the client still ends with a status.
+         *
+         * @return the status to exit with
+         */
+        private int failed(RuntimeException e) {
+            System.err.println("j-shell: daemon: " + Thread.currentThread().getName() + " failed:");
+            e.printStackTrace();
+            if (out != null) {
+                out.flush();
+            }
+            new PrintStream(new FrameOutputStream(Protocol.STDERR), true).println("j-shell: internal error: " + e);
+            return 1;
+        }
+
+        /** Shell's script and -c modes, on this connection's streams. */
+        private int execute(String[] args, Path dir, Map<String, String> environment) {
+            out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(Protocol.STDOUT), STDOUT_BUFFER),
+                    false);
+            PrintStream err = new PrintStream(new FrameOutputStream(Protocol.STDERR), true);
+            String name;
+            Reader script;
+            if (args.length == 0) {
+                err.println("j-shell: daemon: a prompt needs the terminal; run j-shell directly");
+                return 2;
+            } else if (args[0].equals("-c")) {
+                if (args.length < 2) {
+                    err.println("j-shell: -c: option requires an argument");
+                    return 2;
+                }
+                name = "j-shell";
+                script = new StringReader(args[1]);
+            } else if (args[0].startsWith("-")) {
+                err.println("j-shell: " + args[0] + ": invalid option");
+                return 2;
+            } else {
+                name = args[0];
+                try {
+                    script = Files.newBufferedReader(dir.resolve(name));
+                } catch (IOException | InvalidPathException e) {
+                    err.println("j-shell: " + name + ": cannot open: " + e.getMessage());
+                    return 127;
+                }
+            }
+            ShellSession session = new ShellSession(dir, environment, new RemoteInput(), out, err, pathIndex);
+            session.setForwardInput(true);
+            try {
+                return new ScriptRunner(session, out, err).run(name, script);
+            } finally {
+                session.close();
+                out.flush();
+            }
+        }
+
+        /**
+         * Sends one frame. Any thread of the session may write, so frames are sent whole under
+         * the connection's lock. A failed send means the client is gone: the session is
+         * interrupted, which stops the script and its pipelines.
+         */
+        private synchronized void send(byte type, int n, byte[] b, int off, int len) throws IOException {
+            if (broken) {
+                throw new IOException("client disconnected");
+            }
+            byte[] header = {type, (byte) (n >>> 24), (byte) (n >>> 16), (byte) (n >>> 8), (byte) n};
+            try {
+                raw.write(header, 0, header.length);
+                if (len > 0) {
+                    raw.write(b, off, len);
+                }
+            } catch (IOException e) {
+                broken = true;
+                Thread t = thread;
+                if (t != null && t != Thread.currentThread()) {
+                    t.interrupt();
+                }
+                throw e;
+            }
+        }
+
+        /** Bytes written to it go to the client as frames of one type. */
+        private final class FrameOutputStream extends OutputStream {
+            private final byte type;
+
+            FrameOutputStream(byte type) {
+                this.type = type;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, Protocol.MAX_FRAME);
+                    send(type, n, b, off, n);
+                    off += n;
+                    len -= n;
+                }
+            }
+        }
+
+        /** The client's stdin, asked for a buffer at a time when a command reads. */
+        private final class RemoteInput extends InputStream {
+            private boolean eof;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (eof) {
+                    return -1;
+                }
+                // Whatever the script printed so far may be what the reader is answering
+                if (out != null) {
+                    out.flush();
+                }
+                send(Protocol.READ, Math.min(len, Protocol.MAX_FRAME), null, 0, 0);
+                if (input.readByte() != Protocol.INPUT) {
+                    throw new IOException("expected stdin from the client");
+                }
+                int n = input.readInt();
+                if (n <= 0) {
+                    eof = true;
+                    return -1;
+                }
+                if (n > len) {
+                    throw new IOException("client sent more stdin than asked for");
+                }
+                input.readFully(b, off, n);
+                return n;
+            }
+        }
+    }
+
+    /** {@code j-shell --daemon [socket]}: serves until the JVM is stopped. */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path socket = args.length > 0 ? Paths.get(args[0]) : defaultSocket();
+        PathIndex pathIndex = new PathIndex(System.getenv("PATH"), PathIndex.defaultSnapshotFile());
+        pathIndex.start();
+        ShellDaemon daemon = new ShellDaemon(socket, pathIndex);
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                // exiting anyway
+            }
+        }, "j-shell-daemon-shutdown"));
+        System.err.println("j-shell: daemon listening on " + daemon.socket());
+        daemon.awaitClose();
+    }
+}
@@ -0,0 +1,142 @@
+package com.shell.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Unix domain socket channels, which need Java 16. The shell is built for Java 11, so the
+ * Java 16 API is looked up reflectively; on an older JVM {@link #isSupported()} is false and every
+ * open fails with an IOException.
+ *
+ * The streams here call the channel directly: the ones from {@code Channels} take the channel's
+ * blocking lock, so a thread blocked reading would stall every writer on the same connection.
+ */
+final class UnixSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_OF;
+    private static final Method OPEN_SERVER;
+    private static final Method OPEN_CLIENT;
+
+    static {
+        ProtocolFamily family = null;
+        Method of = null;
+        Method server = null;
+        Method client = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            of = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            server = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            client = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            family = null;
+        }
+        UNIX = family;
+        ADDRESS_OF = of;
+        OPEN_SERVER = server;
+        OPEN_CLIENT = client;
+    }
+
+    private UnixSockets() {
+    }
+
+    /** True if this JVM has Unix domain socket channels (Java 16 and later). */
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /** A server channel bound to socket, which must not exist yet. */
+    static ServerSocketChannel bind(Path socket) throws IOException {
+        ServerSocketChannel server = (ServerSocketChannel) invoke(OPEN_SERVER, UNIX);
+        try {
+            server.bind(address(socket));
+            return server;
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    /** A channel connected to the server listening on socket. */
+    static SocketChannel connect(Path socket) throws IOException {
+        SocketChannel channel = (SocketChannel) invoke(OPEN_CLIENT, UNIX);
+        try {
+            channel.connect(address(socket));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static SocketAddress address(Path socket) throws IOException {
+        return (SocketAddress) invoke(ADDRESS_OF, socket);
+    }
+
+    private static Object invoke(Method method, Object... args) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unix domain sockets need Java 16 or later");
+        }
+        try {
+            return method.invoke(null, args);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /** Reads from a blocking channel; -1 at the peer's end of stream. */
+    static InputStream in(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    /** Writes all of every buffer to a blocking channel. */
+    static OutputStream out(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,191 @@
+package com.shell.exec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU of files a session keeps open for {@code >>}, so a script appending to the same log
+ * line after line opens it once instead of once per command.
+ *
+ * Entries are keyed by absolute path. Before an entry is reused the path is checked to still name
+ * the file that was opened (same file key, i.e. device and inode): a log that was deleted or
+ * renamed away is reopened, so the next line goes to the file now at that path. Truncating the
+ * file with {@code >} needs no reopen, since every write goes to the current end of the file, but
+ * the shell {@link #invalidate invalidates} the path anyway when it truncates it.
+ *
+ * Each entry buffers what one command writes; the caller flushes it (closing the stream flushes
+ * too) when the command returns, so other processes see every line as soon as its command is done.
+ * {@link #close()} releases every handle; the cache can be used again afterwards.
+ */
+public final class AppendFileCache implements AutoCloseable {
+
+    /** Number of open files kept by default, {@code -Djshell.appendCache}; 0 turns the cache off. */
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("jshell.appendCache", 16);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final int capacity;
+    private final Map<Path, Entry> entries;
+    private long opens;
+
+    /**
+     * @param capacity maximum number of files kept open, at least 1
+     */
+    public AppendFileCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /** A cache of {@link #DEFAULT_CAPACITY} files, or null when the cache is turned off. */
+    public static AppendFileCache createDefault() {
+        return DEFAULT_CAPACITY > 0 ? new AppendFileCache(DEFAULT_CAPACITY) : null;
+    }
+
+    /**
+     * A stream appending to file, creating it if needed. Closing the stream flushes it and leaves
+     * the file open for the next command.
+     */
+    public synchronized OutputStream open(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            if (entry.isCurrent(path)) {
+                return entry.stream;
+            }
+            entries.remove(path);
+            entry.close();
+        }
+        entry = new Entry(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND));
+        opens++;
+        try {
+            entry.fileKey = fileKey(path);
+        } catch (IOException e) {
+            entry.closeQuietly();
+            throw e;
+        }
+        entries.put(path, entry);
+        evict();
+        return entry.stream;
+    }
+
+    /** The channel kept open on file, or null if it is not open. */
+    public synchronized FileChannel channel(File file) {
+        Entry entry = entries.get(file.toPath().toAbsolutePath().normalize());
+        return entry != null ? entry.channel : null;
+    }
+
+    /**
+     * Closes the file at this path if it is open, e.g. because the shell is about to truncate or
+     * replace it.
+     */
+    public synchronized void invalidate(File file) {
+        Entry entry = entries.remove(file.toPath().toAbsolutePath().normalize());
+        if (entry != null) {
+            entry.closeQuietly();
+        }
+    }
+
+    /** Flushes and closes every open file. */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (Entry entry : entries.values()) {
+            try {
+                entry.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        entries.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Number of times a file was actually opened. */
+    public synchronized long opens() {
+        return opens;
+    }
+
+    /** The open files, least recently used first. */
+    synchronized List<Path> paths() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            eldest.closeQuietly();
+        }
+    }
+
+    /** The identity of the file at path, null on platforms without file keys. */
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+
+    private static final class Entry {
+        final FileChannel channel;
+        final ChannelOutputStream stream;
+        Object fileKey;
+
+        Entry(FileChannel channel) {
+            this.channel = channel;
+            this.stream = new ChannelOutputStream(channel, BUFFER_SIZE);
+        }
+
+        /** True while path still names the file this entry has open. */
+        boolean isCurrent(Path path) {
+            if (!channel.isOpen()) {
+                return false;
+            }
+            try {
+                return fileKey == null || Objects.equals(fileKey, fileKey(path));
+            } catch (IOException e) {
+                return false; // deleted or renamed away
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                stream.flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                // nothing left to flush it to
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-JVM pipe between two in-process pipeline stages, backed by a fixed-size ring buffer.
+ *
+ * Unlike PipedInputStream it does not track which thread writes, so it works with pooled and
+ * virtual pump threads. Closing the sink gives the reader EOF once the buffer is drained;
+ * closing the source makes further writes fail with "Broken pipe", like a kernel pipe.
+ */
+final class BoundedPipe {
+
+    static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int count;
+    private boolean writerClosed;
+    private boolean readerClosed;
+
+    private final InputStream source = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return BoundedPipe.this.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    };
+
+    private final OutputStream sink = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            BoundedPipe.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    };
+
+    BoundedPipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    BoundedPipe(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /** The reading end, handed to the downstream stage. */
+    InputStream source() {
+        return source;
+    }
+
+    /** The writing end, handed to the upstream stage. */
+    OutputStream sink() {
+        return sink;
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (count == 0 && !writerClosed && !readerClosed) {
+                await(notEmpty);
+            }
+            if (readerClosed) {
+                throw new IOException("Pipe closed");
+            }
+            if (count == 0) {
+                return -1;
+            }
+            int n = Math.min(len, count);
+            int first = Math.min(n, buffer.length - head);
+            System.arraycopy(buffer, head, b, off, first);
+            System.arraycopy(buffer, 0, b, off + first, n - first);
+            head = (head + n) % buffer.length;
+            count -= n;
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while (len > 0) {
+                while (count == buffer.length && !readerClosed && !writerClosed) {
+                    await(notFull);
+                }
+                if (readerClosed) {
+                    throw new IOException("Broken pipe");
+                }
+                if (writerClosed) {
+                    throw new IOException("Stream closed");
+                }
+                int tail = (head + count) % buffer.length;
+                int n = Math.min(len, buffer.length - count);
+                int first = Math.min(n, buffer.length - tail);
+                System.arraycopy(b, off, buffer, tail, first);
+                System.arraycopy(b, off + first, buffer, 0, n - first);
+                count += n;
+                off += n;
+                len -= n;
+                notEmpty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Condition condition) throws InterruptedIOException {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("pipe interrupted");
+        }
+    }
+
+    void closeWriter() {
+        lock.lock();
+        try {
+            writerClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void closeReader() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            count = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
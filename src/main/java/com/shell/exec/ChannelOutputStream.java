@@ -0,0 +1,107 @@
+package com.shell.exec;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffers writes in one reusable direct ByteBuffer and writes it to a channel only on
+ * {@link #flush()}, when it is full, or for writes larger than the buffer. For a shell's stdout
+ * and stderr, so built-ins writing many small pieces cost no system call, lock or flush each.
+ *
+ * Not thread-safe: one stream has one writer at a time, e.g. the session thread running a
+ * built-in. Closing flushes but leaves the channel open, since it is usually a standard stream.
+ */
+public final class ChannelOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private PrintStream printer;
+
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /** A stream on a file descriptor such as FileDescriptor.out, which is never closed. */
+    public static ChannelOutputStream of(FileDescriptor fd) {
+        return new ChannelOutputStream(new FileOutputStream(fd).getChannel(), DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            flush();
+            // Already a whole buffer's worth, e.g. from a BufferedOutputStream: no copy
+            if (len >= buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+                return;
+            }
+        }
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            try {
+                writeFully(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * A text view of this stream, created once and reused, so printing does not set up a new
+     * encoder and its buffers every time. Everything printed is in this stream's buffer as soon as
+     * the print call returns; flushing the printer (also done by checkError) leaves it there, and
+     * only flushing this stream writes it to the channel.
+     */
+    public PrintStream printer() {
+        if (printer == null) {
+            printer = new PrintStream(this, false) {
+                @Override
+                public void flush() {
+                    // PrintStream hands every print straight to this stream; nothing to push here
+                }
+            };
+        }
+        return printer;
+    }
+
+    /**
+     * The underlying channel, after flushing what is buffered, for callers that move bytes
+     * with FileChannel.transferTo.
+     */
+    public WritableByteChannel channel() throws IOException {
+        flush();
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+}
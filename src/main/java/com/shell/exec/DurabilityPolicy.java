@@ -0,0 +1,216 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the files commands write through {@code >} and {@code >>} are forced to disk.
+ *
+ * <pre>
+ * none         left to the OS (the default)
+ * per-command  fdatasync'd before the command's status is returned
+ * group        batched: every file written since the last commit is fdatasync'd once, after
+ *              {@code groupMillis} or as soon as {@code groupBytes} have been written
+ * </pre>
+ *
+ * In group mode a command returns before its output is durable; the window is at most
+ * groupMillis plus one fsync. One policy can be shared by any number of sessions, so appends from
+ * all of them are committed together. {@link #sync()} commits what is pending right away.
+ */
+public final class DurabilityPolicy {
+
+    public enum Mode {
+        NONE, PER_COMMAND, GROUP;
+
+        /** Parses none, per-command or group. */
+        public static Mode of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    public static final long DEFAULT_GROUP_MILLIS = 10;
+    public static final long DEFAULT_GROUP_BYTES = 1024 * 1024;
+
+    /** Leaves every write to the OS. */
+    public static final DurabilityPolicy NONE = new DurabilityPolicy(Mode.NONE, 0, 0);
+
+    private static final DurabilityPolicy SHARED = fromProperties();
+
+    private final Mode mode;
+    private final long groupMillis;
+    private final long groupBytes;
+
+    // Group mode: files written since the last commit, and how much
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private long pendingBytes;
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param groupMillis how long group mode waits for more writes before committing
+     * @param groupBytes how many bytes written make group mode commit at once
+     */
+    public DurabilityPolicy(Mode mode, long groupMillis, long groupBytes) {
+        if (mode == Mode.GROUP && (groupMillis < 1 || groupBytes < 1)) {
+            throw new IllegalArgumentException("group commit needs a positive interval and byte threshold");
+        }
+        this.mode = mode;
+        this.groupMillis = groupMillis;
+        this.groupBytes = groupBytes;
+    }
+
+    /**
+     * The policy set with {@code -Djshell.durability=none|per-command|group},
+     * {@code -Djshell.durability.groupMillis} and {@code -Djshell.durability.groupBytes}.
+     */
+    public static DurabilityPolicy shared() {
+        return SHARED;
+    }
+
+    private static DurabilityPolicy fromProperties() {
+        String value = System.getProperty("jshell.durability");
+        if (value == null) {
+            return NONE;
+        }
+        try {
+            Mode mode = Mode.of(value);
+            return mode == Mode.NONE ? NONE : new DurabilityPolicy(mode,
+                    Long.getLong("jshell.durability.groupMillis", DEFAULT_GROUP_MILLIS),
+                    Long.getLong("jshell.durability.groupBytes", DEFAULT_GROUP_BYTES));
+        } catch (IllegalArgumentException e) {
+            System.err.println("jshell.durability: " + e.getMessage() + ": " + value);
+            return NONE;
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** True unless writes are left to the OS; only then do callers need to report them. */
+    public boolean isEnabled() {
+        return mode != Mode.NONE;
+    }
+
+    /**
+     * Reports that a command has finished writing file. In per-command mode the file is on disk
+     * when this returns; in group mode it is committed with the next batch, by this caller if the
+     * batch is full.
+     *
+     * @param bytes how much the command wrote, for the group byte threshold
+     * @param channel an open channel on the file to force, or null to open one
+     * @throws IOException if the file could not be forced to disk
+     */
+    public void written(Path file, long bytes, FileChannel channel) throws IOException {
+        switch (mode) {
+            case PER_COMMAND:
+                if (channel != null && channel.isOpen()) {
+                    channel.force(false);
+                } else {
+                    force(file);
+                }
+                break;
+            case GROUP:
+                boolean full;
+                synchronized (this) {
+                    pending.add(file);
+                    pendingBytes += Math.max(bytes, 0);
+                    full = pendingBytes >= groupBytes;
+                    if (!full && timer == null) {
+                        timer = Committer.EXECUTOR.schedule(this::commitInBackground, groupMillis,
+                                TimeUnit.MILLISECONDS);
+                    }
+                }
+                if (full) {
+                    sync();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Forces every file written since the last commit to disk now. */
+    public void sync() throws IOException {
+        Path[] batch;
+        synchronized (this) {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            batch = pending.toArray(new Path[0]);
+            pending.clear();
+            pendingBytes = 0;
+        }
+        // Outside the lock, so commands keep filling the next batch meanwhile
+        IOException failure = null;
+        for (Path file : batch) {
+            try {
+                force(file);
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Number of files waiting for the next group commit. */
+    synchronized int pending() {
+        return pending.size();
+    }
+
+    private void commitInBackground() {
+        synchronized (this) {
+            timer = null;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("j-shell: group commit: " + e.getMessage());
+        }
+    }
+
+    /** fdatasync on a fresh descriptor, which flushes the file no matter who wrote it. */
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        } catch (NoSuchFileException e) {
+            // removed since it was written: nothing left to make durable
+        }
+    }
+
+    /** Size of file, 0 if there is none, for callers measuring what a command wrote. */
+    public static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.GROUP ? "group (" + groupMillis + " ms, " + groupBytes + " bytes)"
+                : mode.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private static final class Committer {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "j-shell-group-commit");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
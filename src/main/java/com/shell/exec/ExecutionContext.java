@@ -0,0 +1,120 @@
+package com.shell.exec;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Where and with what a pipeline runs: working directory, environment, standard streams and
+ * how command names are found. Immutable, so one context can be shared by concurrent pipelines.
+ *
+ * Streams that are the JVM's own System.in/out/err are handed to children directly (INHERIT);
+ * any other stream is fed by a pump, which lets many embedded sessions share one JVM.
+ */
+public final class ExecutionContext {
+
+    private final Path workingDir;
+    private final Map<String, String> environment;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final UnaryOperator<String> resolver;
+    private final LatencyStats stats;
+
+    /**
+     * @param environment the children's complete environment, or null to inherit the JVM's
+     * @param resolver maps a command name to the executable to start, e.g. a PATH lookup
+     */
+    public ExecutionContext(Path workingDir, Map<String, String> environment, InputStream in, PrintStream out,
+                            PrintStream err, UnaryOperator<String> resolver) {
+        this(workingDir, environment == null ? null : Map.copyOf(environment), in, out, err, resolver,
+                LatencyStats.DISABLED);
+    }
+
+    private ExecutionContext(Path workingDir, Map<String, String> environment, InputStream in, PrintStream out,
+                             PrintStream err, UnaryOperator<String> resolver, LatencyStats stats) {
+        this.workingDir = workingDir;
+        this.environment = environment;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.resolver = resolver;
+        this.stats = stats;
+    }
+
+    /** This context, with pipelines recording where their time goes into stats. */
+    public ExecutionContext withStats(LatencyStats stats) {
+        return new ExecutionContext(workingDir, environment, in, out, err, resolver, stats);
+    }
+
+    /** The JVM's own environment and streams; command names are left to the OS. */
+    public static ExecutionContext inherit(Path workingDir) {
+        return new ExecutionContext(workingDir, null, System.in, System.out, System.err, UnaryOperator.identity());
+    }
+
+    public Path workingDir() {
+        return workingDir;
+    }
+
+    /** The complete environment for children, or null to inherit the JVM's. */
+    public Map<String, String> environment() {
+        return environment;
+    }
+
+    public InputStream in() {
+        return in;
+    }
+
+    public PrintStream out() {
+        return out;
+    }
+
+    public PrintStream err() {
+        return err;
+    }
+
+    /** Where pipelines record their phases; {@link LatencyStats#DISABLED} unless set. */
+    public LatencyStats stats() {
+        return stats;
+    }
+
+    /** The executable to start for a command name, never null. */
+    public String resolve(String command) {
+        String resolved = resolver.apply(command);
+        return resolved != null ? resolved : command;
+    }
+
+    /** True if children can use the JVM's stdin directly. */
+    public boolean inheritsIn() {
+        return in == System.in;
+    }
+
+    /** True if children can write to the JVM's stdout directly. */
+    public boolean inheritsOut() {
+        return out == System.out;
+    }
+
+    /** True if children can write to the JVM's stderr directly. */
+    public boolean inheritsErr() {
+        return err == System.err;
+    }
+
+    /** Applies directory and environment to a child about to be started. */
+    public void configure(ProcessBuilder pb) {
+        if (workingDir != null) {
+            pb.directory(workingDir.toFile());
+        }
+        configureEnvironment(pb);
+    }
+
+    /** Applies the environment to a child about to be started. */
+    public void configureEnvironment(ProcessBuilder pb) {
+        if (environment != null) {
+            Map<String, String> env = pb.environment();
+            env.clear();
+            env.putAll(environment);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.shell.exec;
+
+import com.shell.parser.BackgroundCommand;
+import com.shell.parser.Command;
+import com.shell.parser.PipelineCommand;
+import com.shell.parser.RedirectionCommand;
+import com.shell.parser.TimedCommand;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A Command compiled for one working directory: every stage with its executable already looked
+ * up, its argv ready for ProcessBuilder and its redirections ready as files and
+ * ProcessBuilder.Redirect objects. Immutable, so a plan can be run any number of times, from
+ * any thread, without deriving any of it again.
+ *
+ * A plan is a snapshot: it keeps the executables and built-ins that were found when it was
+ * compiled, and relative paths stay relative to the directory it was compiled for.
+ */
+public final class ExecutionPlan {
+
+    private final Path workingDir;
+    private final List<Stage> stages;
+    private final boolean background;
+    private final boolean timed;
+
+    private ExecutionPlan(Path workingDir, List<Stage> stages, boolean background, boolean timed) {
+        this.workingDir = workingDir;
+        this.stages = stages;
+        this.background = background;
+        this.timed = timed;
+    }
+
+    /**
+     * @param resolver maps a command name to its executable path, or null if there is none
+     * @param inProcess true for names that run as built-ins rather than as a child process
+     */
+    public static ExecutionPlan compile(Command command, Path workingDir, UnaryOperator<String> resolver,
+                                        Predicate<String> inProcess) {
+        boolean background = command instanceof BackgroundCommand;
+        if (background) {
+            command = ((BackgroundCommand) command).getCommand();
+        }
+        boolean timed = command instanceof TimedCommand;
+        if (timed) {
+            command = ((TimedCommand) command).getCommand();
+        }
+        List<Command> commands = command instanceof PipelineCommand
+                ? ((PipelineCommand) command).getCommands() : Collections.singletonList(command);
+        ExecutionPlan plan = compile(commands, workingDir, resolver, inProcess);
+        return background || timed ? new ExecutionPlan(plan.workingDir, plan.stages, background, timed) : plan;
+    }
+
+    /**
+     * Compiles the stages of a pipeline, see {@link #compile(Command, Path, UnaryOperator, Predicate)}.
+     */
+    public static ExecutionPlan compile(List<Command> commands, Path workingDir, UnaryOperator<String> resolver,
+                                        Predicate<String> inProcess) {
+        if (commands == null || commands.isEmpty()) {
+            throw new IllegalArgumentException("empty pipeline");
+        }
+        List<Stage> stages = new ArrayList<>(commands.size());
+        for (Command cmd : commands) {
+            String name = cmd.getExecutable();
+            boolean builtin = inProcess.test(name);
+            stages.add(new Stage(cmd, builtin ? null : resolver.apply(name), builtin, workingDir));
+        }
+        return new ExecutionPlan(workingDir, Collections.unmodifiableList(stages), false, false);
+    }
+
+    /** The directory relative names were resolved against, and where the plan runs. */
+    public Path workingDir() {
+        return workingDir;
+    }
+
+    /** True for a line ending with {@code &}, which runs as a job. */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /** True for a line starting with {@code time}, whose cost is reported when it finishes. */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public List<Stage> stages() {
+        return stages;
+    }
+
+    public int size() {
+        return stages.size();
+    }
+
+    public Stage stage(int i) {
+        return stages.get(i);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionPlan{workingDir=" + workingDir + ", stages=" + stages
+                + (background ? ", background" : "") + (timed ? ", timed" : "") + '}';
+    }
+
+    /** One command of the plan. */
+    public static final class Stage {
+        private final String name;
+        private final List<String> args;
+        private final String executable;
+        private final List<String> argv;
+        private final boolean builtin;
+        private final File inFile;
+        private final File outFile;
+        private final File errFile;
+        private final boolean append;
+        private final ProcessBuilder.Redirect input;
+        private final ProcessBuilder.Redirect output;
+        private final ProcessBuilder.Redirect error;
+
+        private Stage(Command cmd, String executable, boolean builtin, Path workingDir) {
+            this.name = cmd.getExecutable();
+            this.args = cmd.getArgs() != null ? cmd.getArgs() : List.of();
+            this.executable = executable;
+            this.builtin = builtin;
+
+            String[] command = new String[1 + args.size()];
+            command[0] = executable != null ? executable : name;
+            for (int i = 0; i < args.size(); i++) {
+                command[i + 1] = args.get(i);
+            }
+            this.argv = List.of(command);
+
+            RedirectionCommand rc = cmd instanceof RedirectionCommand ? (RedirectionCommand) cmd : null;
+            this.inFile = rc != null ? resolve(workingDir, rc.getStdInFile()) : null;
+            this.outFile = rc != null ? resolve(workingDir, rc.getStdOutFile()) : null;
+            this.errFile = rc != null ? resolve(workingDir, rc.getStdErrorFile()) : null;
+            this.append = rc != null && rc.isAppend();
+            this.input = inFile != null ? ProcessBuilder.Redirect.from(inFile) : null;
+            this.output = outFile == null ? null
+                    : append ? ProcessBuilder.Redirect.appendTo(outFile) : ProcessBuilder.Redirect.to(outFile);
+            this.error = errFile != null ? ProcessBuilder.Redirect.to(errFile) : null;
+        }
+
+        private static File resolve(Path workingDir, String fileName) {
+            if (fileName == null) {
+                return null;
+            }
+            return workingDir != null ? workingDir.resolve(fileName).toFile() : new File(fileName);
+        }
+
+        /** The command name as written. */
+        public String name() {
+            return name;
+        }
+
+        public List<String> args() {
+            return args;
+        }
+
+        /** The name and args as one line, for reports. */
+        public String words() {
+            return args.isEmpty() ? name : name + ' ' + String.join(" ", args);
+        }
+
+        /** Absolute path of the executable, null for built-ins and commands that were not found. */
+        public String executable() {
+            return executable;
+        }
+
+        /** The child's command line, unmodifiable: the executable (or the name if not found) and args. */
+        public List<String> argv() {
+            return argv;
+        }
+
+        public boolean isBuiltin() {
+            return builtin;
+        }
+
+        public boolean isRedirected() {
+            return inFile != null || outFile != null || errFile != null;
+        }
+
+        /** The {@code <} file, or null. */
+        public File inFile() {
+            return inFile;
+        }
+
+        /** The {@code >}/{@code >>} file, or null. */
+        public File outFile() {
+            return outFile;
+        }
+
+        /** The {@code 2>} file, or null. */
+        public File errFile() {
+            return errFile;
+        }
+
+        public boolean isAppend() {
+            return append;
+        }
+
+        /** {@link #inFile()} as a Redirect, or null. */
+        public ProcessBuilder.Redirect input() {
+            return input;
+        }
+
+        /** {@link #outFile()} as a Redirect honouring append, or null. */
+        public ProcessBuilder.Redirect output() {
+            return output;
+        }
+
+        /** {@link #errFile()} as a Redirect, or null. */
+        public ProcessBuilder.Redirect error() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return (builtin ? "builtin " : "") + argv
+                    + (inFile != null ? " < " + inFile : "")
+                    + (outFile != null ? (append ? " >> " : " > ") + outFile : "")
+                    + (errFile != null ? " 2> " + errFile : "");
+        }
+    }
+}
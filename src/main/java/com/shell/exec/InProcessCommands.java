@@ -0,0 +1,38 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Commands that run inside the JVM instead of being forked, i.e. the shell's built-ins.
+ * {@link PipelineExecutor} runs them as pipeline stages on the pump executor, wired to their
+ * neighbours' streams.
+ */
+public interface InProcessCommands {
+
+    /** No in-process commands: every pipeline stage is forked. */
+    InProcessCommands NONE = new InProcessCommands() {
+        @Override
+        public boolean isInProcess(String executable) {
+            return false;
+        }
+
+        @Override
+        public int run(String executable, List<String> args, InputStream in, OutputStream out, OutputStream err) {
+            throw new IllegalArgumentException(executable + ": not an in-process command");
+        }
+    };
+
+    boolean isInProcess(String executable);
+
+    /**
+     * Runs the command to completion. The streams are owned by the caller and must not be closed.
+     *
+     * @return exit status
+     * @throws IOException typically a broken pipe when the next stage stopped reading
+     */
+    int run(String executable, List<String> args, InputStream in, OutputStream out, OutputStream err)
+            throws IOException;
+}
@@ -0,0 +1,109 @@
+package com.shell.exec;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in log-linear buckets, as HdrHistogram does: exact below 64 ns, then 32 buckets
+ * per power of two, so every bucket is within 1/32 (3%) of the values in it. Durations from 0 to
+ * 2^40 ns (18 minutes) have their own bucket; longer ones share the last.
+ *
+ * Recording is a few atomic adds into a fixed array: it allocates nothing and takes no lock, so
+ * it can sit on the path of every command and be shared by sessions on any number of threads.
+ * Reading while others record sees each count as of some moment, not one snapshot of all.
+ */
+public final class LatencyHistogram {
+
+    // Each power of two above LINEAR is split into HALF buckets
+    private static final int HALF_BITS = 5;
+    private static final int HALF = 1 << HALF_BITS;
+    private static final int LINEAR = 2 * HALF;
+    static final long MAX_TRACKED = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_TRACKED) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Records one duration; negative ones count as 0. */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(Math.min(value, MAX_TRACKED)));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        for (long current = max.get(); value > current && !max.compareAndSet(current, value); ) {
+            current = max.get();
+        }
+    }
+
+    static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BITS;
+        return HALF * shift + (int) (value >>> shift);
+    }
+
+    /** The largest value that falls into bucket i. */
+    static long highestInBucket(int i) {
+        if (i < LINEAR) {
+            return i;
+        }
+        int shift = i / HALF - 1;
+        long mantissa = i - (long) HALF * shift;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /** Mean of the recorded durations, 0 if there are none. */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * The duration that percentile of the recorded ones do not exceed, within the 3% of its bucket
+     * and never above {@link #max()}; 0 if nothing was recorded.
+     *
+     * @param percentile 0 to 100
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The last bucket also holds everything beyond MAX_TRACKED
+                return i == BUCKETS - 1 ? max.get() : Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Forgets everything recorded. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,135 @@
+package com.shell.exec;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Where the time of commands goes, as one {@link LatencyHistogram} per phase and, for each
+ * executable, one per phase it went through:
+ *
+ * <ul>
+ *   <li>parse: turning a line into a Command</li>
+ *   <li>resolve: finding a command name's executable</li>
+ *   <li>spawn: starting a child, up to ProcessBuilder.start returning; for a run of stages
+ *       started together, each gets an equal share of the startPipeline call</li>
+ *   <li>run: from the child's start until the JDK has seen it exit, or the whole of a built-in</li>
+ *   <li>reap: from that exit until the shell has the status and all the output</li>
+ * </ul>
+ *
+ * Recording allocates nothing once an executable has been seen. Executables beyond the first
+ * {@value #MAX_EXECUTABLES} are counted together as {@value #OTHER}.
+ *
+ * All sessions of a JVM share {@link #shared()} unless told otherwise, so a daemon accumulates
+ * the statistics of every client; {@code -Djshell.stats=false} turns recording off.
+ */
+public final class LatencyStats {
+
+    public enum Phase {
+        PARSE, RESOLVE, SPAWN, RUN, REAP;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /** Records nothing. */
+    public static final LatencyStats DISABLED = new LatencyStats(false);
+
+    static final int MAX_EXECUTABLES = 256;
+    static final String OTHER = "(other)";
+
+    private static final LatencyStats SHARED = Boolean.parseBoolean(System.getProperty("jshell.stats", "true"))
+            ? new LatencyStats() : DISABLED;
+
+    private final boolean enabled;
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+    private final Map<String, AtomicReferenceArray<LatencyHistogram>> executables = new ConcurrentHashMap<>();
+
+    public LatencyStats() {
+        this(true);
+    }
+
+    private LatencyStats(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /** The statistics sessions record into by default. */
+    public static LatencyStats shared() {
+        return SHARED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records one duration of a phase.
+     *
+     * @param executable the command name it belongs to, or null for the phase alone
+     */
+    public void record(Phase phase, String executable, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        phases[phase.ordinal()].record(nanos);
+        if (executable != null) {
+            histogram(executable, phase).record(nanos);
+        }
+    }
+
+    private LatencyHistogram histogram(String executable, Phase phase) {
+        AtomicReferenceArray<LatencyHistogram> row = executables.get(executable);
+        if (row == null) {
+            String key = executables.size() < MAX_EXECUTABLES ? executable : OTHER;
+            row = executables.computeIfAbsent(key, k -> new AtomicReferenceArray<>(PHASES.length));
+        }
+        LatencyHistogram histogram = row.get(phase.ordinal());
+        if (histogram == null) {
+            row.compareAndSet(phase.ordinal(), null, new LatencyHistogram());
+            histogram = row.get(phase.ordinal());
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram phase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * The histograms of each executable seen, by name, of the phases it went through.
+     */
+    public Map<String, Map<Phase, LatencyHistogram>> byExecutable() {
+        Map<String, Map<Phase, LatencyHistogram>> result = new TreeMap<>();
+        executables.forEach((name, row) -> {
+            Map<Phase, LatencyHistogram> phasesOf = new EnumMap<>(Phase.class);
+            for (Phase phase : PHASES) {
+                LatencyHistogram histogram = row.get(phase.ordinal());
+                if (histogram != null && histogram.count() > 0) {
+                    phasesOf.put(phase, histogram);
+                }
+            }
+            if (!phasesOf.isEmpty()) {
+                result.put(name, phasesOf);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** Forgets everything recorded, the executables seen included. */
+    public void reset() {
+        for (LatencyHistogram histogram : phases) {
+            histogram.reset();
+        }
+        executables.clear();
+    }
+}
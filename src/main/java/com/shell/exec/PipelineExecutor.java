@@ -0,0 +1,495 @@
+package com.shell.exec;
+
+import com.shell.parser.Command;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Executes pipelines (cmd1 | cmd2 | ...).
+ *
+ * Consecutive external stages are started together with {@link ProcessBuilder#startPipeline},
+ * so the kernel moves data directly from one child to the next. Built-ins run inside the JVM on
+ * the pump executor and are wired straight to their neighbours' streams: a child's stdout or
+ * stdin when the neighbour is external, a {@link BoundedPipe} when both are built-ins. The JVM
+ * never copies bytes between two external stages.
+ */
+public class PipelineExecutor {
+
+    private PipelineExecutor() {
+    }
+
+    /**
+     * Execute a pipeline forking every stage.
+     *
+     * @see #execute(List, Path, InProcessCommands)
+     */
+    public static int execute(List<Command> commands, Path workingDir) {
+        return execute(commands, workingDir, InProcessCommands.NONE);
+    }
+
+    /**
+     * Execute a pipeline in the JVM's own environment and streams.
+     *
+     * @see #execute(List, ExecutionContext, InProcessCommands)
+     */
+    public static int execute(List<Command> commands, Path workingDir, InProcessCommands builtins) {
+        return execute(commands, ExecutionContext.inherit(workingDir), builtins);
+    }
+
+    /**
+     * Execute a pipeline with proper redirection support for each command.
+     * Input redirection is honoured on the first stage, output and error redirection on the last.
+     *
+     * @param builtins commands to run in-process instead of forking
+     * @return exit code of the last stage, or -1 if the pipeline could not be started
+     */
+    public static int execute(List<Command> commands, ExecutionContext ctx, InProcessCommands builtins) {
+        return execute(ExecutionPlan.compile(commands, ctx.workingDir(), ctx::resolve, builtins::isInProcess),
+                ctx, builtins);
+    }
+
+    /**
+     * Executes a compiled pipeline. The plan's working directory and executables are used as they
+     * are; the context provides the environment and the streams.
+     *
+     * @param builtins runs the plan's built-in stages
+     * @return exit code of the last stage, or -1 if the pipeline could not be started
+     */
+    public static int execute(ExecutionPlan plan, ExecutionContext ctx, InProcessCommands builtins) {
+        return execute(plan, ctx, builtins, null);
+    }
+
+    /**
+     * Executes a compiled pipeline and measures what each stage cost.
+     *
+     * @param usage if not null, receives one {@link ResourceUsage} per stage, in pipeline order,
+     *              once they have all finished; see {@link ResourceMeter} for what is measured
+     * @return exit code of the last stage, or -1 if the pipeline could not be started
+     */
+    public static int execute(ExecutionPlan plan, ExecutionContext ctx, InProcessCommands builtins,
+                              List<ResourceUsage> usage) {
+        try (PumpGroup pumps = new PumpGroup(ctx.err())) {
+            Stage[] stages;
+            try {
+                stages = startStages(plan, ctx, builtins, pumps, usage != null);
+            } catch (IOException e) {
+                ctx.err().println("Error starting process: " + e.getMessage());
+                return -1;
+            }
+            int exitCode = waitForAll(stages, ctx);
+            try {
+                pumps.awaitAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recordRunAndReap(plan, stages, ctx.stats());
+            if (usage != null) {
+                for (int i = 0; i < stages.length; i++) {
+                    usage.add(stages[i].usage(plan.stage(i).words()));
+                }
+            }
+            return exitCode;
+        }
+    }
+
+    /**
+     * Records how long each stage ran and how long it took from the last exit until the output
+     * was drained, the pipeline's reap, under its last command.
+     */
+    private static void recordRunAndReap(ExecutionPlan plan, Stage[] stages, LatencyStats stats) {
+        if (!stats.isEnabled()) {
+            return;
+        }
+        long done = System.nanoTime();
+        long lastExit = 0;
+        for (int i = 0; i < stages.length; i++) {
+            Stage stage = stages[i];
+            if (stage.exitNanos == 0) {
+                // Never started or interrupted
+                return;
+            }
+            stats.record(LatencyStats.Phase.RUN, plan.stage(i).name(), stage.exitNanos - stage.startNanos);
+            lastExit = i == 0 ? stage.exitNanos : Math.max(lastExit, stage.exitNanos);
+        }
+        stats.record(LatencyStats.Phase.REAP, plan.stage(stages.length - 1).name(), done - lastExit);
+    }
+
+    /**
+     * Starts a compiled pipeline without waiting for it, e.g. for a background job. Its end is
+     * observed through {@link Running#onExit()}, completed by the stages' own exit callbacks.
+     * Pumps feeding the context's streams finish on their own once the stages are gone.
+     *
+     * @throws IOException if a stage could not be started; the stages already running are destroyed
+     */
+    public static Running start(ExecutionPlan plan, ExecutionContext ctx, InProcessCommands builtins)
+            throws IOException {
+        PumpGroup pumps = new PumpGroup(ctx.err());
+        return new Running(startStages(plan, ctx, builtins, pumps, false), pumps);
+    }
+
+    /**
+     * Starts every stage and wires up termination propagation.
+     *
+     * @param metered whether to measure each stage's cost
+     * @throws IOException if a stage could not be started; everything started is destroyed
+     */
+    private static Stage[] startStages(ExecutionPlan plan, ExecutionContext ctx, InProcessCommands builtins,
+                                       PumpGroup pumps, boolean metered) throws IOException {
+        Stage[] stages = new Stage[plan.size()];
+        try {
+            startExternalRuns(plan, ctx, stages, pumps, metered);
+            startBuiltins(plan, ctx, builtins, stages, pumps, metered);
+        } catch (IOException e) {
+            destroyAll(stages);
+            pumps.cancel();
+            throw e;
+        }
+        propagateTermination(stages);
+        return stages;
+    }
+
+    /**
+     * Starts every maximal run of consecutive external stages with one startPipeline call.
+     */
+    private static void startExternalRuns(ExecutionPlan plan, ExecutionContext ctx, Stage[] stages,
+                                          PumpGroup pumps, boolean metered) throws IOException {
+        int n = plan.size();
+        int i = 0;
+        while (i < n) {
+            if (plan.stage(i).isBuiltin()) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end + 1 < n && !plan.stage(end + 1).isBuiltin()) {
+                end++;
+            }
+
+            List<ProcessBuilder> builders = new ArrayList<>(end - i + 1);
+            for (int k = i; k <= end; k++) {
+                builders.add(buildStage(plan, k, ctx));
+            }
+            long spawn = System.nanoTime();
+            List<Process> processes = ProcessBuilder.startPipeline(builders);
+            long started = System.nanoTime();
+            // One call started them all: each gets its share
+            long share = (started - spawn) / (end - i + 1);
+            for (int k = i; k <= end; k++) {
+                ctx.stats().record(LatencyStats.Phase.SPAWN, plan.stage(k).name(), share);
+                Process process = processes.get(k - i);
+                stages[k] = new ProcessStage(process, started, metered ? ResourceMeter.of(process, spawn) : null);
+                // Streams that are not the JVM's own are fed by pumps instead of INHERIT
+                if (!ctx.inheritsErr()) {
+                    pumps.pump(process.getErrorStream(), new NonClosingOutputStream(ctx.err()));
+                }
+                if (k == n - 1 && !ctx.inheritsOut() && plan.stage(k).outFile() == null) {
+                    pumps.pump(process.getInputStream(), new NonClosingOutputStream(ctx.out()));
+                }
+            }
+
+            // First command with no input redirection: close stdin to prevent hanging
+            if (i == 0 && plan.stage(0).inFile() == null) {
+                closeQuietly(processes.get(0).getOutputStream());
+            }
+            i = end + 1;
+        }
+    }
+
+    /**
+     * Starts each built-in stage on the pump executor, connected to the stages around it.
+     */
+    private static void startBuiltins(ExecutionPlan plan, ExecutionContext ctx, InProcessCommands builtins,
+                                      Stage[] stages, PumpGroup pumps, boolean metered) throws IOException {
+        int n = plan.size();
+        InputStream fromPreviousBuiltin = null;
+        for (int i = 0; i < n; i++) {
+            ExecutionPlan.Stage planned = plan.stage(i);
+            if (stages[i] != null) {
+                continue;
+            }
+
+            BuiltinStage stage = new BuiltinStage();
+            stages[i] = stage;
+            try {
+                stage.in = i == 0 ? firstInput(planned)
+                        : stages[i - 1] instanceof ProcessStage ? ((ProcessStage) stages[i - 1]).process.getInputStream()
+                        : fromPreviousBuiltin;
+                if (i == n - 1) {
+                    stage.out = lastOutput(planned, ctx);
+                    stage.err = lastError(planned);
+                } else if (plan.stage(i + 1).isBuiltin()) {
+                    BoundedPipe pipe = new BoundedPipe();
+                    stage.out = pipe.sink();
+                    fromPreviousBuiltin = pipe.source();
+                } else {
+                    stage.out = ((ProcessStage) stages[i + 1]).process.getOutputStream();
+                }
+            } catch (IOException e) {
+                // e.g. `< missing.txt`: this stage fails, the rest of the pipeline still runs
+                ctx.err().println(planned.name() + ": " + e.getMessage());
+                if (stage.out == null && i + 1 < n) {
+                    // The next stage reads nothing from it, and must see the end of its input
+                    if (plan.stage(i + 1).isBuiltin()) {
+                        fromPreviousBuiltin = InputStream.nullInputStream();
+                    } else {
+                        closeQuietly(((ProcessStage) stages[i + 1]).process.getOutputStream());
+                    }
+                }
+                stage.finish(1);
+                continue;
+            }
+            if (stage.err == null) {
+                stage.err = new NonClosingOutputStream(ctx.err());
+            }
+            pumps.submit(() -> {
+                stage.startNanos = System.nanoTime();
+                ResourceMeter meter = metered ? ResourceMeter.ofCurrentThread() : null;
+                int status = 1;
+                try {
+                    status = builtins.run(planned.name(), planned.args(), stage.in, stage.out, stage.err);
+                } catch (IOException e) {
+                    if (!PumpGroup.isBrokenPipe(e)) {
+                        new PrintStream(stage.err, true).println(planned.name() + ": " + e.getMessage());
+                    }
+                } finally {
+                    if (meter != null) {
+                        stage.usage = meter.finish(planned.words());
+                    }
+                    stage.finish(status);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Builds the ProcessBuilder for one stage. Stage boundaries are left as PIPE so that
+     * startPipeline can connect them; only the pipeline ends get file or inherited streams.
+     */
+    private static ProcessBuilder buildStage(ExecutionPlan plan, int i, ExecutionContext ctx) {
+        ExecutionPlan.Stage stage = plan.stage(i);
+        ProcessBuilder pb = new ProcessBuilder(stage.argv());
+        if (plan.workingDir() != null) {
+            pb.directory(plan.workingDir().toFile());
+        }
+        ctx.configureEnvironment(pb);
+        if (ctx.inheritsErr()) {
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        }
+
+        // Handle input redirection for first command
+        if (i == 0 && stage.input() != null) {
+            pb.redirectInput(stage.input());
+        }
+
+        if (i == plan.size() - 1) {
+            // Last command writes straight to the shell's stdout unless redirected
+            if (stage.output() != null) {
+                pb.redirectOutput(stage.output());
+            } else if (ctx.inheritsOut()) {
+                pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            }
+            if (stage.error() != null) {
+                pb.redirectError(stage.error());
+            }
+        }
+        return pb;
+    }
+
+    /** stdin of a built-in first stage: the `<` file, or nothing (EOF) like a forked first stage. */
+    private static InputStream firstInput(ExecutionPlan.Stage stage) throws IOException {
+        if (stage.inFile() != null) {
+            return new FileInputStream(stage.inFile());
+        }
+        return InputStream.nullInputStream();
+    }
+
+    /** stdout of a built-in last stage: the `>`/`>>` file, or the shell's stdout. */
+    private static OutputStream lastOutput(ExecutionPlan.Stage stage, ExecutionContext ctx) throws IOException {
+        if (stage.outFile() != null) {
+            return new BufferedOutputStream(new FileOutputStream(stage.outFile(), stage.isAppend()));
+        }
+        return new NonClosingOutputStream(ctx.out());
+    }
+
+    /** stderr of a built-in last stage: the `2>` file, or null for the shell's stderr. */
+    private static OutputStream lastError(ExecutionPlan.Stage stage) throws IOException {
+        if (stage.errFile() != null) {
+            return new FileOutputStream(stage.errFile());
+        }
+        return null;
+    }
+
+    /**
+     * SIGPIPE-like behaviour: once a stage exits nothing can consume what the stages before it
+     * produce, so those are destroyed together with their process trees. This stops producers
+     * that ignore SIGPIPE or are blocked on something other than a write (e.g. {@code sleep 60 | true}),
+     * and guarantees the final wait cannot hang on an orphaned upstream stage.
+     */
+    private static void propagateTermination(Stage[] stages) {
+        for (int i = 1; i < stages.length; i++) {
+            final int stage = i;
+            stages[i].exit.thenRun(() -> {
+                for (int j = 0; j < stage; j++) {
+                    stages[j].destroy();
+                }
+            });
+        }
+    }
+
+    private static void destroyAll(Stage[] stages) {
+        for (Stage s : stages) {
+            if (s != null) {
+                s.destroy();
+            }
+        }
+    }
+
+    private static int waitForAll(Stage[] stages, ExecutionContext ctx) {
+        int exitCode = -1;
+        for (Stage s : stages) {
+            try {
+                exitCode = s.exit.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ctx.err().println("Pipeline interrupted");
+                destroyAll(stages);
+                return -1;
+            } catch (ExecutionException e) {
+                exitCode = -1;
+            }
+        }
+        return exitCode;
+    }
+
+    private static void closeQuietly(Closeable c) {
+        if (c == null) {
+            return;
+        }
+        try {
+            c.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    /** A pipeline started with {@link #start}. */
+    public static final class Running {
+        private final Stage[] stages;
+        private final PumpGroup pumps;
+        private final CompletableFuture<Integer> exit;
+
+        private Running(Stage[] stages, PumpGroup pumps) {
+            this.stages = stages;
+            this.pumps = pumps;
+            CompletableFuture<?>[] exits = new CompletableFuture<?>[stages.length];
+            for (int i = 0; i < stages.length; i++) {
+                exits[i] = stages[i].exit;
+            }
+            this.exit = CompletableFuture.allOf(exits).thenApply(done -> stages[stages.length - 1].exit.join());
+        }
+
+        /** Completes with the last stage's status once every stage has finished. */
+        public CompletableFuture<Integer> onExit() {
+            return exit;
+        }
+
+        /** The child processes of the external stages, in pipeline order. */
+        public List<ProcessHandle> processes() {
+            List<ProcessHandle> handles = new ArrayList<>(stages.length);
+            for (Stage s : stages) {
+                if (s instanceof ProcessStage) {
+                    handles.add(((ProcessStage) s).process.toHandle());
+                }
+            }
+            return handles;
+        }
+
+        /** Terminates every stage with its process tree; see {@link ProcessTrees#destroy}. */
+        public void destroy() {
+            destroyAll(stages);
+            pumps.cancel();
+        }
+    }
+
+    /** One stage of a running pipeline. */
+    private abstract static class Stage {
+        final CompletableFuture<Integer> exit = new CompletableFuture<>();
+        // When it started and, once exit is complete, when it ended; 0 if it never did
+        volatile long startNanos;
+        volatile long exitNanos;
+
+        abstract void destroy();
+
+        /** What the finished stage cost, if it was started metered. */
+        abstract ResourceUsage usage(String command);
+    }
+
+    private static final class ProcessStage extends Stage {
+        final Process process;
+        final ResourceMeter meter;
+
+        ProcessStage(Process process, long startNanos, ResourceMeter meter) {
+            this.process = process;
+            this.meter = meter;
+            this.startNanos = startNanos;
+            process.onExit().thenAccept(p -> {
+                exitNanos = System.nanoTime();
+                exit.complete(p.exitValue());
+            });
+        }
+
+        @Override
+        void destroy() {
+            ProcessTrees.destroy(process.toHandle());
+        }
+
+        @Override
+        ResourceUsage usage(String command) {
+            return meter.finish(command);
+        }
+    }
+
+    private static final class BuiltinStage extends Stage {
+        volatile InputStream in;
+        volatile OutputStream out;
+        volatile OutputStream err;
+        volatile ResourceUsage usage;
+
+        /** Closes the stage's ends so its neighbours see EOF / a broken pipe, then records the status. */
+        void finish(int status) {
+            closeQuietly(out);
+            closeQuietly(in);
+            if (err != null) {
+                try {
+                    err.flush();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+            if (startNanos != 0) {
+                exitNanos = System.nanoTime();
+            }
+            exit.complete(status);
+        }
+
+        @Override
+        void destroy() {
+            // Unblocks the built-in: its next read or write fails and it finishes
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+
+        @Override
+        ResourceUsage usage(String command) {
+            // Null if it never ran, e.g. its `<` file could not be opened
+            return usage != null ? usage : new ResourceUsage(command, 0, 0, 0, ResourceUsage.UNKNOWN,
+                    ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN);
+        }
+    }
+}
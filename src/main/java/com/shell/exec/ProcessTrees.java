@@ -0,0 +1,40 @@
+package com.shell.exec;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for terminating a process together with everything it spawned.
+ */
+public final class ProcessTrees {
+
+    /** How long a process tree gets to exit after SIGTERM before it is killed forcibly. */
+    static final long GRACE_MILLIS = 500;
+
+    private ProcessTrees() {
+    }
+
+    /**
+     * Sends SIGTERM to the process and all of its descendants, then SIGKILL to whatever is
+     * still alive after {@link #GRACE_MILLIS}. Returns immediately.
+     */
+    public static void destroy(ProcessHandle process) {
+        if (!process.isAlive()) {
+            return;
+        }
+        // Snapshot the tree first: once the parent dies its children are re-parented
+        List<ProcessHandle> tree = process.descendants().collect(Collectors.toList());
+        tree.add(process);
+        tree.forEach(ProcessHandle::destroy);
+
+        CompletableFuture.delayedExecutor(GRACE_MILLIS, TimeUnit.MILLISECONDS).execute(() -> {
+            for (ProcessHandle h : tree) {
+                if (h.isAlive()) {
+                    h.destroyForcibly();
+                }
+            }
+        });
+    }
+}
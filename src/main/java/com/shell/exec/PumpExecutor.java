@@ -0,0 +1,131 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor that runs every pipeline I/O pump in the JVM.
+ *
+ * On Java 21+ each pump gets its own virtual thread, so hundreds of concurrent pipelines cost
+ * no platform threads while they block in read/write. On older runtimes, or with
+ * {@code -Djshell.pump.virtual=false}, pumps run on a bounded pool of named daemon threads
+ * ({@code -Djshell.pump.threads}, default 256); a pipeline that cannot get a thread fails
+ * instead of queueing behind others, since a queued pump would stall its whole pipeline.
+ */
+public final class PumpExecutor {
+
+    static final String THREAD_PREFIX = "j-shell-pump-";
+
+    private PumpExecutor() {
+    }
+
+    /** Shared executor, created on first use. */
+    public static ExecutorService shared() {
+        return Holder.EXECUTOR;
+    }
+
+    /** Whether pumps run on virtual threads in this JVM. */
+    public static boolean usesVirtualThreads() {
+        return Holder.VIRTUAL;
+    }
+
+    /**
+     * Copies a stream the caller keeps into a child's stdin as the child reads it, until the
+     * stream ends, which closes the child's stdin, or the child is gone.
+     *
+     * Where /proc tells (see {@link StdinReaders}), the stream is read only while the child, or a
+     * process it started on the same stdin, is blocked reading it, and for no more than it asked
+     * for: a command that never reads stdin takes nothing from it, and what a command left unread
+     * stays for the next one. Elsewhere the stream is copied as it arrives, and whatever was read
+     * for a child that exited without wanting it is lost, as with any pumped stdin.
+     *
+     * Unlike a {@link PumpGroup} pump this is not waited for, since the stream need not end when
+     * the child does, and never interrupted, since that would close an interruptible channel for
+     * good; the stream is not closed either.
+     */
+    public static void forward(InputStream in, Process child) {
+        OutputStream stdin = child.getOutputStream();
+        StdinReaders readers = StdinReaders.of(child);
+        try {
+            shared().execute(() -> {
+                byte[] buffer = new byte[8192];
+                try (OutputStream to = stdin) {
+                    while (true) {
+                        int wanted = readers != null ? readers.awaitRead() : buffer.length;
+                        if (wanted < 0 || !child.isAlive()) {
+                            break;
+                        }
+                        int n = in.read(buffer, 0, Math.min(wanted, buffer.length));
+                        if (n < 0) {
+                            break;
+                        }
+                        to.write(buffer, 0, n);
+                        to.flush();
+                        if (readers != null) {
+                            readers.handedOver();
+                        }
+                    }
+                } catch (IOException e) {
+                    // the child stopped reading, or the stream failed: its input ends either way
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // No thread to pump with: the child sees an empty stdin
+            try {
+                stdin.close();
+            } catch (IOException ex) {
+                // already gone
+            }
+        }
+    }
+
+    private static final class Holder {
+        static final boolean VIRTUAL;
+        static final ExecutorService EXECUTOR;
+
+        static {
+            ExecutorService virtual = Boolean.parseBoolean(System.getProperty("jshell.pump.virtual", "true"))
+                    ? virtualThreadExecutor() : null;
+            VIRTUAL = virtual != null;
+            EXECUTOR = virtual != null ? virtual : boundedPool(Integer.getInteger("jshell.pump.threads", 256));
+        }
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()), looked up
+     * reflectively so the shell still compiles and runs on the Java 11 baseline.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, THREAD_PREFIX, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = java.util.concurrent.Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Pre-21 runtime, or virtual threads disabled as a preview feature
+            return null;
+        }
+    }
+
+    private static ExecutorService boundedPool(int maxThreads) {
+        AtomicLong counter = new AtomicLong();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, THREAD_PREFIX + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(0, maxThreads, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), factory);
+    }
+}
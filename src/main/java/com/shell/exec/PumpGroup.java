@@ -0,0 +1,141 @@
+package com.shell.exec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The pumps belonging to one pipeline. Every pump is submitted to {@link PumpExecutor}, tracked
+ * here, joined by {@link #awaitAll()} and cancelled together by {@link #cancel()}.
+ *
+ * A pump whose destination goes away (the downstream stage exited) is the normal end of a
+ * {@code producer | head} pipeline, not an error: the pump closes its source so the producer
+ * sees a broken pipe too, and nothing is reported.
+ */
+public final class PumpGroup implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final PrintStream err;
+    private final List<Future<?>> pumps = new ArrayList<>();
+    private final List<Closeable> endpoints = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * @param err where failed pumps are reported: the pipeline's stderr
+     */
+    public PumpGroup(PrintStream err) {
+        this(PumpExecutor.shared(), err);
+    }
+
+    PumpGroup(ExecutorService executor, PrintStream err) {
+        this.executor = executor;
+        this.err = err;
+    }
+
+    /**
+     * Copies src into dest on the pump executor until src ends, then closes both.
+     *
+     * @throws IOException if no pump thread is available
+     */
+    public synchronized void pump(InputStream src, OutputStream dest) throws IOException {
+        endpoints.add(src);
+        endpoints.add(dest);
+        submit(() -> {
+            try (InputStream in = src; OutputStream out = dest) {
+                in.transferTo(out);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs an arbitrary pipeline task on the pump executor, tracked like a pump.
+     *
+     * @throws IOException if no pump thread is available
+     */
+    public synchronized <T> Future<T> submit(Callable<T> task) throws IOException {
+        if (cancelled) {
+            throw new IOException("pipeline cancelled");
+        }
+        try {
+            Future<T> f = executor.submit(task);
+            pumps.add(f);
+            return f;
+        } catch (RejectedExecutionException e) {
+            throw new IOException("too many concurrent pipelines: no pump thread available");
+        }
+    }
+
+    /**
+     * Waits for every pump to finish. Failures other than a vanished reader are reported on the
+     * group's stderr.
+     */
+    public void awaitAll() throws InterruptedException {
+        List<Future<?>> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(pumps);
+        }
+        for (Future<?> f : snapshot) {
+            try {
+                f.get();
+            } catch (CancellationException e) {
+                // cancelled together with its pipeline
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (!cancelled && !isBrokenPipe(cause)) {
+                    err.println("pipeline: " + cause.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes every stream the pumps use, which unblocks them, and cancels the pumps.
+     */
+    public void cancel() {
+        List<Closeable> toClose;
+        List<Future<?>> toCancel;
+        synchronized (this) {
+            cancelled = true;
+            toClose = new ArrayList<>(endpoints);
+            toCancel = new ArrayList<>(pumps);
+        }
+        for (Closeable c : toClose) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+        for (Future<?> f : toCancel) {
+            f.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * True for the errors a pump sees when the other end of a pipe is gone.
+     */
+    public static boolean isBrokenPipe(Throwable t) {
+        if (!(t instanceof IOException)) {
+            return false;
+        }
+        String msg = t.getMessage();
+        // "Broken pipe" from a process stdin, "Stream closed"/"Pipe closed" from JDK streams
+        return msg != null && (msg.contains("Broken pipe") || msg.contains("closed"));
+    }
+}
@@ -0,0 +1,214 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what one child process or one built-in costs, from its start until {@link #finish}.
+ *
+ * A child's counters live in /proc/&lt;pid&gt;/{stat,io,status} only until it is reaped, and the
+ * JDK reaps every child as soon as it exits, with no hook in between. So they are sampled right
+ * after the start and then every {@code -Djshell.time.sampleMillis} (default 10) while it runs:
+ * CPU, bytes and VmHWM only grow, and the last sample misses at most one interval at the end. A
+ * process that lives for less than one interval may show less than it used. Without /proc only
+ * total CPU is known, from {@link ProcessHandle.Info}.
+ *
+ * A built-in is measured on the thread that runs it: its CPU is that thread's, its memory and
+ * I/O are the JVM's and stay unknown.
+ */
+public final class ResourceMeter {
+
+    private static final long SAMPLE_MILLIS = Math.max(1, Long.getLong("jshell.time.sampleMillis", 10));
+
+    // USER_HZ, the unit of the times in /proc/<pid>/stat; 100 on every Linux the JDK supports
+    private static final long NANOS_PER_TICK = 10_000_000L;
+
+    private final ProcessHandle process;
+    private final long startNanos;
+    private final ScheduledFuture<?> sampling;
+    private volatile long exitNanos;
+    private volatile Sample last = Sample.NONE;
+
+    // Built-ins: the measured thread's CPU at the start
+    private final long threadUserStart;
+    private final long threadCpuStart;
+
+    private ResourceMeter(ProcessHandle process, long startNanos) {
+        this.process = process;
+        this.startNanos = startNanos;
+        this.threadUserStart = 0;
+        this.threadCpuStart = 0;
+        sample();
+        this.sampling = Sampler.EXECUTOR.scheduleAtFixedRate(this::sample, SAMPLE_MILLIS, SAMPLE_MILLIS,
+                TimeUnit.MILLISECONDS);
+        process.onExit().thenRun(() -> exitNanos = System.nanoTime());
+    }
+
+    private ResourceMeter(long threadUserStart, long threadCpuStart) {
+        this.process = null;
+        this.startNanos = System.nanoTime();
+        this.sampling = null;
+        this.threadUserStart = threadUserStart;
+        this.threadCpuStart = threadCpuStart;
+    }
+
+    /**
+     * Starts measuring a child that was just started.
+     *
+     * @param startNanos {@link System#nanoTime()} from before the child was spawned, so its wall
+     *                   time includes the spawn as the time of a built-in includes its start
+     */
+    public static ResourceMeter of(Process process, long startNanos) {
+        return new ResourceMeter(process.toHandle(), startNanos);
+    }
+
+    /** Starts measuring the calling thread, which is about to run a built-in. */
+    public static ResourceMeter ofCurrentThread() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported()
+                ? new ResourceMeter(threads.getCurrentThreadUserTime(), threads.getCurrentThreadCpuTime())
+                : new ResourceMeter(ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN);
+    }
+
+    /**
+     * User and system CPU of every child the JVM has reaped so far, the children they waited for
+     * included, as {@code {user, system}} nanos; null without /proc. The difference across a run
+     * that nothing else forks during is exactly what that run's children used, also those too
+     * short to be sampled, but only to the kernel's 10 ms ticks.
+     */
+    public static long[] reapedChildrenCpu() {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc/self/stat")), StandardCharsets.US_ASCII);
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            // cutime and cstime
+            return new long[]{Long.parseLong(fields[13]) * NANOS_PER_TICK,
+                    Long.parseLong(fields[14]) * NANOS_PER_TICK};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stops measuring. For a child, call once it has exited; for a built-in, on the thread that
+     * ran it, right after it returned.
+     *
+     * @param command what was measured, for reports
+     */
+    public ResourceUsage finish(String command) {
+        if (process == null) {
+            return finishThread(command);
+        }
+        sampling.cancel(false);
+        // Usually gone by now; a zombie not yet reaped still has its final counters
+        sample();
+        long end = exitNanos != 0 ? exitNanos : System.nanoTime();
+        Sample s = last;
+        return new ResourceUsage(command, end - startNanos, s.userNanos, s.systemNanos, s.peakRssBytes,
+                s.readBytes, s.writeBytes);
+    }
+
+    private ResourceUsage finishThread(String command) {
+        long wall = System.nanoTime() - startNanos;
+        if (threadCpuStart == ResourceUsage.UNKNOWN) {
+            return new ResourceUsage(command, wall, ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN,
+                    ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long user = threads.getCurrentThreadUserTime() - threadUserStart;
+        long cpu = threads.getCurrentThreadCpuTime() - threadCpuStart;
+        return new ResourceUsage(command, wall, user, Math.max(cpu - user, 0), ResourceUsage.UNKNOWN,
+                ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN);
+    }
+
+    private void sample() {
+        Sample s = Sample.read(process);
+        if (s != null) {
+            last = s;
+        }
+    }
+
+    /** The counters of one moment. */
+    private static final class Sample {
+        static final Sample NONE = new Sample(0, 0, ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN,
+                ResourceUsage.UNKNOWN);
+
+        final long userNanos;
+        final long systemNanos;
+        final long peakRssBytes;
+        final long readBytes;
+        final long writeBytes;
+
+        Sample(long userNanos, long systemNanos, long peakRssBytes, long readBytes, long writeBytes) {
+            this.userNanos = userNanos;
+            this.systemNanos = systemNanos;
+            this.peakRssBytes = peakRssBytes;
+            this.readBytes = readBytes;
+            this.writeBytes = writeBytes;
+        }
+
+        /** The process's counters, or null if it is gone. */
+        static Sample read(ProcessHandle process) {
+            Path proc = Paths.get("/proc", Long.toString(process.pid()));
+            String stat;
+            try {
+                stat = new String(Files.readAllBytes(proc.resolve("stat")), StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                return Files.isDirectory(Paths.get("/proc/self")) ? null : fromInfo(process);
+            }
+            // Fields after "pid (comm) ", counted from state = 0; comm may itself hold spaces and ')'
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            if (fields.length < 15) {
+                return null;
+            }
+            long user = (Long.parseLong(fields[11]) + Long.parseLong(fields[13])) * NANOS_PER_TICK;
+            long system = (Long.parseLong(fields[12]) + Long.parseLong(fields[14])) * NANOS_PER_TICK;
+            long rss = ResourceUsage.UNKNOWN;
+            long read = ResourceUsage.UNKNOWN;
+            long write = ResourceUsage.UNKNOWN;
+            try {
+                for (String line : Files.readAllLines(proc.resolve("status"), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmHWM:")) {
+                        // "VmHWM:\t    1234 kB"
+                        rss = Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+                        break;
+                    }
+                }
+                for (String line : Files.readAllLines(proc.resolve("io"), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("rchar:")) {
+                        read = Long.parseLong(line.substring(6).trim());
+                    } else if (line.startsWith("wchar:")) {
+                        write = Long.parseLong(line.substring(6).trim());
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // exited between the reads, or io is not readable: keep what was read
+            }
+            return new Sample(user, system, rss, read, write);
+        }
+
+        /** Total CPU only, counted as user time: all ProcessHandle.Info knows. */
+        private static Sample fromInfo(ProcessHandle process) {
+            return process.info().totalCpuDuration()
+                    .map(cpu -> new Sample(cpu.toNanos(), 0, ResourceUsage.UNKNOWN, ResourceUsage.UNKNOWN,
+                            ResourceUsage.UNKNOWN))
+                    .orElse(null);
+        }
+    }
+
+    private static final class Sampler {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "j-shell-resource-meter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,136 @@
+package com.shell.exec;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What one command or pipeline stage cost: wall time, user and system CPU, peak resident set
+ * size and bytes read and written. CPU includes the children a process waited for, as in
+ * {@code time}. Bytes count every read and write call, pipes and terminals included, so in a
+ * pipeline they show how much passed through each stage.
+ *
+ * Values that could not be measured are {@link #UNKNOWN}: memory and I/O of built-ins, which
+ * share the JVM's, and everything but total CPU where there is no /proc.
+ */
+public final class ResourceUsage {
+
+    public static final long UNKNOWN = -1;
+
+    private final String command;
+    private final long wallNanos;
+    private final long userNanos;
+    private final long systemNanos;
+    private final long peakRssBytes;
+    private final long readBytes;
+    private final long writeBytes;
+
+    /**
+     * @param command what was measured, for reports
+     */
+    public ResourceUsage(String command, long wallNanos, long userNanos, long systemNanos, long peakRssBytes,
+                         long readBytes, long writeBytes) {
+        this.command = command;
+        this.wallNanos = wallNanos;
+        this.userNanos = userNanos;
+        this.systemNanos = systemNanos;
+        this.peakRssBytes = peakRssBytes;
+        this.readBytes = readBytes;
+        this.writeBytes = writeBytes;
+    }
+
+    /**
+     * The cost of a pipeline: its own wall time, CPU and bytes summed over the stages, and the
+     * largest peak of any one stage (the stages' memory is not all in use at the same moment).
+     */
+    public static ResourceUsage total(String command, long wallNanos, List<ResourceUsage> stages) {
+        long user = UNKNOWN;
+        long system = UNKNOWN;
+        long rss = UNKNOWN;
+        long read = UNKNOWN;
+        long write = UNKNOWN;
+        for (ResourceUsage s : stages) {
+            user = sum(user, s.userNanos);
+            system = sum(system, s.systemNanos);
+            rss = Math.max(rss, s.peakRssBytes);
+            read = sum(read, s.readBytes);
+            write = sum(write, s.writeBytes);
+        }
+        return new ResourceUsage(command, wallNanos, user, system, rss, read, write);
+    }
+
+    private static long sum(long a, long b) {
+        return a == UNKNOWN ? b : b == UNKNOWN ? a : a + b;
+    }
+
+    public String command() {
+        return command;
+    }
+
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    public long userNanos() {
+        return userNanos;
+    }
+
+    public long systemNanos() {
+        return systemNanos;
+    }
+
+    /** User plus system CPU, as far as known. */
+    public long cpuNanos() {
+        return Math.max(sum(userNanos, systemNanos), 0);
+    }
+
+    public long peakRssBytes() {
+        return peakRssBytes;
+    }
+
+    public long readBytes() {
+        return readBytes;
+    }
+
+    public long writeBytes() {
+        return writeBytes;
+    }
+
+    /** Header for {@link #toRow()}. */
+    public static String header() {
+        return String.format(Locale.ROOT, "%9s %9s %9s %9s %9s %9s  %s",
+                "real", "user", "sys", "max rss", "read", "written", "command");
+    }
+
+    /** One line of a report, under {@link #header()}. */
+    public String toRow() {
+        return String.format(Locale.ROOT, "%9s %9s %9s %9s %9s %9s  %s", seconds(wallNanos), seconds(userNanos),
+                seconds(systemNanos), bytes(peakRssBytes), bytes(readBytes), bytes(writeBytes), command);
+    }
+
+    private static String seconds(long nanos) {
+        return nanos == UNKNOWN ? "-" : String.format(Locale.ROOT, "%.3fs", nanos / 1e9);
+    }
+
+    /** 512B, 4.0K, 12.5M, 1.2G */
+    static String bytes(long n) {
+        if (n == UNKNOWN) {
+            return "-";
+        }
+        if (n < 1024) {
+            return n + "B";
+        }
+        double value = n;
+        String units = "KMGT";
+        int unit = -1;
+        while (value >= 1024 && unit < units.length() - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format(Locale.ROOT, "%.1f%c", value, units.charAt(unit));
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceUsage{" + toRow().trim() + '}';
+    }
+}
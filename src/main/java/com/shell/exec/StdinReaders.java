@@ -0,0 +1,145 @@
+package com.shell.exec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Tells when a child, or a process it started on the same stdin, is blocked in read(2) on that
+ * stdin, from /proc/&lt;pid&gt;/syscall. A blocked reader means the pipe is empty and someone wants
+ * input, so a forwarder that waits for one asks for input only as it is consumed, and never for
+ * a command that does not read stdin at all.
+ *
+ * Only read and readv on descriptor 0 count: a reader that polls first is seen once it reads.
+ * Once input was handed over, a reader counts again only after it has slept since (its voluntary
+ * context switches changed), since /proc may still show the read it is returning from.
+ */
+final class StdinReaders {
+
+    private static final long MAX_POLL_MILLIS = 50;
+
+    // Syscall numbers of read and readv, as /proc shows them, on the architectures known here
+    private static final String[] READ_CALLS = readCalls(System.getProperty("os.arch"));
+
+    private final Process child;
+    private final String pipe;
+    private Map<Long, Long> blocked = Collections.emptyMap();
+    private Map<Long, Long> handedOver = Collections.emptyMap();
+
+    private StdinReaders(Process child, String pipe) {
+        this.child = child;
+        this.pipe = pipe;
+    }
+
+    /**
+     * Watches the readers of a child's stdin, or null when that cannot be told here: no /proc,
+     * an unknown architecture, no access to the child's syscalls, or the child already gone.
+     */
+    static StdinReaders of(Process child) {
+        if (READ_CALLS == null) {
+            return null;
+        }
+        Path proc = Paths.get("/proc", Long.toString(child.pid()));
+        try {
+            String pipe = Files.readSymbolicLink(proc.resolve("fd/0")).toString();
+            Files.readAllBytes(proc.resolve("syscall"));
+            return new StdinReaders(child, pipe);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Waits until a process on the stdin is blocked reading it, or the child has exited.
+     *
+     * @return how many bytes the reader asked for, or -1 once the child is gone
+     */
+    int awaitRead() {
+        long pause = 1;
+        while (child.isAlive()) {
+            int wanted = poll();
+            if (wanted > 0) {
+                return wanted;
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+            pause = Math.min(pause * 2, MAX_POLL_MILLIS);
+        }
+        return -1;
+    }
+
+    /** Input was written for the readers {@link #awaitRead()} saw. */
+    void handedOver() {
+        handedOver = blocked;
+    }
+
+    private int poll() {
+        Map<Long, Long> readers = new HashMap<>();
+        int wanted = 0;
+        try (Stream<ProcessHandle> tree = Stream.concat(Stream.of(child.toHandle()), child.descendants())) {
+            for (ProcessHandle p : (Iterable<ProcessHandle>) tree::iterator) {
+                Path proc = Paths.get("/proc", Long.toString(p.pid()));
+                try {
+                    if (!pipe.equals(Files.readSymbolicLink(proc.resolve("fd/0")).toString())) {
+                        continue;
+                    }
+                    // "nr arg1 arg2 arg3 ... sp pc", or "running"
+                    String[] call = new String(Files.readAllBytes(proc.resolve("syscall")), StandardCharsets.US_ASCII)
+                            .trim().split(" ");
+                    if (call.length < 4 || !call[1].equals("0x0")) {
+                        continue;
+                    }
+                    int size;
+                    if (call[0].equals(READ_CALLS[0])) {
+                        size = (int) Math.min(Long.parseLong(call[3].substring(2), 16), Integer.MAX_VALUE);
+                    } else if (call[0].equals(READ_CALLS[1])) {
+                        size = Integer.MAX_VALUE;
+                    } else {
+                        continue;
+                    }
+                    Long switches = voluntarySwitches(proc);
+                    readers.put(p.pid(), switches);
+                    if (size > 0 && !switches.equals(handedOver.get(p.pid()))) {
+                        wanted = Math.max(wanted, size);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // exited meanwhile, or not ours to look at: not a reader
+                }
+            }
+        }
+        blocked = readers;
+        return wanted;
+    }
+
+    private static Long voluntarySwitches(Path proc) throws IOException {
+        for (String line : Files.readAllLines(proc.resolve("status"), StandardCharsets.US_ASCII)) {
+            if (line.startsWith("voluntary_ctxt_switches:")) {
+                return Long.valueOf(line.substring(24).trim());
+            }
+        }
+        throw new IOException(proc + "/status: no voluntary_ctxt_switches");
+    }
+
+    private static String[] readCalls(String arch) {
+        switch (arch == null ? "" : arch) {
+            case "amd64":
+            case "x86_64":
+                return new String[] {"0", "19"};
+            case "aarch64":
+            case "riscv64":
+                return new String[] {"63", "65"};
+            default:
+                return null;
+        }
+    }
+}
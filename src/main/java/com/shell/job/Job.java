@@ -0,0 +1,99 @@
+package com.shell.job;
+
+import com.shell.exec.PipelineExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A command line started with {@code &}. Its state changes only through the exit callbacks of
+ * its stages, so nothing waits on a job unless someone asks to (fg, wait).
+ */
+public final class Job {
+
+    private final int id;
+    private final String command;
+    private final PipelineExecutor.Running pipeline;
+    private volatile boolean killed;
+
+    Job(int id, String command, PipelineExecutor.Running pipeline) {
+        this.id = id;
+        this.command = command;
+        this.pipeline = pipeline;
+    }
+
+    /** The job number, as in {@code %1}. */
+    public int id() {
+        return id;
+    }
+
+    /** The command line as typed, without the {@code &}. */
+    public String command() {
+        return command;
+    }
+
+    /** The job's child processes, in pipeline order; empty for a job of built-ins only. */
+    public List<ProcessHandle> processes() {
+        return pipeline.processes();
+    }
+
+    /** Completes with the status of the job's last stage. */
+    public CompletableFuture<Integer> onExit() {
+        return pipeline.onExit();
+    }
+
+    public boolean isDone() {
+        return pipeline.onExit().isDone();
+    }
+
+    /** Exit status once the job is done, null while it runs. */
+    public Integer status() {
+        return pipeline.onExit().getNow(null);
+    }
+
+    /**
+     * Waits for the job to finish.
+     *
+     * @return the status of its last stage
+     */
+    public int waitFor() throws InterruptedException {
+        try {
+            return pipeline.onExit().get();
+        } catch (ExecutionException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Terminates the job like a broken pipeline: SIGTERM to every stage and its children, SIGKILL
+     * to whatever is left after a grace period, or right away if forcibly.
+     */
+    public void kill(boolean forcibly) {
+        killed = true;
+        if (forcibly) {
+            for (ProcessHandle p : processes()) {
+                p.descendants().forEach(ProcessHandle::destroyForcibly);
+                p.destroyForcibly();
+            }
+        }
+        pipeline.destroy();
+    }
+
+    /** Running, Done, Exit N or Terminated, as {@code jobs} shows it. */
+    public String state() {
+        Integer status = status();
+        if (status == null) {
+            return "Running";
+        }
+        if (killed) {
+            return "Terminated";
+        }
+        return status == 0 ? "Done" : "Exit " + status;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + id + "] " + state() + " " + command;
+    }
+}
@@ -0,0 +1,96 @@
+package com.shell.job;
+
+import com.shell.exec.PipelineExecutor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A session's background jobs by number. Lock-free: jobs are added by the session thread, marked
+ * done by their stages' exit callbacks on whatever thread those run, and listed or removed by
+ * built-ins, without any of them blocking the others.
+ *
+ * A new job gets the number after the highest one in use, so numbers are reused once the table
+ * empties, as in other shells. A finished job stays in the table until it has been reported
+ * ({@link #takeFinished()}, {@code jobs}) or waited for.
+ */
+public final class JobTable {
+
+    private final ConcurrentNavigableMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private final Queue<Job> finished = new ConcurrentLinkedQueue<>();
+
+    /** Registers a started pipeline as the newest job. */
+    public Job add(String command, PipelineExecutor.Running pipeline) {
+        while (true) {
+            Map.Entry<Integer, Job> last = jobs.lastEntry();
+            Job job = new Job(last == null ? 1 : last.getKey() + 1, command, pipeline);
+            if (jobs.putIfAbsent(job.id(), job) == null) {
+                pipeline.onExit().whenComplete((status, error) -> finished.add(job));
+                return job;
+            }
+        }
+    }
+
+    /**
+     * The job a job spec names: {@code %n} or {@code n}, {@code %%}, {@code %+} or {@code %} for
+     * the newest job, {@code %-} for the one before it.
+     *
+     * @return the job, or null if there is no such job
+     */
+    public Job find(String spec) {
+        String s = spec.startsWith("%") ? spec.substring(1) : spec;
+        if (s.isEmpty() || s.equals("%") || s.equals("+")) {
+            return current();
+        }
+        if (s.equals("-")) {
+            Map.Entry<Integer, Job> last = jobs.lastEntry();
+            Map.Entry<Integer, Job> previous = last == null ? null : jobs.lowerEntry(last.getKey());
+            return previous != null ? previous.getValue() : last != null ? last.getValue() : null;
+        }
+        try {
+            return jobs.get(Integer.parseInt(s));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** The newest job, or null if there is none. */
+    public Job current() {
+        Map.Entry<Integer, Job> last = jobs.lastEntry();
+        return last != null ? last.getValue() : null;
+    }
+
+    /** The jobs in number order, running and not yet reported. */
+    public Collection<Job> list() {
+        return jobs.values();
+    }
+
+    public boolean isEmpty() {
+        return jobs.isEmpty();
+    }
+
+    /** Removes a job, e.g. once it was waited for. */
+    public void remove(Job job) {
+        jobs.remove(job.id(), job);
+    }
+
+    /**
+     * Removes and returns the jobs that finished since the last call, for a shell to report
+     * before its next prompt. Jobs removed otherwise in the meantime are skipped.
+     */
+    public List<Job> takeFinished() {
+        List<Job> result = new ArrayList<>();
+        for (Job job; (job = finished.poll()) != null; ) {
+            if (jobs.remove(job.id(), job)) {
+                result.add(job);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.shell.parser;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * A command line ending with {@code &}: the command runs as a job while the shell goes on.
+ * Example: sort big.txt > sorted.txt &
+ */
+@EqualsAndHashCode(callSuper = true)
+public class BackgroundCommand extends Command {
+    private final Command command;
+
+    public BackgroundCommand(Command command) {
+        super(null, null);
+        if (command instanceof BackgroundCommand) {
+            throw new IllegalArgumentException("command is already in the background");
+        }
+        this.command = command;
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.BACKGROUND;
+    }
+
+    /** The simple, redirection or pipeline command to run in the background. */
+    public Command getCommand() {
+        return command;
+    }
+
+    @Override
+    public String getExecutable() {
+        return command.getExecutable();
+    }
+
+    @Override
+    public List<String> getArgs() {
+        return command.getArgs();
+    }
+
+    @Override
+    public String toString() {
+        return "BackgroundCommand{" +
+                "command=" + command +
+                '}';
+    }
+}
@@ -1,13 +1,22 @@
 package com.shell.parser;
 
-import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 import java.util.List;
 
-@Data
+/**
+ * A parsed command line. Immutable, so one instance can be cached and run by any number of
+ * sessions at once.
+ */
+@EqualsAndHashCode
 public abstract class Command {
-    protected String executable;
-    protected List<String> args;
+    protected final String executable;
+    protected final List<String> args;
+
+    protected Command(String executable, List<String> args) {
+        this.executable = executable;
+        this.args = args == null ? null : List.copyOf(args);
+    }
 
     /**
      * Returns the type of this command.
@@ -15,18 +24,11 @@ public abstract class Command {
      */
     public abstract CommandType getType();
 
-    public void setArgs(List<String> args) {
-        this.args = args;
-    }
-
-    public void setExecutable(String executable) {
-        this.executable = executable;
-    }
-
     public String getExecutable() {
         return executable;
     }
 
+    /** The arguments, unmodifiable. */
     public List<String> getArgs() {
         return args;
     }
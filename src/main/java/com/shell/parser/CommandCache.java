@@ -0,0 +1,116 @@
+package com.shell.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache from a command line to its parsed Command. Commands are immutable, so a
+ * cached tree is shared by every caller, across sessions and threads. Lines that fail to parse
+ * are not cached.
+ *
+ * Off by default: {@code -Djshell.parseCache=<entries>} turns on the JVM-wide {@link #shared()}
+ * cache, which pays off when the same lines are run over and over (scripts, automation).
+ */
+public final class CommandCache {
+
+    private static final String PROPERTY = "jshell.parseCache";
+
+    private static final CommandCache SHARED = fromProperty();
+
+    private final int capacity;
+    private final Map<String, Command> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity maximum number of lines kept, at least 1
+     */
+    public CommandCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Command> eldest) {
+                if (size() <= CommandCache.this.capacity) {
+                    return false;
+                }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** The cache configured with {@code -Djshell.parseCache}, or null when it is off. */
+    public static CommandCache shared() {
+        return SHARED;
+    }
+
+    private static CommandCache fromProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int capacity = Integer.parseInt(value.trim());
+            return capacity > 0 ? new CommandCache(capacity) : null;
+        } catch (NumberFormatException e) {
+            System.err.println(PROPERTY + ": not a number: " + value);
+            return null;
+        }
+    }
+
+    /**
+     * The parsed command for line, from the cache or from {@link Parser#parse(String)}.
+     *
+     * @throws IllegalArgumentException or RuntimeException as Parser.parse does
+     */
+    public Command parse(String line) {
+        synchronized (this) {
+            Command cached = entries.get(line);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        // Parsed outside the lock; two threads missing the same line both parse it, which is harmless
+        Command parsed = Parser.parse(line);
+        synchronized (this) {
+            entries.put(line, parsed);
+        }
+        return parsed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CommandCache{size=" + entries.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + '}';
+    }
+}
@@ -3,6 +3,8 @@ package com.shell.parser;
 public enum CommandType {
     SIMPLE,
     REDIRECTION,
-    PIPELINE
+    PIPELINE,
+    BACKGROUND,
+    TIMED
 }
 
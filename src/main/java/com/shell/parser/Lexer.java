@@ -0,0 +1,182 @@
+package com.shell.parser;
+
+import java.util.Arrays;
+
+/**
+ * Splits a command line into typed tokens in a single pass over its characters.
+ *
+ * Tokens are kept as offset/length slices of the input in parallel arrays, so lexing allocates
+ * nothing per token; {@link #text(int)} builds a word's String only when a Command needs it.
+ * Operators are recognised anywhere outside quotes ({@code echo hi>out} is a redirection) and
+ * never inside them ({@code echo "a|b"} is one word). {@code 2>} is an operator only at the start
+ * of a word, so {@code file2>out} is the word {@code file2} redirected to {@code out}. {@code &}
+ * is an operator wherever it is unquoted; only the parser decides that it may end the line.
+ */
+final class Lexer {
+
+    enum TokenType {
+        WORD, PIPE, REDIR_IN, REDIR_OUT, REDIR_APPEND, REDIR_ERR, BACKGROUND;
+
+        boolean isRedirection() {
+            return this != WORD && this != PIPE && this != BACKGROUND;
+        }
+    }
+
+    private static final TokenType[] NO_TYPES = new TokenType[0];
+
+    private final char[] input;
+    private TokenType[] types = NO_TYPES;
+    private int[] offsets = new int[0];
+    private int[] lengths = new int[0];
+    // Words containing quotes or backslashes, which text() has to strip
+    private boolean[] quoted = new boolean[0];
+    private int size;
+
+    private Lexer(char[] input) {
+        this.input = input;
+    }
+
+    /**
+     * @throws RuntimeException on an unterminated quote or a trailing backslash
+     */
+    static Lexer lex(String line) {
+        Lexer lexer = new Lexer(line.toCharArray());
+        lexer.scan();
+        return lexer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    TokenType type(int i) {
+        return types[i];
+    }
+
+    int offset(int i) {
+        return offsets[i];
+    }
+
+    int length(int i) {
+        return lengths[i];
+    }
+
+    /** The token as the command sees it: quotes removed and escapes resolved. */
+    String text(int i) {
+        int start = offsets[i];
+        int end = start + lengths[i];
+        if (!quoted[i]) {
+            return new String(input, start, end - start);
+        }
+        StringBuilder word = new StringBuilder(end - start);
+        boolean inSingle = false;
+        boolean inDouble = false;
+        for (int k = start; k < end; k++) {
+            char c = input[k];
+            if (c == '\\' && !inSingle) {
+                // escape next char; scan() guarantees there is one
+                word.append(input[++k]);
+            } else if (c == '\'' && !inDouble) {
+                inSingle = !inSingle;
+            } else if (c == '"' && !inSingle) {
+                inDouble = !inDouble;
+            } else {
+                word.append(c);
+            }
+        }
+        return word.toString();
+    }
+
+    private void scan() {
+        int n = input.length;
+        int i = 0;
+        while (i < n) {
+            char c = input[i];
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '|') {
+                add(TokenType.PIPE, i, 1, false);
+                i++;
+            } else if (c == '&') {
+                add(TokenType.BACKGROUND, i, 1, false);
+                i++;
+            } else if (c == '<') {
+                add(TokenType.REDIR_IN, i, 1, false);
+                i++;
+            } else if (c == '>') {
+                boolean append = i + 1 < n && input[i + 1] == '>';
+                add(append ? TokenType.REDIR_APPEND : TokenType.REDIR_OUT, i, append ? 2 : 1, false);
+                i += append ? 2 : 1;
+            } else if (c == '2' && i + 1 < n && input[i + 1] == '>') {
+                add(TokenType.REDIR_ERR, i, 2, false);
+                i += 2;
+            } else {
+                i = scanWord(i);
+            }
+        }
+    }
+
+    /** Scans the word starting at start and returns the index just past it. */
+    private int scanWord(int start) {
+        int n = input.length;
+        boolean inSingle = false;
+        boolean inDouble = false;
+        boolean isQuoted = false;
+        // Characters the word keeps once quotes are stripped; "" alone is not a word
+        int kept = 0;
+        int i = start;
+        for (; i < n; i++) {
+            char c = input[i];
+            if (c == '\\') {
+                if (inSingle) {
+                    // inside single quotes backslash is literal
+                    kept++;
+                    continue;
+                }
+                if (++i >= n) {
+                    throw new RuntimeException("Trailing backslash");
+                }
+                isQuoted = true;
+                kept++;
+                continue;
+            }
+            if (c == '\'' && !inDouble) {
+                inSingle = !inSingle;
+                isQuoted = true;
+                continue;
+            }
+            if (c == '"' && !inSingle) {
+                inDouble = !inDouble;
+                isQuoted = true;
+                continue;
+            }
+            if (!inSingle && !inDouble && (Character.isWhitespace(c) || c == '|' || c == '<' || c == '>'
+                    || c == '&')) {
+                break;
+            }
+            kept++;
+        }
+        if (inSingle || inDouble) {
+            throw new RuntimeException("Unterminated quote");
+        }
+        if (kept > 0) {
+            add(TokenType.WORD, start, i - start, isQuoted);
+        }
+        return i;
+    }
+
+    private void add(TokenType type, int offset, int length, boolean isQuoted) {
+        if (size == types.length) {
+            int capacity = Math.max(8, size * 2);
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            quoted = Arrays.copyOf(quoted, capacity);
+        }
+        types[size] = type;
+        offsets[size] = offset;
+        lengths[size] = length;
+        quoted[size] = isQuoted;
+        size++;
+    }
+}
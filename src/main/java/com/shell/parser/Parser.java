@@ -7,169 +7,118 @@ public class Parser {
     
     /**
      * Main entry point for parsing. Analyzes the input and returns the appropriate Command type.
+     * The line is lexed once (see {@link Lexer}); Strings are only created for the words that
+     * end up in the Command.
      * @param input The raw command line input
-     * @return Command object (SimpleCommand, RedirectionCommand, or PipelineCommand)
+     * @return Command object (SimpleCommand, RedirectionCommand, or PipelineCommand), wrapped in a
+     *         TimedCommand if the line starts with the word {@code time} and in a BackgroundCommand
+     *         if it ends with {@code &}
      */
     public static Command parse(String input) {
         if (input == null || input.trim().isEmpty()) {
             throw new IllegalArgumentException("empty command input");
         }
 
-        // Check for pipeline first (contains |)
-        if (input.contains("|")) {
-            return parsePipeline(input);
+        Lexer tokens = Lexer.lex(input);
+        int end = tokens.size();
+        boolean background = end > 0 && tokens.type(end - 1) == Lexer.TokenType.BACKGROUND;
+        if (background) {
+            end--;
         }
-
-        // Tokenize the input
-        List<String> tokens = tokenize(input);
-
-        // Check for redirection operators
-        if (containsRedirectionOperators(tokens)) {
-            return parseRedirection(tokens);
+        // `time` followed by a command times all of it, as in sh; `time` alone is an ordinary command
+        boolean timed = end > 1 && tokens.type(0) == Lexer.TokenType.WORD && tokens.text(0).equals("time");
+        List<Command> commands = new ArrayList<>(1);
+        int start = timed ? 1 : 0;
+        for (int i = start; i <= end; i++) {
+            if (i < end && tokens.type(i) == Lexer.TokenType.BACKGROUND) {
+                throw new IllegalArgumentException("'&' is only supported at the end of a line");
+            }
+            if (i < end && tokens.type(i) != Lexer.TokenType.PIPE) {
+                continue;
+            }
+            if (i == start) {
+                throw new IllegalArgumentException("empty command segment in pipeline");
+            }
+            commands.add(parseSegment(tokens, start, i));
+            start = i + 1;
         }
 
-        // Otherwise, it's a simple command
-        return parseSimple(tokens);
-    }
-
-    /**
-     * Checks if the token list contains redirection operators.
-     */
-    private static boolean containsRedirectionOperators(List<String> tokens) {
-        for (String token : tokens) {
-            if ("<".equals(token) || ">".equals(token) || ">>".equals(token) || "2>".equals(token)) {
-                return true;
-            }
+        Command command = commands.size() == 1 ? commands.get(0) : new PipelineCommand(commands);
+        if (timed) {
+            command = new TimedCommand(command);
         }
-        return false;
+        return background ? new BackgroundCommand(command) : command;
     }
 
     /**
-     * Parses a simple command with no redirection or piping.
+     * Parses the tokens [from, to) of one pipeline segment: a simple command, or a redirection
+     * command if the segment has any redirection operator.
      */
-    private static SimpleCommand parseSimple(List<String> tokens) {
-        if (tokens == null || tokens.isEmpty()) {
-            throw new IllegalArgumentException("empty command tokens");
+    private static Command parseSegment(Lexer tokens, int from, int to) {
+        if (tokens.type(from) != Lexer.TokenType.WORD) {
+            throw new IllegalArgumentException("redirection operator '" + tokens.text(from)
+                    + "' has no target filename");
         }
-
-        String executable = tokens.get(0);
-        
-        // Validate that executable is not a redirection operator
-        if ("<".equals(executable) || ">".equals(executable) || ">>".equals(executable) || "2>".equals(executable)) {
-            throw new IllegalArgumentException("redirection operator '" + executable + "' cannot be used as command");
+        String executable = tokens.text(from);
+        List<String> args = new ArrayList<>(to - from - 1);
+        boolean redirected = false;
+        String stdInFile = null;
+        String stdOutFile = null;
+        String stdErrorFile = null;
+        boolean append = false;
+
+        for (int i = from + 1; i < to; i++) {
+            Lexer.TokenType type = tokens.type(i);
+            if (type == Lexer.TokenType.WORD) {
+                args.add(tokens.text(i));
+                continue;
+            }
+            // An operator: the next token must be its filename
+            if (i + 1 >= to || tokens.type(i + 1) != Lexer.TokenType.WORD) {
+                throw new IllegalArgumentException("redirection operator '" + tokens.text(i)
+                        + "' has no target filename");
+            }
+            String file = tokens.text(++i);
+            redirected = true;
+            switch (type) {
+                case REDIR_IN:
+                    stdInFile = file;
+                    break;
+                case REDIR_OUT:
+                    stdOutFile = file;
+                    append = false;
+                    break;
+                case REDIR_APPEND:
+                    stdOutFile = file;
+                    append = true;
+                    break;
+                case REDIR_ERR:
+                    stdErrorFile = file;
+                    // append semantics for stderr not supported in this milestone
+                    break;
+                default:
+                    // shouldn't happen
+                    throw new IllegalStateException("unknown operator: " + type);
+            }
         }
 
-        SimpleCommand cmd = new SimpleCommand();
-        cmd.setExecutable(executable);
-        
-        // All remaining tokens are arguments
-        List<String> args = new ArrayList<>();
-        for (int i = 1; i < tokens.size(); i++) {
-            args.add(tokens.get(i));
+        if (!redirected) {
+            return new SimpleCommand(executable, args);
         }
-        cmd.setArgs(args);
-        
-        return cmd;
+        return new RedirectionCommand(executable, args, stdInFile, stdOutFile, stdErrorFile, append);
     }
 
     /**
-     * Parses a pipeline command (commands separated by |).
+     * Splits a line into words and operators, with quotes removed.
      */
-    private static PipelineCommand parsePipeline(String input) {
-        List<Command> commands = new ArrayList<>();
-        // Use -1 to preserve trailing empty strings (for trailing pipe detection)
-        String[] segments = input.split("\\|", -1);
-        
-        for (String segment : segments) {
-            segment = segment.trim();
-            if (segment.isEmpty()) {
-                throw new IllegalArgumentException("empty command segment in pipeline");
-            }
-            
-            List<String> tokens = tokenize(segment);
-            
-            // Validate that we have at least one token
-            if (tokens.isEmpty()) {
-                throw new IllegalArgumentException("empty command segment in pipeline");
-            }
-            
-            // Each segment could be a simple command or a redirection command
-            if (containsRedirectionOperators(tokens)) {
-                commands.add(parseRedirection(tokens));
-            } else {
-                commands.add(parseSimple(tokens));
-            }
-        }
-        
-        PipelineCommand pipelineCmd = new PipelineCommand();
-        pipelineCmd.setCommands(commands);
-        return pipelineCmd;
-    }
-
     public static List<String> tokenize(String input) {
         List<String> tokens = new ArrayList<>();
         if (input == null || input.isEmpty()) return tokens;
 
-        StringBuilder token = new StringBuilder();
-        boolean inSingle = false;
-        boolean inDouble = false;
-
-        char[] inputArr = input.toCharArray();
-        for (int i = 0; i < input.length(); i++) {
-            char c = inputArr[i];
-
-            // Handle escaping (outside quotes and inside double quotes)
-            if (c == '\\') {
-                if (inSingle) {
-                    // inside single quotes backslash is literal
-                    token.append('\\');
-                } else {
-                    // escape next char (if any)
-                    i++;
-                    if (i >= input.length()) {
-                        throw new RuntimeException("Trailing backslash");
-                    }
-                    token.append(inputArr[i]);
-                }
-                continue;
-            }
-
-            // Toggle single quote (literal mode), only if not in double quotes
-            if (c == '\'' && !inDouble) {
-                inSingle = !inSingle;
-                continue; // do not include the quote char
-            }
-
-            // Toggle double quote, only if not in single quotes
-            if (c == '"' && !inSingle) {
-                inDouble = !inDouble;
-                continue; // do not include the quote char
-            }
-
-            // Whitespace separates tokens only when not inside quotes
-            if (Character.isWhitespace(c) && !inSingle && !inDouble) {
-                if (token.length() > 0) {
-                    tokens.add(token.toString());
-                    token.setLength(0);
-                }
-                // skip the whitespace
-                continue;
-            }
-
-            // Normal character
-            token.append(c);
+        Lexer lexer = Lexer.lex(input);
+        for (int i = 0; i < lexer.size(); i++) {
+            tokens.add(lexer.text(i));
         }
-
-        // After loop: error if still inside a quote
-        if (inSingle || inDouble) {
-            throw new RuntimeException("Unterminated quote");
-        }
-
-        // Add last token if present
-        if (token.length() > 0) {
-            tokens.add(token.toString());
-        }
-
         return tokens;
     }
 
@@ -183,8 +132,11 @@ public class Parser {
             throw new IllegalArgumentException("empty command tokens");
         }
 
-        RedirectionCommand rc = new RedirectionCommand();
         List<String> args = new ArrayList<>();
+        String stdInFile = null;
+        String stdOutFile = null;
+        String stdErrorFile = null;
+        boolean append = false;
 
         // First token is the executable
         String executable = tokens.get(0);
@@ -193,8 +145,7 @@ public class Parser {
         if ("<".equals(executable) || ">".equals(executable) || ">>".equals(executable) || "2>".equals(executable)) {
             throw new IllegalArgumentException("redirection operator '" + executable + "' has no target filename");
         }
-        
-        rc.setExecutable(executable);
+
 
         // pendingOperator holds one of "<", ">", ">>", "2>" when we are expecting a filename next
         String pendingOperator = null;
@@ -211,18 +162,18 @@ public class Parser {
 
                 switch (pendingOperator) {
                     case "<":
-                        rc.setStdInFile(tok);
+                        stdInFile = tok;
                         break;
                     case ">":
-                        rc.setStdOutFile(tok);
-                        rc.setAppend(false);
+                        stdOutFile = tok;
+                        append = false;
                         break;
                     case ">>":
-                        rc.setStdOutFile(tok);
-                        rc.setAppend(true);
+                        stdOutFile = tok;
+                        append = true;
                         break;
                     case "2>":
-                        rc.setStdErrorFile(tok);
+                        stdErrorFile = tok;
                         // append semantics for stderr not supported in this milestone
                         break;
                     default:
@@ -250,8 +201,7 @@ public class Parser {
             throw new IllegalArgumentException("redirection operator '" + pendingOperator + "' has no target filename");
         }
 
-        rc.setArgs(args);
-        return rc;
+        return new RedirectionCommand(executable, args, stdInFile, stdOutFile, stdErrorFile, append);
     }
 
 
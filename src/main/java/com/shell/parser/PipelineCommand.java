@@ -1,9 +1,6 @@
 package com.shell.parser;
 
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
 
 import java.util.List;
 
@@ -12,25 +9,32 @@ import java.util.List;
  * Example: cat file.txt | grep pattern | wc -l
  */
 @EqualsAndHashCode(callSuper = true)
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
 public class PipelineCommand extends Command {
-    private List<Command> commands;
+    private final List<Command> commands;
+
+    public PipelineCommand(List<Command> commands) {
+        super(null, null);
+        this.commands = List.copyOf(commands);
+    }
 
     @Override
     public CommandType getType() {
         return CommandType.PIPELINE;
     }
 
+    /** The stages in order, unmodifiable. */
+    public List<Command> getCommands() {
+        return commands;
+    }
+
     @Override
     public String getExecutable() {
-        return commands != null && !commands.isEmpty() ? commands.get(0).getExecutable() : null;
+        return !commands.isEmpty() ? commands.get(0).getExecutable() : null;
     }
 
     @Override
     public List<String> getArgs() {
-        return commands != null && !commands.isEmpty() ? commands.get(0).getArgs() : null;
+        return !commands.isEmpty() ? commands.get(0).getArgs() : null;
     }
 
     @Override
@@ -40,4 +44,3 @@ public class PipelineCommand extends Command {
                 '}';
     }
 }
-
@@ -1,9 +1,9 @@
 package com.shell.parser;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
 
 /**
  * Represents a command with I/O redirection.
@@ -11,36 +11,30 @@ import lombok.NoArgsConstructor;
  * Example: ls 2> errors.txt
  */
 @EqualsAndHashCode(callSuper = true)
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Getter
 public class RedirectionCommand extends Command {
-    private String stdInFile;   // Input redirection: < file.txt
-    private String stdOutFile;  // Output redirection: > file.txt
-    private String stdErrorFile; // Error redirection: 2> file.txt
-    private boolean append;
+    private final String stdInFile;   // Input redirection: < file.txt
+    private final String stdOutFile;  // Output redirection: > file.txt
+    private final String stdErrorFile; // Error redirection: 2> file.txt
+    private final boolean append;
+
+    /**
+     * Redirection targets are null for streams that are not redirected; append means {@code >>}.
+     */
+    public RedirectionCommand(String executable, List<String> args, String stdInFile, String stdOutFile,
+                              String stdErrorFile, boolean append) {
+        super(executable, args);
+        this.stdInFile = stdInFile;
+        this.stdOutFile = stdOutFile;
+        this.stdErrorFile = stdErrorFile;
+        this.append = append;
+    }
 
     @Override
     public CommandType getType() {
         return CommandType.REDIRECTION;
     }
 
-    public void setAppend(boolean append) {
-        this.append = append;
-    }
-
-    public void setStdErrorFile(String stdErrorFile) {
-        this.stdErrorFile = stdErrorFile;
-    }
-
-    public void setStdOutFile(String stdOutFile) {
-        this.stdOutFile = stdOutFile;
-    }
-
-    public void setStdInFile(String stdInFile) {
-        this.stdInFile = stdInFile;
-    }
-
     @Override
     public String toString() {
        return "RedirectionCommand{" +
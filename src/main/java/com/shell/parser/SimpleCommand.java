@@ -1,8 +1,6 @@
 package com.shell.parser;
 
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
 
 import java.util.List;
 
@@ -11,13 +9,10 @@ import java.util.List;
  * Example: echo hello world
  */
 @EqualsAndHashCode(callSuper = true)
-@Data
-@NoArgsConstructor
 public class SimpleCommand extends Command {
-    
+
     public SimpleCommand(String executable, List<String> args) {
-        this.executable = executable;
-        this.args = args;
+        super(executable, args);
     }
 
     @Override
@@ -33,4 +28,3 @@ public class SimpleCommand extends Command {
                 '}';
     }
 }
-
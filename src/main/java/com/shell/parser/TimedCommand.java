@@ -0,0 +1,50 @@
+package com.shell.parser;
+
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * A command line starting with {@code time}: the command runs as usual, then what it cost is
+ * reported, per stage for a pipeline.
+ * Example: time grep -c ERROR big.log | sort
+ */
+@EqualsAndHashCode(callSuper = true)
+public class TimedCommand extends Command {
+    private final Command command;
+
+    public TimedCommand(Command command) {
+        super(null, null);
+        if (command instanceof TimedCommand || command instanceof BackgroundCommand) {
+            throw new IllegalArgumentException("time must prefix a simple, redirection or pipeline command");
+        }
+        this.command = command;
+    }
+
+    @Override
+    public CommandType getType() {
+        return CommandType.TIMED;
+    }
+
+    /** The simple, redirection or pipeline command to time. */
+    public Command getCommand() {
+        return command;
+    }
+
+    @Override
+    public String getExecutable() {
+        return command.getExecutable();
+    }
+
+    @Override
+    public List<String> getArgs() {
+        return command.getArgs();
+    }
+
+    @Override
+    public String toString() {
+        return "TimedCommand{" +
+                "command=" + command +
+                '}';
+    }
+}
@@ -0,0 +1,230 @@
+package com.shell.path;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Per-session hash table from command name to resolved executable path, the backing store of
+ * the {@code hash} built-in.
+ *
+ * A cached entry found in the k-th PATH directory is only trusted while the mtimes of PATH
+ * directories 0..k are unchanged: those are the only directories where a new file could shadow
+ * it, or where it could have been removed. Changing PATH itself drops the whole table.
+ * Commands that were not found are remembered for {@link #NEGATIVE_TTL_MILLIS}; after that
+ * the PATH directories are statted again before the index is asked.
+ */
+public class ExecutableCache {
+
+    /** How long a "command not found" result is trusted before PATH is searched again. */
+    public static final long NEGATIVE_TTL_MILLIS = 2000;
+
+    private final Supplier<String> pathSupplier;
+    private final LongSupplier clock;
+    private final PathIndex index;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Snapshot of PATH the table was built against; replaced as a whole on change
+    private volatile PathSnapshot snapshot;
+
+    public ExecutableCache() {
+        this(() -> System.getenv("PATH"), null);
+    }
+
+    /**
+     * @param index PATH index to consult before searching PATH directories, may be null
+     */
+    public ExecutableCache(Supplier<String> pathSupplier, PathIndex index) {
+        this(pathSupplier, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), index);
+    }
+
+    ExecutableCache(Supplier<String> pathSupplier, LongSupplier clock, PathIndex index) {
+        this.pathSupplier = pathSupplier;
+        this.clock = clock;
+        this.index = index;
+    }
+
+    /**
+     * Resolves a command name to an absolute executable path.
+     * Names containing "/" are checked directly and never cached.
+     *
+     * @return absolute path, or null if the command cannot be found
+     */
+    public String resolve(String command) {
+        if (command == null || command.isEmpty()) {
+            return null;
+        }
+
+        // 1. If the command contains "/" → treat as absolute or relative path
+        if (command.contains("/")) {
+            File f = new File(command);
+            if (f.exists() && f.canExecute()) {
+                return f.getAbsolutePath();
+            }
+            return null;
+        }
+
+        PathSnapshot current = currentSnapshot();
+        Entry entry = entries.get(command);
+        if (entry != null && entry.snapshot == current) {
+            if (isValid(entry, current)) {
+                hits.incrementAndGet();
+                entry.hits.incrementAndGet();
+                return entry.path;
+            }
+            if (entry.path != null || !current.unchangedUpTo(current.dirs.length - 1)) {
+                // A PATH directory changed: every entry found at or after it is suspect, and
+                // the index must be asked with the new mtimes or it repeats its old answer
+                current = refresh(current);
+            }
+        }
+
+        // 2. Otherwise, search through PATH
+        misses.incrementAndGet();
+        Entry found = search(command, current);
+        entries.put(command, found);
+        return found.path;
+    }
+
+    /**
+     * Resolves and remembers the given command, as {@code hash name} does.
+     *
+     * @return false if the command was not found
+     */
+    public boolean add(String command) {
+        entries.remove(command);
+        return resolve(command) != null;
+    }
+
+    /** Forgets one command ({@code hash -d name}). Returns false if it was not remembered. */
+    public boolean remove(String command) {
+        Entry removed = entries.remove(command);
+        return removed != null && removed.path != null;
+    }
+
+    /** Forgets every remembered command ({@code hash -r}). */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Remembered commands and their paths in name order. Negative entries are not listed. */
+    public Map<String, String> entries() {
+        Map<String, String> result = new TreeMap<>();
+        entries.forEach((name, e) -> {
+            if (e.path != null) {
+                result.put(name, e.path);
+            }
+        });
+        return result;
+    }
+
+    /** Number of times the remembered path of the given command was used, as listed by {@code hash}. */
+    public long hits(String command) {
+        Entry e = entries.get(command);
+        return e == null ? 0 : e.hits.get();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private PathSnapshot currentSnapshot() {
+        String pathEnv = pathSupplier.get();
+        PathSnapshot s = snapshot;
+        if (s != null && s.pathEnv.equals(pathEnv == null ? "" : pathEnv)) {
+            return s;
+        }
+        synchronized (this) {
+            s = new PathSnapshot(pathEnv);
+            snapshot = s;
+            entries.clear();
+            return s;
+        }
+    }
+
+    private synchronized PathSnapshot refresh(PathSnapshot stale) {
+        if (snapshot == stale) {
+            snapshot = new PathSnapshot(stale.pathEnv);
+            entries.clear();
+        }
+        return snapshot;
+    }
+
+    private boolean isValid(Entry entry, PathSnapshot current) {
+        if (entry.path == null) {
+            return clock.getAsLong() < entry.expiresAt;
+        }
+        return current.unchangedUpTo(entry.dirIndex);
+    }
+
+    private Entry search(String command, PathSnapshot current) {
+        String[] dirs = current.dirs;
+        if (index != null) {
+            // The index answers without touching the filesystem when it matches this PATH state
+            int dir = index.lookup(current.pathEnv, current.mtimes, command);
+            if (dir >= 0) {
+                return new Entry(new File(dirs[dir], command).getAbsolutePath(), dir, current, 0);
+            }
+            if (dir == PathIndex.ABSENT) {
+                return new Entry(null, -1, current, clock.getAsLong() + NEGATIVE_TTL_MILLIS);
+            }
+        }
+        for (int i = 0; i < dirs.length; i++) {
+            File f = new File(dirs[i], command);
+            if (f.exists() && f.canExecute()) {
+                return new Entry(f.getAbsolutePath(), i, current, 0);
+            }
+        }
+        return new Entry(null, -1, current, clock.getAsLong() + NEGATIVE_TTL_MILLIS);
+    }
+
+    private static final class Entry {
+        final String path;          // null for a negative entry
+        final int dirIndex;         // index of the PATH directory the command was found in
+        final PathSnapshot snapshot;
+        final long expiresAt;       // only meaningful for negative entries
+        final AtomicLong hits = new AtomicLong();
+
+        Entry(String path, int dirIndex, PathSnapshot snapshot, long expiresAt) {
+            this.path = path;
+            this.dirIndex = dirIndex;
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * PATH split into directories plus the mtime each directory had when it was split.
+     */
+    private static final class PathSnapshot {
+        final String pathEnv;
+        final String[] dirs;
+        final long[] mtimes;
+
+        PathSnapshot(String pathEnv) {
+            this.pathEnv = pathEnv == null ? "" : pathEnv;
+            this.dirs = PathIndex.split(this.pathEnv);
+            this.mtimes = PathIndex.mtimes(dirs);
+        }
+
+        boolean unchangedUpTo(int dirIndex) {
+            for (int i = 0; i <= dirIndex; i++) {
+                if (new File(dirs[i]).lastModified() != mtimes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
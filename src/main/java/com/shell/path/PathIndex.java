@@ -0,0 +1,295 @@
+package com.shell.path;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index of every executable on PATH, built in a background thread when the shell starts.
+ *
+ * The index is persisted to a small binary snapshot under the user's cache directory, keyed by
+ * the PATH string and the mtime of every PATH directory. On the next start a matching snapshot
+ * is loaded instead of rescanning PATH. {@link ExecutableCache} consults the index before
+ * falling back to statting PATH directories, and "command not found" uses it for suggestions.
+ */
+public class PathIndex {
+
+    /** The index cannot answer: not built yet, or built for a different state of PATH. */
+    public static final int UNKNOWN = -2;
+    /** The index is current and the command is not on PATH. */
+    public static final int ABSENT = -1;
+
+    private static final int MAGIC = 0x4A534849; // "JSHI"
+    private static final int VERSION = 1;
+    private static final int MAX_SUGGESTIONS = 3;
+    private static final int MAX_SUGGESTION_DISTANCE = 2;
+
+    private final String pathEnv;
+    private final Path snapshotFile;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final CountDownLatch firstBuild = new CountDownLatch(1);
+
+    private volatile Snapshot current;
+
+    public PathIndex(String pathEnv, Path snapshotFile) {
+        this.pathEnv = pathEnv == null ? "" : pathEnv;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Default snapshot location: $XDG_CACHE_HOME/j-shell, or ~/.cache/j-shell.
+     * The {@code jshell.cache.dir} system property overrides the directory.
+     */
+    public static Path defaultSnapshotFile() {
+        String dir = System.getProperty("jshell.cache.dir");
+        if (dir == null) {
+            String xdg = System.getenv("XDG_CACHE_HOME");
+            dir = xdg != null && !xdg.isEmpty()
+                    ? Paths.get(xdg, "j-shell").toString()
+                    : Paths.get(System.getProperty("user.home"), ".cache", "j-shell").toString();
+        }
+        return Paths.get(dir, "path-index.bin");
+    }
+
+    /**
+     * Loads a matching snapshot if there is one, otherwise scans PATH in a background thread.
+     * Never blocks on the scan.
+     */
+    public void start() {
+        Snapshot loaded = load();
+        if (loaded != null) {
+            current = loaded;
+            firstBuild.countDown();
+            return;
+        }
+        rebuildAsync();
+    }
+
+    /**
+     * Like {@link #start()}, but the snapshot is read on the background thread too, for a caller
+     * that should not wait even for that: an interactive shell before its first prompt. Lookups
+     * fall back to searching PATH until then.
+     */
+    public void startInBackground() {
+        Thread t = new Thread(this::start, "j-shell-path-index-load");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Waits until the index has been loaded or built once. Mostly useful for tests.
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return firstBuild.await(timeout, unit);
+    }
+
+    /**
+     * Looks up a command for a caller that has already observed the given PATH state.
+     *
+     * @param mtimes PATH directory mtimes the caller observed, in PATH order
+     * @return index of the first PATH directory holding the command, {@link #ABSENT}, or
+     *         {@link #UNKNOWN} if the index does not describe that state of PATH
+     */
+    public int lookup(String pathEnv, long[] mtimes, String name) {
+        Snapshot s = current;
+        if (s == null || !s.pathEnv.equals(pathEnv)) {
+            return UNKNOWN;
+        }
+        if (!Arrays.equals(s.mtimes, mtimes)) {
+            // A PATH directory changed since the index was built
+            rebuildAsync();
+            return UNKNOWN;
+        }
+        Integer dir = s.entries.get(name);
+        return dir == null ? ABSENT : dir;
+    }
+
+    /**
+     * Commands on PATH within a small edit distance of the given name, closest first.
+     * Empty while the index is not ready.
+     */
+    public List<String> suggest(String name) {
+        Snapshot s = current;
+        if (s == null || name == null || name.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> candidates = new ArrayList<>();
+        Map<String, Integer> distances = new HashMap<>();
+        for (String candidate : s.entries.keySet()) {
+            if (Math.abs(candidate.length() - name.length()) > MAX_SUGGESTION_DISTANCE) {
+                continue;
+            }
+            int d = editDistance(name, candidate);
+            if (d > 0 && d <= MAX_SUGGESTION_DISTANCE) {
+                candidates.add(candidate);
+                distances.put(candidate, d);
+            }
+        }
+        candidates.sort(Comparator.<String>comparingInt(distances::get).thenComparing(Comparator.naturalOrder()));
+        return candidates.size() > MAX_SUGGESTIONS ? candidates.subList(0, MAX_SUGGESTIONS) : candidates;
+    }
+
+    /** Number of indexed commands, or 0 while not ready. */
+    public int size() {
+        Snapshot s = current;
+        return s == null ? 0 : s.entries.size();
+    }
+
+    private void rebuildAsync() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                Snapshot built = scan();
+                current = built;
+                save(built);
+            } finally {
+                building.set(false);
+                firstBuild.countDown();
+            }
+        }, "j-shell-path-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private Snapshot scan() {
+        String[] dirs = split(pathEnv);
+        // Record mtimes before listing: a change during the scan then shows up as a stale index
+        long[] mtimes = mtimes(dirs);
+        Map<String, Integer> entries = new HashMap<>();
+        for (int i = 0; i < dirs.length; i++) {
+            File[] files = new File(dirs[i]).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File f : files) {
+                if (!entries.containsKey(f.getName()) && f.isFile() && f.canExecute()) {
+                    entries.put(f.getName(), i);
+                }
+            }
+        }
+        return new Snapshot(pathEnv, mtimes, entries);
+    }
+
+    private Snapshot load() {
+        if (snapshotFile == null || !Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String storedPath = in.readUTF();
+            if (!storedPath.equals(pathEnv)) {
+                return null;
+            }
+            long[] mtimes = new long[in.readInt()];
+            for (int i = 0; i < mtimes.length; i++) {
+                mtimes[i] = in.readLong();
+            }
+            if (!Arrays.equals(mtimes, mtimes(split(pathEnv)))) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, Integer> entries = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                entries.put(in.readUTF(), (int) in.readShort());
+            }
+            return new Snapshot(storedPath, mtimes, entries);
+        } catch (IOException e) {
+            // Corrupt or truncated snapshot: rebuild it
+            return null;
+        }
+    }
+
+    private void save(Snapshot s) {
+        if (snapshotFile == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            tmp = Files.createTempFile(snapshotFile.getParent(), "path-index", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(s.pathEnv);
+                out.writeInt(s.mtimes.length);
+                for (long m : s.mtimes) {
+                    out.writeLong(m);
+                }
+                out.writeInt(s.entries.size());
+                for (Map.Entry<String, Integer> e : s.entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeShort(e.getValue());
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException e) {
+            // The snapshot is only an optimisation; the in-memory index is still valid
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // nothing more to do about it
+                }
+            }
+        }
+    }
+
+    static String[] split(String pathEnv) {
+        return pathEnv == null || pathEnv.isEmpty() ? new String[0] : pathEnv.split(":");
+    }
+
+    static long[] mtimes(String[] dirs) {
+        long[] mtimes = new long[dirs.length];
+        for (int i = 0; i < dirs.length; i++) {
+            mtimes[i] = new File(dirs[i]).lastModified();
+        }
+        return mtimes;
+    }
+
+    private static int editDistance(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    private static final class Snapshot {
+        final String pathEnv;
+        final long[] mtimes;
+        final Map<String, Integer> entries;
+
+        Snapshot(String pathEnv, long[] mtimes, Map<String, Integer> entries) {
+            this.pathEnv = pathEnv;
+            this.mtimes = mtimes;
+            this.entries = entries;
+        }
+    }
+}
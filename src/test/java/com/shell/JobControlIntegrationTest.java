@@ -0,0 +1,135 @@
+package com.shell;
+
+import com.shell.job.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests background jobs: `&`, and the jobs, fg, wait and kill built-ins.
+ */
+public class JobControlIntegrationTest {
+
+    private Path testDir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private ShellSession session;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("jobs-test-");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        session = new ShellSession(testDir, System.getenv(), InputStream.nullInputStream(),
+                new PrintStream(out, true), new PrintStream(err, true), null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        session.execute("kill -9 %1");
+        session.execute("kill -9 %2");
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBackgroundCommandDoesNotBlockTheSession() {
+        long start = System.nanoTime();
+
+        assertEquals(0, session.execute("sleep 5 &"));
+        assertEquals(0, session.execute("echo after"));
+
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 2000);
+        assertTrue(out.toString().contains("after\n"));
+        Job job = session.jobs().current();
+        assertEquals(1, job.id());
+        assertEquals("sleep 5", job.command());
+        assertEquals("Running", job.state());
+    }
+
+    @Test(timeout = 10000)
+    public void testWaitCollectsEveryJob() throws IOException {
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, session.execute("sh -c 'sleep 0.2; echo " + i + "' > out" + i + ".txt &"));
+        }
+        assertEquals(8, session.jobs().list().size());
+
+        assertEquals(0, session.execute("wait"));
+
+        assertTrue(session.jobs().isEmpty());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + "\n", Files.readString(testDir.resolve("out" + i + ".txt")));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFgReturnsTheJobsStatus() {
+        session.execute("sh -c 'exit 3' &");
+        session.execute("sleep 0.1 | true &");
+
+        assertEquals(3, session.execute("fg %1"));
+        assertEquals(0, session.execute("wait %2"));
+        assertEquals(1, session.execute("fg"));
+        assertTrue(err.toString().contains("fg: current: no such job"));
+    }
+
+    @Test(timeout = 10000)
+    public void testKillTerminatesTheJob() throws Exception {
+        session.execute("sleep 30 | cat &");
+        Job job = session.jobs().find("%1");
+
+        assertEquals(0, session.execute("kill %1"));
+        job.onExit().get();
+
+        assertEquals("Terminated", job.state());
+        assertEquals(0, session.execute("jobs"));
+        assertTrue(out.toString().contains("[1]+  Terminated"));
+        assertTrue(session.jobs().isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testKillReportsOnTheSessionsStreams() {
+        session.execute("sleep 30 &");
+        long pid = session.jobs().find("%1").processes().get(0).pid();
+
+        // The system's kill rejects the signal, on the session's stderr
+        assertNotEquals(0, session.execute("kill -NOSUCHSIGNAL " + pid));
+        assertFalse(err.toString().isEmpty());
+
+        err.reset();
+        long self = ProcessHandle.current().pid();
+        assertEquals(1, session.execute("kill " + self));
+        assertEquals(1, session.execute("kill -STOP " + self));
+        assertEquals("kill: (" + self + ") - cannot signal the shell itself\n"
+                + "kill: (" + self + ") - cannot signal the shell itself\n", err.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testBuiltinsRunAsJobs() throws Exception {
+        session.execute("echo in the background > bg.txt &");
+        session.jobs().current().onExit().get();
+
+        assertEquals("in the background\n", Files.readString(testDir.resolve("bg.txt")));
+    }
+
+    @Test(timeout = 10000)
+    public void testJobNumbersAreReusedOnceTheTableEmpties() {
+        session.execute("true &");
+        session.execute("true &");
+        assertEquals(2, session.jobs().current().id());
+
+        session.execute("wait");
+        session.execute("true &");
+
+        assertEquals(1, session.jobs().current().id());
+    }
+}
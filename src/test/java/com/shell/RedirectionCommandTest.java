@@ -360,13 +360,9 @@ public class RedirectionCommandTest {
 
     @Test
     public void testRedirectionCommandCreation() {
-        RedirectionCommand rc = new RedirectionCommand();
-        rc.setExecutable("echo");
-        rc.setArgs(List.of("hello", "world"));
-        rc.setStdOutFile("output.txt");
-        rc.setAppend(false);
-        rc.setStdErrorFile(null);
-        
+        RedirectionCommand rc = new RedirectionCommand("echo", List.of("hello", "world"), null, "output.txt",
+                null, false);
+
         assertEquals("echo", rc.getExecutable());
         assertEquals(2, rc.getArgs().size());
         assertEquals("hello", rc.getArgs().get(0));
@@ -378,13 +374,9 @@ public class RedirectionCommandTest {
 
     @Test
     public void testRedirectionCommandToString() {
-        RedirectionCommand rc = new RedirectionCommand();
-        rc.setExecutable("type");
-        rc.setArgs(List.of("file.txt"));
-        rc.setStdOutFile("out.txt");
-        rc.setStdErrorFile("err.txt");
-        rc.setAppend(true);
-        
+        RedirectionCommand rc = new RedirectionCommand("type", List.of("file.txt"), null, "out.txt", "err.txt",
+                true);
+
         String str = rc.toString();
         assertTrue(str.contains("type"));
         assertTrue(str.contains("out.txt"));
@@ -0,0 +1,114 @@
+package com.shell;
+
+import com.shell.exec.LatencyStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests running scripts: no prompt, parse-ahead, status and `exit`.
+ */
+public class ScriptRunnerTest {
+
+    private Path testDir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private ShellSession session;
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("script-test-");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        PrintStream stdout = new PrintStream(out, false);
+        PrintStream stderr = new PrintStream(err, true);
+        session = new ShellSession(testDir, System.getenv(), InputStream.nullInputStream(),
+                stdout, stderr, null);
+        runner = new ScriptRunner(session, stdout, stderr);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private int run(String script) {
+        return runner.run("test.sh", new StringReader(script));
+    }
+
+    @Test
+    public void testLinesRunInOrderWithoutPrompt() throws IOException {
+        int status = run("#!/bin/j-shell\necho one\n\n  # a comment\necho two > two.txt\ntype two.txt\n");
+
+        assertEquals(0, status);
+        assertEquals("one\ntwo\n", out.toString());
+        assertEquals("", err.toString());
+    }
+
+    @Test
+    public void testLaterLinesSeeEarlierDirectoryChanges() throws IOException {
+        Files.createDirectory(testDir.resolve("sub"));
+
+        run("cd sub\necho here > here.txt\n");
+
+        assertTrue(Files.exists(testDir.resolve("sub/here.txt")));
+        assertFalse(Files.exists(testDir.resolve("here.txt")));
+    }
+
+    @Test
+    public void testStatusIsTheLastCommands() {
+        assertEquals(127, run("echo first\nno-such-command-xyz\n"));
+        assertEquals(0, run("no-such-command-xyz\necho last\n"));
+    }
+
+    @Test
+    public void testParseErrorIsReportedAndScriptGoesOn() {
+        int status = run("echo before\necho 'open\necho after\n");
+
+        assertEquals(0, status);
+        assertEquals("before\nafter\n", out.toString());
+        assertTrue(err.toString().startsWith("test.sh: line 2: Parse error:"));
+    }
+
+    @Test
+    public void testParsingIsRecordedAsTheParsePhase() {
+        LatencyStats stats = new LatencyStats();
+        session.setStats(stats);
+
+        run("echo one\n# a comment\necho two | cat\necho 'open\n");
+
+        assertEquals(2, stats.phase(LatencyStats.Phase.PARSE).count());
+    }
+
+    @Test
+    public void testExitStopsTheScript() {
+        int status = run("echo kept\nexit 4\necho dropped\n");
+
+        assertEquals(4, status);
+        assertEquals("kept\n", out.toString());
+    }
+
+    @Test
+    public void testLongScriptOutrunsTheLookahead() {
+        StringBuilder script = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            script.append("echo line ").append(i).append('\n');
+            expected.append("line ").append(i).append('\n');
+        }
+
+        assertEquals(0, run(script.toString()));
+        assertEquals(expected.toString(), out.toString());
+    }
+}
@@ -0,0 +1,256 @@
+package com.shell;
+
+import com.shell.exec.DurabilityPolicy;
+import com.shell.exec.ExecutionPlan;
+import com.shell.parser.Parser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that sessions keep their state to themselves, also when many run at once.
+ */
+public class ShellSessionTest {
+
+    private Path testDir;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("session-test-");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static final class Captured {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final ShellSession session;
+
+        Captured(Path dir, Map<String, String> env) {
+            session = new ShellSession(dir, env, InputStream.nullInputStream(),
+                    new PrintStream(out, true), new PrintStream(err, true), null);
+        }
+    }
+
+    @Test
+    public void testCdOnlyMovesItsOwnSession() throws Exception {
+        Files.createDirectory(testDir.resolve("sub"));
+        Captured a = new Captured(testDir, System.getenv());
+        Captured b = new Captured(testDir, System.getenv());
+        String userDir = System.getProperty("user.dir");
+
+        assertEquals(0, a.session.execute("cd sub"));
+
+        assertEquals(testDir.resolve("sub").toRealPath(), a.session.workingDirectory().toRealPath());
+        assertEquals(testDir.toRealPath(), b.session.workingDirectory().toRealPath());
+        assertEquals(userDir, System.getProperty("user.dir"));
+    }
+
+    @Test
+    public void testRelativeRedirectionsFollowTheSession() throws Exception {
+        Files.createDirectory(testDir.resolve("sub"));
+        Captured s = new Captured(testDir, System.getenv());
+
+        s.session.execute("cd sub");
+        s.session.execute("echo hello > greeting.txt");
+        s.session.execute("type greeting.txt");
+        s.session.execute("cat greeting.txt | wc -l");
+
+        assertEquals("hello\n", Files.readString(testDir.resolve("sub/greeting.txt")));
+        assertTrue(s.out.toString().contains("hello\n"));
+        assertTrue(s.out.toString().endsWith("1\n"));
+        assertFalse(Files.exists(Paths.get("greeting.txt")));
+    }
+
+    @Test
+    public void testCompiledPlanKeepsItsDirectory() throws Exception {
+        Files.createDirectory(testDir.resolve("sub"));
+        Captured s = new Captured(testDir, System.getenv());
+        ExecutionPlan plan = s.session.compile(Parser.parse("echo planned >> plan.txt"));
+
+        s.session.execute("cd sub");
+        s.session.execute(plan);
+        s.session.execute(plan);
+
+        assertEquals("planned\nplanned\n", Files.readString(testDir.resolve("plan.txt")));
+        assertFalse(Files.exists(testDir.resolve("sub/plan.txt")));
+    }
+
+    @Test
+    public void testAppendedFileFollowsTruncationAndRotation() throws Exception {
+        Captured s = new Captured(testDir, System.getenv());
+
+        s.session.execute("echo one >> log.txt");
+        s.session.execute("echo two >> log.txt");
+        s.session.execute("cat log.txt");
+        s.session.execute("mv log.txt log.txt.1");
+        s.session.execute("echo three >> log.txt");
+        s.session.execute("echo reset > log.txt");
+        s.session.execute("echo four >> log.txt");
+        s.session.close();
+
+        assertTrue(s.out.toString().contains("one\ntwo\n"));
+        assertEquals("one\ntwo\n", Files.readString(testDir.resolve("log.txt.1")));
+        assertEquals("reset\nfour\n", Files.readString(testDir.resolve("log.txt")));
+    }
+
+    @Test
+    public void testDurableRedirectionsKeepTheirOutput() throws Exception {
+        for (DurabilityPolicy.Mode mode : DurabilityPolicy.Mode.values()) {
+            Captured s = new Captured(testDir, System.getenv());
+            s.session.setDurability(new DurabilityPolicy(mode, 60_000, 1024));
+            String log = mode + ".log";
+
+            assertEquals(0, s.session.execute("echo one >> " + log));
+            assertEquals(0, s.session.execute("printf 'two\\n' >> " + log));
+            assertEquals(0, s.session.execute("echo three | cat >> " + log));
+            s.session.close();
+
+            assertEquals("one\ntwo\nthree\n", Files.readString(testDir.resolve(log)));
+            assertEquals("", s.err.toString());
+        }
+    }
+
+    @Test
+    public void testEnvironmentIsPerSession() {
+        Map<String, String> env = new HashMap<>(System.getenv());
+        env.put("SESSION_NAME", "first");
+        Captured first = new Captured(testDir, env);
+        env.put("SESSION_NAME", "second");
+        Captured second = new Captured(testDir, env);
+
+        first.session.execute("printenv SESSION_NAME");
+        second.session.execute("printenv SESSION_NAME | cat");
+
+        assertTrue(first.out.toString().endsWith("first\n"));
+        assertEquals("second\n", second.out.toString());
+    }
+
+    @Test
+    public void testTimeReportsEveryStage() throws Exception {
+        Files.writeString(testDir.resolve("busy.sh"),
+                "i=0; while [ $i -lt 50000 ]; do i=$((i+1)); done; echo $i\n");
+        Captured s = new Captured(testDir, System.getenv());
+
+        assertEquals(0, s.session.execute("time sh busy.sh | cat | wc -l"));
+
+        assertTrue(s.out.toString().endsWith("1\n"));
+        String[] rows = s.err.toString().split("\n");
+        assertEquals(5, rows.length);
+        assertTrue(rows[0].trim().startsWith("real"));
+        assertTrue(rows[1].endsWith("  sh busy.sh"));
+        assertTrue(rows[2].endsWith("  cat"));
+        assertTrue(rows[3].endsWith("  wc -l"));
+        assertTrue(rows[4].endsWith("  total"));
+        // The shell spent its time counting, on the CPU
+        assertFalse(rows[1].trim().split(" +")[1].equals("0.000s"));
+    }
+
+    @Test
+    public void testTimeCountsTheWholeRunOfAChild() {
+        Captured s = new Captured(testDir, System.getenv());
+
+        assertEquals(0, s.session.execute("time /bin/sleep 0.5"));
+
+        String[] rows = s.err.toString().split("\n");
+        String real = rows[1].trim().split(" +")[0];
+        assertTrue(real, Double.parseDouble(real.substring(0, real.length() - 1)) >= 0.5);
+    }
+
+    @Test
+    public void testOnlyTimedCommandsReportUnlessTimeAll() throws Exception {
+        Captured s = new Captured(testDir, System.getenv());
+
+        s.session.execute("echo untimed");
+        assertEquals("", s.err.toString());
+
+        s.session.setTimeAll(true);
+        s.session.execute("echo timed");
+        assertTrue(s.err.toString().trim().endsWith("  echo timed"));
+    }
+
+    @Test
+    public void testExitEndsTheSessionNotTheJvm() {
+        Captured s = new Captured(testDir, System.getenv());
+
+        assertEquals(3, s.session.execute("exit 3"));
+
+        assertTrue(s.session.hasExited());
+    }
+
+    @Test
+    public void testRunStopsAtExit() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream script = new ByteArrayInputStream("echo one\nexit 4\necho two\n".getBytes());
+        ShellSession session = new ShellSession(testDir, script, new PrintStream(out, true), System.err);
+
+        assertEquals(4, session.run());
+
+        assertTrue(out.toString().contains("one\n"));
+        assertFalse(out.toString().contains("two"));
+    }
+
+    @Test
+    public void testConcurrentSessionsAreIsolated() throws Exception {
+        int sessions = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                String id = "tenant-" + i;
+                Path home = Files.createDirectories(testDir.resolve("home-" + i).resolve("work"));
+                Callable<String> task = () -> {
+                    Map<String, String> env = new HashMap<>(System.getenv());
+                    env.put("SESSION_ID", id);
+                    Captured s = new Captured(home.getParent(), env);
+                    for (int round = 0; round < 5; round++) {
+                        assertEquals(0, s.session.execute("cd work"));
+                        assertEquals(0, s.session.execute("echo " + id + " >> log.txt"));
+                        assertEquals(0, s.session.execute("type log.txt"));
+                        assertEquals(0, s.session.execute("echo " + id + " | cat"));
+                        assertEquals(0, s.session.execute("printenv SESSION_ID"));
+                        assertEquals(0, s.session.execute("cd .."));
+                    }
+                    assertEquals("", s.err.toString());
+                    return s.out.toString();
+                };
+                results.add(pool.submit(task));
+            }
+
+            for (int i = 0; i < sessions; i++) {
+                String id = "tenant-" + i;
+                String out = results.get(i).get(60, TimeUnit.SECONDS);
+                long foreign = out.lines().filter(l -> l.contains("tenant-") && !l.equals(id)).count();
+                assertEquals(id + " saw another session's output", 0, foreign);
+                // 5 appends, each typed back in full, plus 5 pipeline and 5 printenv lines
+                assertEquals(15 + 5 + 5, out.lines().filter(id::equals).count());
+                assertEquals(5, Files.readAllLines(testDir.resolve("home-" + i).resolve("work/log.txt")).size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.shell;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the training run for the startup archive completes quietly.
+ */
+public class StartupTrainingTest {
+
+    @Test(timeout = 60000)
+    public void testTrainingRunPrintsNothing() throws Exception {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            StartupTraining.main(new String[0]);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals("", captured.toString());
+    }
+}
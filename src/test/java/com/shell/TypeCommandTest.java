@@ -0,0 +1,118 @@
+package com.shell;
+
+import com.shell.parser.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the `type` built-in copies files byte for byte.
+ */
+public class TypeCommandTest {
+
+    private Path testDir;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("type-test-");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = testDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testDir.toFile().delete();
+    }
+
+    private void type(String args) {
+        Shell.executeRedirectionCommand((RedirectionCommand) Parser.parse("type " + args));
+    }
+
+    @Test
+    public void testLineEndingsArePreserved() throws Exception {
+        Path in = testDir.resolve("crlf.txt");
+        Files.write(in, "one\r\ntwo\r\nno newline at end".getBytes());
+        Path out = testDir.resolve("out.txt");
+
+        type(in + " > " + out);
+
+        assertArrayEquals(Files.readAllBytes(in), Files.readAllBytes(out));
+    }
+
+    @Test
+    public void testBinaryContentIsCopiedExactly() throws Exception {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(data);
+        Path in = testDir.resolve("blob.bin");
+        Files.write(in, data);
+        Path out = testDir.resolve("out.bin");
+
+        type(in + " > " + out);
+
+        assertArrayEquals(data, Files.readAllBytes(out));
+    }
+
+    @Test
+    public void testMultipleFilesAreConcatenatedAndAppended() throws Exception {
+        Path a = testDir.resolve("a.txt");
+        Path b = testDir.resolve("b.txt");
+        Files.writeString(a, "A");
+        Files.writeString(b, "B\n");
+        Path out = testDir.resolve("out.txt");
+        Files.writeString(out, "start:");
+
+        type(a + " " + b + " >> " + out);
+
+        assertEquals("start:AB\n", Files.readString(out));
+    }
+
+    @Test
+    public void testZeroSizedProcFileIsStillCopied() throws Exception {
+        File version = new File("/proc/version");
+        if (!version.exists()) {
+            return; // not a Linux /proc filesystem
+        }
+        Path out = testDir.resolve("version.txt");
+
+        type("/proc/version > " + out);
+
+        assertTrue(Files.readString(out).startsWith("Linux"));
+    }
+
+    @Test
+    public void testMissingFileWithErrorRedirection() throws Exception {
+        Path a = testDir.resolve("a.txt");
+        Files.writeString(a, "kept\n");
+        Path out = testDir.resolve("out.txt");
+        Path err = testDir.resolve("err.txt");
+
+        type(testDir.resolve("missing.txt") + " " + a + " > " + out + " 2> " + err);
+
+        assertEquals("kept\n", Files.readString(out));
+        assertTrue(Files.readString(err).contains("No such file or directory"));
+    }
+
+    @Test
+    public void testNameNoFileCanHaveIsMissing() throws Exception {
+        Path a = testDir.resolve("a.txt");
+        Files.writeString(a, "kept\n");
+        Path out = testDir.resolve("out.txt");
+        Path err = testDir.resolve("err.txt");
+
+        type("a\u0000b " + a + " > " + out + " 2> " + err);
+
+        assertEquals("kept\n", Files.readString(out));
+        assertTrue(Files.readString(err).contains("No such file or directory"));
+    }
+}
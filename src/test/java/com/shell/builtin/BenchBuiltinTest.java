@@ -0,0 +1,132 @@
+package com.shell.builtin;
+
+import com.shell.ShellSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the statistics of `bench`, how often it runs a command, and its reports.
+ */
+public class BenchBuiltinTest {
+
+    private Path testDir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private ShellSession session;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("bench-test-");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        session = new ShellSession(testDir, System.getenv(), InputStream.nullInputStream(),
+                new PrintStream(out, true), new PrintStream(err, true), null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSummary() {
+        BenchBuiltin.Summary s = BenchBuiltin.Summary.of(new long[]{40, 10, 30, 20});
+
+        assertEquals(25, s.mean, 1e-9);
+        assertEquals(Math.sqrt(500.0 / 3), s.stddev, 1e-9);
+        assertEquals(10, s.min, 1e-9);
+        assertEquals(25, s.p50, 1e-9);
+        assertEquals(38.5, s.p95, 1e-9);
+        assertEquals(39.7, s.p99, 1e-9);
+        assertEquals(40, s.max, 1e-9);
+        assertEquals(0, BenchBuiltin.Summary.of(new long[]{7}).stddev, 0);
+    }
+
+    @Test
+    public void testOutliersAreFarFromTheMedian() {
+        long[] steady = {100, 102, 98, 101, 99, 100, 103, 97};
+        long[] withSpike = {100, 102, 98, 101, 99, 100, 103, 97, 400};
+
+        assertEquals(0, BenchBuiltin.outliers(steady));
+        assertEquals(1, BenchBuiltin.outliers(withSpike));
+        assertEquals(0, BenchBuiltin.outliers(new long[]{5, 5, 5, 9}));
+    }
+
+    @Test
+    public void testFormatting() {
+        assertEquals("812.0 us", BenchBuiltin.duration(812_000));
+        assertEquals("3.140 ms", BenchBuiltin.duration(3_140_000));
+        assertEquals("1.207 s", BenchBuiltin.duration(1_207_000_000));
+
+        BenchBuiltin.Summary fast = BenchBuiltin.Summary.of(new long[]{90, 110});
+        BenchBuiltin.Summary slow = BenchBuiltin.Summary.of(new long[]{180, 220});
+        assertEquals("1.00", BenchBuiltin.relative(fast, fast));
+        assertEquals("2.00 +/- 0.40", BenchBuiltin.relative(slow, fast));
+    }
+
+    @Test(timeout = 20000)
+    public void testWarmupsAndRunsExecuteTheLine() throws IOException {
+        Files.writeString(testDir.resolve("count.sh"), "echo run >> runs.txt\n");
+
+        int status = session.execute("bench -w 2 -n 5 'sh count.sh'");
+
+        assertEquals(err.toString(), 0, status);
+        assertEquals(7, Files.readAllLines(testDir.resolve("runs.txt")).size());
+        String report = out.toString();
+        assertTrue(report.startsWith("Benchmark 1: sh count.sh\n"));
+        assertTrue(report.contains("\n  wall "));
+        assertTrue(report.contains("\n   cpu "));
+        assertTrue(report.contains("5 runs, 2 warmups"));
+        assertFalse(report.contains("Summary"));
+    }
+
+    @Test(timeout = 20000)
+    public void testCommandsAreComparedAndExported() throws IOException {
+        int status = session.execute("bench -n 3 --export-json result.json 'echo a | cat' true");
+
+        assertEquals(err.toString(), 0, status);
+        String report = out.toString();
+        assertTrue(report.contains("Benchmark 2: true\n"));
+        assertTrue(report.contains("\nSummary\n"));
+        assertTrue(report.contains("  echo a | cat\n"));
+        assertTrue(report.contains(" 1.00  "));
+
+        String json = Files.readString(testDir.resolve("result.json"));
+        assertTrue(json.contains("\"command\": \"echo a | cat\""));
+        assertTrue(json.contains("\"command\": \"true\""));
+        assertTrue(json.contains("\"exit_codes\": [0, 0, 0]"));
+        assertTrue(json.matches("(?s).*\"times\": \\[[0-9.]+, [0-9.]+, [0-9.]+\\].*"));
+    }
+
+    @Test(timeout = 20000)
+    public void testFailureStopsUnlessIgnored() {
+        assertEquals(1, session.execute("bench -n 3 'sh -c \"echo broken >&2; exit 3\"'"));
+        assertTrue(err.toString().contains("broken\n"));
+        assertTrue(err.toString().contains("exited with status 3"));
+        assertFalse(out.toString().contains(" runs,"));
+
+        out.reset();
+        assertEquals(0, session.execute("bench -i -n 3 false"));
+        assertTrue(out.toString().contains("3 runs, 0 warmups"));
+    }
+
+    @Test
+    public void testUsageErrors() {
+        assertEquals(2, session.execute("bench"));
+        assertEquals(2, session.execute("bench -n 0 true"));
+        assertEquals(2, session.execute("bench -x true"));
+        assertEquals(2, session.execute("bench 'echo |'"));
+        assertTrue(err.toString().contains("usage: bench"));
+    }
+}
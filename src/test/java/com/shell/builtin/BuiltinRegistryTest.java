@@ -0,0 +1,158 @@
+package com.shell.builtin;
+
+import com.shell.exec.PipelineExecutor;
+import com.shell.parser.Parser;
+import com.shell.parser.PipelineCommand;
+import com.shell.path.ExecutableCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests discovery, lazy creation and dispatch of built-ins through the registry.
+ */
+public class BuiltinRegistryTest {
+
+    private Path testDir;
+    private Path workingDir;
+    private Integer exitStatus;
+    private BuiltinRegistry registry;
+    private String err;
+
+    private final ShellContext context = new ShellContext() {
+        @Override
+        public Path workingDirectory() {
+            return workingDir;
+        }
+
+        @Override
+        public void changeDirectory(Path directory) {
+            workingDir = directory;
+        }
+
+        @Override
+        public ExecutableCache executables() {
+            return new ExecutableCache(() -> "", null);
+        }
+
+        @Override
+        public void exit(int status) {
+            exitStatus = status;
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("builtin-test-");
+        workingDir = testDir;
+        registry = BuiltinRegistry.load();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        File[] files = testDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testDir.toFile().delete();
+        System.clearProperty("jshell.coreutils");
+        System.clearProperty("jshell.coreutils.grep");
+    }
+
+    private String run(String name, boolean subshell, String... args) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        registry.run(name, Arrays.asList(args), InputStream.nullInputStream(), out, errors, context, subshell);
+        err = errors.toString(StandardCharsets.UTF_8);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testShippedBuiltinsAreRegistered() {
+        List<String> expected = Arrays.asList("cd", "echo", "exit", "hash", "type", "grep", "sort", "wc");
+        assertTrue(registry.names().containsAll(expected));
+        assertFalse(registry.isBuiltin("ls"));
+        assertNull(registry.get("ls"));
+    }
+
+    @Test
+    public void testBuiltinsAreCreatedOnFirstUseOnly() {
+        assertEquals(0, registry.instantiated());
+
+        Builtin echo = registry.get("echo");
+        assertEquals(1, registry.instantiated());
+        assertSame(echo, registry.get("echo"));
+
+        // one implementation serves every name of the coreutils pack
+        assertSame(registry.get("grep"), registry.get("sort"));
+        assertEquals(2, registry.instantiated());
+    }
+
+    @Test
+    public void testPluginOnClassPathIsPickedUp() throws Exception {
+        int before = ShoutBuiltin.instances;
+        assertTrue(registry.names().contains("shout"));
+        assertEquals(before, ShoutBuiltin.instances);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = registry.run("shout", List.of(), new ByteArrayInputStream("hey\n".getBytes()), out,
+                OutputStream.nullOutputStream(), context, false);
+        assertEquals(0, status);
+        assertEquals("HEY\n", out.toString());
+        assertEquals(before + 1, ShoutBuiltin.instances);
+    }
+
+    @Test
+    public void testDisabledBuiltinIsNotDispatched() {
+        assertFalse(registry.isBuiltin("grep"));
+        System.setProperty("jshell.coreutils", "true");
+        assertTrue(registry.isBuiltin("grep"));
+        System.setProperty("jshell.coreutils.grep", "false");
+        assertFalse(registry.isBuiltin("grep"));
+        assertTrue(registry.names().contains("grep"));
+    }
+
+    @Test
+    public void testEchoAndTypeWriteToTheGivenStreams() throws Exception {
+        assertEquals("a b\n", run("echo", false, "a", "b"));
+
+        Path file = Files.writeString(testDir.resolve("in.txt"), "content\n");
+        assertEquals("content\n", run("type", false, file.toString(), testDir.resolve("nope").toString()));
+        assertTrue(err.contains("No such file or directory"));
+    }
+
+    @Test
+    public void testCdAndExitOnlyAffectTheShellOutsidePipelines() throws Exception {
+        Files.createDirectory(testDir.resolve("sub"));
+
+        run("cd", true, "sub");
+        assertEquals(testDir, workingDir);
+        run("exit", true, "3");
+        assertNull(exitStatus);
+
+        run("cd", false, "sub");
+        assertEquals(testDir.resolve("sub"), workingDir);
+        run("exit", false, "3");
+        assertEquals(Integer.valueOf(3), exitStatus);
+    }
+
+    @Test
+    public void testRegistryRunsPipelineStages() throws Exception {
+        Path out = testDir.resolve("out.txt");
+        PipelineCommand pipeline = (PipelineCommand) Parser.parse("echo hello | shout | wc -c > " + out);
+
+        assertEquals(0, PipelineExecutor.execute(pipeline.getCommands(), testDir, registry.inPipeline(context)));
+        assertEquals("6\n", Files.readString(out));
+    }
+}
@@ -0,0 +1,120 @@
+package com.shell.builtin;
+
+import com.shell.ShellSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests argument substitution, grouping and ordering of output, and the job log of `parallel`.
+ */
+public class ParallelBuiltinTest {
+
+    private Path testDir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private ShellSession session;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("parallel-test-");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        session = new ShellSession(testDir, System.getenv(), InputStream.nullInputStream(),
+                new PrintStream(out, true), new PrintStream(err, true), null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testExpand() {
+        assertEquals("gzip -9 'a b.log'", ParallelBuiltin.expand("gzip -9", "a b.log", 1));
+        assertEquals("mv 'x.txt' 'x'.bak", ParallelBuiltin.expand("mv {} {.}.bak", "x.txt", 1));
+        assertEquals("echo 3 'it'\\''s'", ParallelBuiltin.expand("echo {#} {}", "it's", 3));
+        assertEquals("cat '.profile'", ParallelBuiltin.expand("cat {.}", ".profile", 1));
+    }
+
+    private void script(String name, String body) throws IOException {
+        Files.writeString(testDir.resolve(name), body);
+    }
+
+    @Test(timeout = 20000)
+    public void testKeepOrderWritesGroupsInInputOrder() throws IOException {
+        // Later jobs finish first
+        script("job.sh", "sleep 0.$((5 - $1)); echo start $1; echo end $1\n");
+
+        int status = session.execute("parallel -j 4 -k sh job.sh ::: 1 2 3 4");
+
+        assertEquals(0, status);
+        assertEquals("start 1\nend 1\nstart 2\nend 2\nstart 3\nend 3\nstart 4\nend 4\n", out.toString());
+    }
+
+    @Test(timeout = 20000)
+    public void testOutputOfEachJobStaysTogether() throws IOException {
+        script("job.sh", "echo $1-a; sleep 0.1; echo $1-b\n");
+
+        session.execute("parallel -j 8 sh job.sh ::: 1 2 3 4 5 6 7 8");
+
+        List<String> lines = out.toString().lines().collect(Collectors.toList());
+        assertEquals(16, lines.size());
+        for (int i = 0; i < lines.size(); i += 2) {
+            String job = lines.get(i).substring(0, lines.get(i).indexOf('-'));
+            assertEquals(job + "-a", lines.get(i));
+            assertEquals(job + "-b", lines.get(i + 1));
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testArgumentsFromAPipeAndRedirectionsInTheCommand() throws IOException {
+        Files.writeString(testDir.resolve("names.txt"), "alpha\nbeta\n");
+
+        session.execute("type names.txt | parallel 'echo {} > {}.out'");
+
+        assertEquals("alpha\n", Files.readString(testDir.resolve("alpha.out")));
+        assertEquals("beta\n", Files.readString(testDir.resolve("beta.out")));
+    }
+
+    @Test(timeout = 20000)
+    public void testStatusCountsFailuresAndJobLogRecordsThem() throws IOException {
+        script("job.sh", "exit $1\n");
+
+        int status = session.execute("parallel --joblog jobs.tsv sh job.sh ::: 0 3 0 5");
+
+        assertEquals(2, status);
+        List<String> log = Files.readAllLines(testDir.resolve("jobs.tsv"));
+        assertEquals(5, log.size());
+        assertTrue(log.get(0).startsWith("Seq\tHost\tStarttime\tJobRuntime"));
+        long failed = log.stream().skip(1).map(l -> l.split("\t")[6]).filter(s -> !s.equals("0")).count();
+        assertEquals(2, failed);
+    }
+
+    @Test(timeout = 20000)
+    public void testArgumentWithSpacesStaysOneWord() throws IOException {
+        script("count.sh", "echo $#\n");
+
+        session.execute("parallel -k sh count.sh {} ::: 'a b c' d");
+
+        assertEquals("1\n1\n", out.toString());
+    }
+
+    @Test
+    public void testMissingCommandIsAUsageError() {
+        assertEquals(2, session.execute("parallel ::: a b"));
+        assertTrue(err.toString().contains("no command given"));
+    }
+}
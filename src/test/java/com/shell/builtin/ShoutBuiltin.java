@@ -0,0 +1,25 @@
+package com.shell.builtin;
+
+import java.io.IOException;
+
+/**
+ * A plugin built-in registered only on the test class path: upper-cases stdin.
+ */
+@Builtin.Name("shout")
+public final class ShoutBuiltin implements Builtin {
+
+    static int instances;
+
+    public ShoutBuiltin() {
+        instances++;
+    }
+
+    @Override
+    public int run(Invocation call) throws IOException {
+        int b;
+        while ((b = call.in().read()) != -1) {
+            call.out().write(Character.toUpperCase(b));
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.shell.builtin;
+
+import com.shell.ShellSession;
+import com.shell.exec.LatencyStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a session records every phase of its commands and that `stats` reports and resets them.
+ */
+public class StatsBuiltinTest {
+
+    private Path testDir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private ShellSession session;
+    private LatencyStats stats;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("stats-test-");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        session = new ShellSession(testDir, System.getenv(), InputStream.nullInputStream(),
+                new PrintStream(out, true), new PrintStream(err, true), null);
+        stats = new LatencyStats();
+        session.setStats(stats);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testEveryPhaseIsRecorded() {
+        session.execute("true");
+        session.execute("echo hi | cat | wc -l");
+
+        assertEquals(2, stats.phase(LatencyStats.Phase.PARSE).count());
+        assertTrue(stats.phase(LatencyStats.Phase.RESOLVE).count() >= 2);
+        // true, then cat and wc (echo is a built-in, the coreutils pack is off)
+        assertEquals(3, stats.phase(LatencyStats.Phase.SPAWN).count());
+        assertEquals(4, stats.phase(LatencyStats.Phase.RUN).count());
+        assertEquals(2, stats.phase(LatencyStats.Phase.REAP).count());
+        assertTrue(stats.byExecutable().get("true").containsKey(LatencyStats.Phase.REAP));
+        assertTrue(stats.byExecutable().get("wc").containsKey(LatencyStats.Phase.REAP));
+        assertFalse(stats.byExecutable().get("echo").containsKey(LatencyStats.Phase.SPAWN));
+    }
+
+    @Test
+    public void testReportAndReset() {
+        session.execute("true");
+        out.reset();
+
+        assertEquals(0, session.execute("stats"));
+
+        String[] lines = out.toString().split("\n");
+        assertTrue(lines[0].startsWith("command      phase       count       mean        p50"));
+        assertTrue(lines[1].startsWith("(all)        parse           2 "));
+        assertTrue(lines[4].startsWith("(all)        run             1 "));
+        assertTrue(out.toString().contains("\ntrue         spawn           1 "));
+
+        assertEquals(0, session.execute("stats reset"));
+        assertEquals(0, stats.phase(LatencyStats.Phase.SPAWN).count());
+        assertFalse(stats.byExecutable().containsKey("true"));
+    }
+
+    @Test
+    public void testUsage() {
+        assertEquals(2, session.execute("stats everything"));
+        assertTrue(err.toString().contains("usage: stats [reset]"));
+
+        session.setStats(LatencyStats.DISABLED);
+        assertEquals(1, session.execute("stats"));
+    }
+}
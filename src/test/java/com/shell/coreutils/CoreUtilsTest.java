@@ -0,0 +1,241 @@
+package com.shell.coreutils;
+
+import com.shell.ShellSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the in-process utilities on small inputs and checks their output and exit status
+ * against what the real utilities print.
+ */
+public class CoreUtilsTest {
+
+    private static final String LOG = "GET /a 200\nGET /b 500\npost /c 500\nGET /a 200\nGET /d 404\n";
+
+    private Path testDir;
+    private String err;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("coreutils-test-");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = testDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testDir.toFile().delete();
+        System.clearProperty("jshell.coreutils");
+        System.clearProperty("jshell.coreutils.grep");
+    }
+
+    private String run(String input, int expectedStatus, String command) throws IOException {
+        String[] words = command.split(" ");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int status = CoreUtils.run(words[0], Arrays.asList(words).subList(1, words.length),
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out, errors);
+        err = errors.toString();
+        assertEquals(command + " exit status", expectedStatus, status);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Path file(String name, String content) throws IOException {
+        return Files.writeString(testDir.resolve(name), content);
+    }
+
+    @Test
+    public void testGrep() throws Exception {
+        assertEquals("GET /b 500\npost /c 500\n", run(LOG, 0, "grep 500"));
+        assertEquals("2\n", run(LOG, 0, "grep -c 500"));
+        assertEquals("3:post /c 500\n", run(LOG, 0, "grep -in POST"));
+        assertEquals("GET /b 500\npost /c 500\nGET /d 404\n", run(LOG, 0, "grep -v 200"));
+        assertEquals("GET /d 404\n", run(LOG, 0, "grep -e 404"));
+        assertEquals("", run(LOG, 1, "grep nomatch"));
+        assertEquals("", run(LOG, 0, "grep -q 404"));
+        assertEquals("", run(LOG, 2, "grep -z x"));
+        assertTrue(err.startsWith("grep: invalid option"));
+    }
+
+    @Test
+    public void testGrepLeavesRegularExpressionsToTheRealGrep() throws Exception {
+        // + is an ordinary character in a basic regular expression
+        assertEquals("a+b\n", run("aab\na+b\n", 0, "grep a+b"));
+        assertEquals("[x\n", run("[x\n", 0, "grep -F [x"));
+
+        assertEquals("", run("aab\n", 2, "grep -E a+b"));
+        assertTrue(err.startsWith("grep: regular expressions need the real grep"));
+        assertEquals("", run("[x\n", 2, "grep [x"));
+        assertEquals("", run(LOG, 2, "grep ^GET.*/a"));
+    }
+
+    @Test
+    public void testWhatThePackLacksGoesToTheRealUtility() throws Exception {
+        List<String> handedOver = new ArrayList<>();
+        Utility.RealUtility real = (name, args, readsStdin) -> {
+            handedOver.add(name + " " + String.join(" ", args) + (readsStdin ? " <stdin" : ""));
+            return 0;
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, CoreUtils.run("grep", List.of("-w", "x"), null, InputStream.nullInputStream(), out, out, real));
+        assertEquals(0, CoreUtils.run("sort", List.of("-k2"), null, InputStream.nullInputStream(), out, out, real));
+        assertEquals(1, CoreUtils.run("grep", List.of("x"), null, InputStream.nullInputStream(), out, out, real));
+        assertEquals(0, CoreUtils.run("grep", List.of("-w", "x", "a.txt"), null, InputStream.nullInputStream(), out, out,
+                real));
+        assertEquals(List.of("grep -w x <stdin", "sort -k2 <stdin", "grep -w x a.txt"), handedOver);
+        assertEquals(0, out.size());
+
+        // Not installed: reported like the real utility reports what it rejects
+        assertEquals(2, CoreUtils.run("grep", List.of("-w", "x"), null, InputStream.nullInputStream(), out, out,
+                (name, args, readsStdin) -> Utility.RealUtility.NOT_INSTALLED));
+        assertEquals("grep: invalid option -- 'w'\n", out.toString());
+    }
+
+    @Test
+    public void testRealUtilityReadsStdinOnlyWithoutFileOperands() {
+        assertTrue(readsStdin(new Grep(), "-w", "x"));
+        assertFalse(readsStdin(new Grep(), "-w", "x", "a.txt"));
+        assertTrue(readsStdin(new Grep(), "-e", "x", "-e", "y"));
+        assertFalse(readsStdin(new Grep(), "-ex", "a.txt"));
+        assertTrue(readsStdin(new Grep(), "-w", "x", "a.txt", "-"));
+        assertFalse(readsStdin(new Grep(), "-r", "x"));
+        assertTrue(readsStdin(new Head(), "-n", "5"));
+        assertFalse(readsStdin(new Head(), "-n", "5", "a.txt"));
+        assertTrue(readsStdin(new Cut(), "-d", ",", "-f", "1"));
+        assertFalse(readsStdin(new Sort(), "-k2", "--", "-a.txt"));
+    }
+
+    private static boolean readsStdin(Utility utility, String... args) {
+        return utility.readsStdin(List.of(args));
+    }
+
+    @Test(timeout = 20000)
+    public void testBuiltinRunsTheRealBinaryOnItsStreams() throws Exception {
+        System.setProperty("jshell.coreutils", "true");
+        file("lines.txt", "aab\na+b\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        ShellSession session = new ShellSession(testDir, System.getenv(),
+                new ByteArrayInputStream("abc\nxyz\n".getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true), new PrintStream(errors, true), null);
+
+        assertEquals(0, session.execute("grep a+b lines.txt"));
+        assertEquals(0, session.execute("grep -x a.b lines.txt"));
+        assertEquals(0, session.execute("grep -E ^a.c"));
+        assertEquals(2, session.execute("grep [ lines.txt"));
+
+        assertEquals("a+b\naab\na+b\nabc\n", out.toString(StandardCharsets.UTF_8));
+        assertTrue(errors.toString(StandardCharsets.UTF_8).contains("grep: "));
+    }
+
+    @Test
+    public void testGrepWithFiles() throws Exception {
+        Path a = file("a.log", "x 500\n");
+        Path b = file("b.log", "y 200\n");
+        assertEquals(a + ":x 500\n", run("", 0, "grep 500 " + a + " " + b));
+        assertEquals(a + "\n", run("", 0, "grep -l 500 " + a + " " + b));
+        assertEquals(a + ":x 500\n", run("", 2, "grep 500 " + a + " " + testDir.resolve("missing")));
+        assertTrue(err.contains("No such file or directory"));
+    }
+
+    @Test
+    public void testWc() throws Exception {
+        assertEquals("5\n", run(LOG, 0, "wc -l"));
+        assertEquals("      5      15      56\n", run(LOG, 0, "wc"));
+        assertEquals("      1       3\n", run("one two\nthree", 0, "wc -lw"));
+        Path a = file("a.txt", "a b\n");
+        Path b = file("b.txt", "c\nd\n");
+        assertEquals("1 " + a + "\n2 " + b + "\n3 total\n", run("", 0, "wc -l " + a + " " + b));
+    }
+
+    @Test
+    public void testHeadAndTail() throws Exception {
+        String lines = "1\n2\n3\n4\n5\n";
+        assertEquals("1\n2\n", run(lines, 0, "head -n 2"));
+        assertEquals("1\n2\n3\n", run(lines, 0, "head -3"));
+        assertEquals("1\n2", run(lines, 0, "head -c 3"));
+        assertEquals("4\n5\n", run(lines, 0, "tail -n 2"));
+        assertEquals("3\n4\n5\n", run(lines, 0, "tail -n +3"));
+        assertEquals("4\n5", run("1\n2\n3\n4\n5", 0, "tail -2"));
+        assertEquals("", run(lines, 0, "tail -n 0"));
+        assertEquals("", run(lines, 1, "head -n x"));
+        assertEquals("head: invalid number: 'x'\n", err);
+    }
+
+    @Test
+    public void testTailOfRegularFileReadsFromTheEnd() throws Exception {
+        StringBuilder big = new StringBuilder();
+        for (int i = 1; i <= 20000; i++) {
+            big.append(i).append('\n');
+        }
+        Path f = file("big.txt", big.toString());
+        assertEquals("19999\n20000\n", run("", 0, "tail -n 2 " + f));
+        assertEquals(big.toString(), run("", 0, "tail -n 50000 " + f));
+        Path noNewline = file("partial.txt", "a\nb\nc");
+        assertEquals("b\nc", run("", 0, "tail -2 " + noNewline));
+        Path blankLast = file("blank.txt", "a\n\n");
+        assertEquals("\n", run("", 0, "tail -1 " + blankLast));
+    }
+
+    @Test
+    public void testSort() throws Exception {
+        assertEquals("B\na\nb\n", run("b\na\nB\n", 0, "sort"));
+        assertEquals("b\na\nB\n", run("b\na\nB\n", 0, "sort -r"));
+        assertEquals("2\n10\n100\n", run("10\n100\n2\n", 0, "sort -n"));
+        assertEquals("a\nb\n", run("b\na\nb\na\n", 0, "sort -u"));
+        assertEquals("-3\nx\n1.5\n", run("1.5\nx\n-3\n", 0, "sort -n"));
+    }
+
+    @Test
+    public void testUniq() throws Exception {
+        String input = "a\na\nb\nc\nc\nc\na\n";
+        assertEquals("a\nb\nc\na\n", run(input, 0, "uniq"));
+        assertEquals("      2 a\n      1 b\n      3 c\n      1 a\n", run(input, 0, "uniq -c"));
+        assertEquals("a\nc\n", run(input, 0, "uniq -d"));
+        assertEquals("b\na\n", run(input, 0, "uniq -u"));
+        assertEquals("A\n", run("A\na\n", 0, "uniq -i"));
+    }
+
+    @Test
+    public void testCut() throws Exception {
+        assertEquals("b\n", run("a\tb\tc\n", 0, "cut -f2"));
+        assertEquals("a:c\n", run("a:b:c\n", 0, "cut -d : -f 1,3"));
+        assertEquals("b:c\n", run("a:b:c\n", 0, "cut -d: -f2-"));
+        assertEquals("no delimiter\n", run("no delimiter\n", 0, "cut -d : -f 2"));
+        assertEquals("", run("no delimiter\n", 0, "cut -s -d : -f 2"));
+        assertEquals("bcd\n", run("abcdef\n", 0, "cut -c 2-4"));
+        assertEquals("", run("x\n", 1, "cut -d :"));
+    }
+
+    @Test
+    public void testSwitchingUtilitiesOnAndOff() {
+        assertFalse("the pack is opt-in", CoreUtils.isEnabled("grep"));
+
+        System.setProperty("jshell.coreutils", "true");
+        assertTrue(CoreUtils.isEnabled("grep"));
+        assertFalse(CoreUtils.isEnabled("awk"));
+
+        System.setProperty("jshell.coreutils.grep", "false");
+        assertFalse(CoreUtils.isEnabled("grep"));
+        assertTrue(CoreUtils.isEnabled("wc"));
+
+        System.setProperty("jshell.coreutils", "false");
+        assertFalse(CoreUtils.isEnabled("wc"));
+    }
+}
@@ -0,0 +1,271 @@
+package com.shell.daemon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests requests from {@link DaemonClient} to a {@link ShellDaemon} on a socket in a temp dir.
+ */
+public class ShellDaemonTest {
+
+    private Path testDir;
+    private ShellDaemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue("needs Java 16", UnixSockets.isSupported());
+        testDir = Files.createTempDirectory("daemon-test-");
+        daemon = new ShellDaemon(testDir.resolve("run/j-shell.sock"), null);
+        daemon.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (daemon != null) {
+            daemon.close();
+        }
+        if (testDir != null) {
+            try (Stream<Path> paths = Files.walk(testDir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static final class Reply {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status;
+    }
+
+    private Reply run(Path dir, Map<String, String> env, String stdin, String... args) throws IOException {
+        return run(dir, env, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)), args);
+    }
+
+    private Reply run(Path dir, Map<String, String> env, InputStream in, String... args) throws IOException {
+        Reply reply = new Reply();
+        reply.status = DaemonClient.run(daemon.socket(), args, dir, env, in, reply.out, reply.err);
+        return reply;
+    }
+
+    @Test(timeout = 20000)
+    public void testLinesRunInTheClientsDirectoryWithItsStatus() throws IOException {
+        Files.writeString(testDir.resolve("greeting.txt"), "hello\n");
+
+        Reply reply = run(testDir, System.getenv(), "", "-c", "type greeting.txt\necho done > out.txt\nexit 3");
+
+        assertEquals(3, reply.status);
+        assertEquals("hello\n", reply.out.toString());
+        assertEquals("done\n", Files.readString(testDir.resolve("out.txt")));
+    }
+
+    @Test(timeout = 20000)
+    public void testScriptIsFoundRelativeToTheClient() throws IOException {
+        Files.writeString(testDir.resolve("script.sh"), "#!/usr/bin/env j-shell\necho from script\nnosuchcommand-xyz\n");
+
+        Reply reply = run(testDir, System.getenv(), "", "script.sh");
+
+        assertTrue(reply.out.toString().startsWith("from script\n"));
+        assertEquals(127, reply.status);
+    }
+
+    @Test(timeout = 20000)
+    public void testEachRequestGetsAFreshSession() throws IOException {
+        Files.createDirectory(testDir.resolve("sub"));
+        Map<String, String> env = new HashMap<>(System.getenv());
+        env.put("REQUEST_NAME", "first");
+
+        Reply first = run(testDir, env, "", "-c", "cd sub\nprintenv REQUEST_NAME | cat\necho here > where.txt");
+        env.put("REQUEST_NAME", "second");
+        Reply second = run(testDir, env, "", "-c", "printenv REQUEST_NAME | cat\necho here > where.txt");
+
+        assertTrue(first.out.toString().endsWith("\nfirst\n"));
+        assertEquals("second\n", second.out.toString());
+        assertTrue(Files.exists(testDir.resolve("sub/where.txt")));
+        assertTrue(Files.exists(testDir.resolve("where.txt")));
+    }
+
+    @Test(timeout = 20000)
+    public void testStdinIsReadFromTheClient() throws IOException {
+        Reply reply = run(testDir, System.getenv(), "a\nb\nc\n", "-c", "parallel -k echo line");
+
+        assertEquals("line a\nline b\nline c\n", reply.out.toString());
+        assertEquals(0, reply.status);
+    }
+
+    @Test(timeout = 20000)
+    public void testExternalCommandsReadTheClientsStdin() throws IOException {
+        Reply reply = run(testDir, System.getenv(), "data\nmore\n", "-c", "cat\necho after");
+
+        assertTrue(reply.out.toString().endsWith("\ndata\nmore\nafter\n"));
+        assertEquals(0, reply.status);
+    }
+
+    @Test(timeout = 20000)
+    public void testCommandsThatDoNotReadStdinLeaveItForLaterOnes() throws IOException {
+        Reply reply = run(testDir, System.getenv(), "data\n", "-c", "sleep 0.3\ncat");
+
+        assertTrue(reply.out.toString(), reply.out.toString().endsWith("\ndata\n"));
+        assertEquals(0, reply.status);
+    }
+
+    @Test(timeout = 20000)
+    public void testAReaderGetsNoMoreThanItAskedFor() throws IOException {
+        // sh's read takes stdin a byte at a time, up to the newline
+        Reply reply = run(testDir, System.getenv(), "one\ntwo\n", "-c", "sh -c 'read a; echo got $a'\ncat");
+
+        String out = reply.out.toString();
+        assertTrue(out, out.contains("\ngot one\n"));
+        assertTrue(out, out.endsWith("\ntwo\n"));
+    }
+
+    @Test(timeout = 20000)
+    public void testCommandsThatDoNotReadStdinDoNotWaitForIt() throws Exception {
+        // Like a terminal nobody types into
+        CountDownLatch never = new CountDownLatch(1);
+        InputStream silent = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    never.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IOException("interrupted");
+            }
+        };
+
+        Reply reply = run(testDir, System.getenv(), silent, "-c", "printenv HOME > /dev/null\necho done");
+
+        assertEquals("done\n", reply.out.toString());
+        assertEquals(0, reply.status);
+    }
+
+    @Test(timeout = 20000)
+    public void testUsageErrorsComeBackOnStderr() throws IOException {
+        Reply reply = run(testDir, System.getenv(), "", "-x");
+
+        assertEquals(2, reply.status);
+        assertTrue(reply.err.toString().contains("-x: invalid option"));
+    }
+
+    @Test(timeout = 20000)
+    public void testPathNoFileCanHaveIsAnErrorNotAFailure() throws IOException {
+        // Java refuses a path holding a NUL outright
+        Reply reply = run(testDir, System.getenv(), "", "-c", "echo before\ncd a\u0000b\necho after");
+
+        String out = reply.out.toString();
+        assertTrue(out, out.startsWith("before\n"));
+        assertTrue(out, out.contains("cd: a\u0000b: No such file or directory\n"));
+        assertTrue(out, out.endsWith("after\n"));
+        assertEquals("", reply.err.toString());
+        assertEquals(0, reply.status);
+        assertEquals(1, run(testDir, System.getenv(), "", "-c", "cd a\u0000b").status);
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentRequests() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Reply>> replies = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String id = "request-" + i;
+                replies.add(pool.submit(() -> run(testDir, System.getenv(), "", "-c", "echo " + id + "\necho " + id + " | cat")));
+            }
+            for (int i = 0; i < replies.size(); i++) {
+                Reply reply = replies.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals("request-" + i + "\nrequest-" + i + "\n", reply.out.toString());
+            }
+            assertEquals(32, daemon.requests());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSocketIsOwnerOnlyAndRemovedOnClose() throws IOException {
+        Path socket = daemon.socket();
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())));
+
+        daemon.close();
+
+        assertFalse(Files.exists(socket));
+        try {
+            run(testDir, System.getenv(), "", "-c", "echo hi");
+            fail("connected to a closed daemon");
+        } catch (IOException expected) {
+            // the client falls back to an in-process shell on this
+        }
+    }
+
+    @Test
+    public void testSocketDirectoryOthersCanEnterIsRefused() throws IOException {
+        Path shared = Files.createDirectory(testDir.resolve("shared"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Files.setPosixFilePermissions(shared, PosixFilePermissions.fromString("rwxr-xr-x"));
+        try {
+            new ShellDaemon(shared.resolve("j-shell.sock"), null).start();
+            fail("started in a directory others can enter");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("rwx------"));
+        }
+        assertFalse(Files.exists(shared.resolve("j-shell.sock")));
+
+        // Nor does a client connect once the daemon's directory has been opened up
+        Files.setPosixFilePermissions(daemon.socket().getParent(), PosixFilePermissions.fromString("rwxrwx---"));
+        try {
+            run(testDir, System.getenv(), "", "-c", "echo hi");
+            fail("connected through a directory others can enter");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("rwxrwx---"));
+        }
+    }
+
+    @Test
+    public void testStaleSocketIsReplacedButALiveOneIsNot() throws IOException {
+        ShellDaemon second = new ShellDaemon(daemon.socket(), null);
+        try {
+            second.start();
+            fail("started on the socket of a running daemon");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("already listening"));
+        }
+
+        // A crashed daemon leaves its socket file behind
+        Path socket = testDir.resolve("stale.sock");
+        UnixSockets.bind(socket).close();
+        assertTrue(Files.exists(socket));
+        ShellDaemon restarted = new ShellDaemon(socket, null);
+        restarted.start();
+        try {
+            assertEquals(0, DaemonClient.run(socket, new String[] {"-c", "echo ok"}, testDir, System.getenv(),
+                    InputStream.nullInputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+        } finally {
+            restarted.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.shell.exec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that appended files are opened once and reopened when the path names another file.
+ */
+public class AppendFileCacheTest {
+
+    private Path testDir;
+    private AppendFileCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("append-cache-test-");
+        cache = new AppendFileCache(2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private void append(File file, String text) throws IOException {
+        try (OutputStream out = cache.open(file)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String read(File file) throws IOException {
+        return Files.readString(file.toPath());
+    }
+
+    @Test
+    public void testRepeatedAppendsOpenTheFileOnce() throws IOException {
+        File log = testDir.resolve("out.log").toFile();
+
+        for (int i = 0; i < 100; i++) {
+            append(log, "line " + i + "\n");
+            // Every command's output is in the file when it returns
+            assertTrue(read(log).endsWith("line " + i + "\n"));
+        }
+
+        assertEquals(1, cache.opens());
+        assertEquals(100, read(log).split("\n").length);
+    }
+
+    @Test
+    public void testDeletedFileIsRecreated() throws IOException {
+        File log = testDir.resolve("out.log").toFile();
+        append(log, "old\n");
+
+        Files.delete(log.toPath());
+        append(log, "new\n");
+
+        assertEquals("new\n", read(log));
+        assertEquals(2, cache.opens());
+    }
+
+    @Test
+    public void testRenamedFileKeepsItsLinesAndPathGetsANewFile() throws IOException {
+        File log = testDir.resolve("out.log").toFile();
+        File rotated = testDir.resolve("out.log.1").toFile();
+        append(log, "before\n");
+
+        Files.move(log.toPath(), rotated.toPath());
+        append(log, "after\n");
+
+        assertEquals("before\n", read(rotated));
+        assertEquals("after\n", read(log));
+    }
+
+    @Test
+    public void testTruncatedFileIsAppendedAtItsNewEnd() throws IOException {
+        File log = testDir.resolve("out.log").toFile();
+        append(log, "first\n");
+
+        Files.writeString(log.toPath(), "x\n");
+        append(log, "second\n");
+
+        assertEquals("x\nsecond\n", read(log));
+        assertEquals(1, cache.opens());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsClosed() throws IOException {
+        File a = testDir.resolve("a").toFile();
+        File b = testDir.resolve("b").toFile();
+        File c = testDir.resolve("c").toFile();
+        append(a, "a\n");
+        append(b, "b\n");
+        append(a, "a\n");
+        append(c, "c\n");
+
+        List<Path> open = cache.paths();
+        assertEquals(2, open.size());
+        assertFalse(open.contains(b.toPath().toAbsolutePath()));
+        assertEquals("b\n", read(b));
+    }
+
+    @Test
+    public void testInvalidateAndCloseRelease() throws IOException {
+        File log = testDir.resolve("out.log").toFile();
+        append(log, "one\n");
+
+        cache.invalidate(log);
+        assertEquals(0, cache.size());
+
+        append(log, "two\n");
+        cache.close();
+        assertEquals(0, cache.size());
+        assertEquals("one\ntwo\n", read(log));
+        assertEquals(2, cache.opens());
+    }
+}
@@ -0,0 +1,100 @@
+package com.shell.exec;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that output is held in the buffer until a flush and then written unchanged.
+ */
+public class ChannelOutputStreamTest {
+
+    /** Records what reaches the channel and in how many writes. */
+    private static final class RecordingChannel implements WritableByteChannel {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final WritableByteChannel delegate = Channels.newChannel(bytes);
+        int writes;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            writes++;
+            return delegate.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            fail("the channel must stay open");
+        }
+    }
+
+    @Test
+    public void testSmallWritesWaitForFlush() throws IOException {
+        RecordingChannel channel = new RecordingChannel();
+        PrintStream printer = new PrintStream(new ChannelOutputStream(channel, 1024));
+
+        for (int i = 0; i < 100; i++) {
+            printer.println("line " + i);
+        }
+        assertEquals(0, channel.writes);
+
+        printer.flush();
+        assertEquals(1, channel.writes);
+        assertTrue(channel.bytes.toString().startsWith("line 0\nline 1\n"));
+        assertTrue(channel.bytes.toString().endsWith("line 99\n"));
+    }
+
+    @Test
+    public void testFullBufferIsWrittenOut() throws IOException {
+        RecordingChannel channel = new RecordingChannel();
+        ChannelOutputStream out = new ChannelOutputStream(channel, 16);
+
+        for (int i = 0; i < 40; i++) {
+            out.write('a' + i % 26);
+        }
+        assertEquals(2, channel.writes);
+        out.write(new byte[10]);    // does not fit the 8 bytes left
+        assertEquals(3, channel.writes);
+
+        out.close();
+        assertEquals(50, channel.bytes.size());
+    }
+
+    @Test
+    public void testLargeWriteBypassesTheBuffer() throws IOException {
+        RecordingChannel channel = new RecordingChannel();
+        ChannelOutputStream out = new ChannelOutputStream(channel, 16);
+        byte[] large = new byte[100];
+        Arrays.fill(large, (byte) 'x');
+
+        out.write('<');
+        out.write(large);
+        out.write('>');
+        out.flush();
+
+        assertEquals("<" + "x".repeat(100) + ">", channel.bytes.toString());
+        assertEquals(3, channel.writes);
+    }
+
+    @Test
+    public void testChannelIsFlushedBeforeItIsHandedOut() throws IOException {
+        RecordingChannel channel = new RecordingChannel();
+        ChannelOutputStream out = new ChannelOutputStream(channel, 64);
+        out.write("header\n".getBytes());
+
+        assertSame(channel, out.channel());
+        assertEquals("header\n", channel.bytes.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package com.shell.exec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests when each durability mode commits the files it is told about.
+ */
+public class DurabilityPolicyTest {
+
+    private Path testDir;
+    private Path a;
+    private Path b;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("durability-test-");
+        a = Files.writeString(testDir.resolve("a.log"), "a\n");
+        b = Files.writeString(testDir.resolve("b.log"), "b\n");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(testDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testModeNames() {
+        assertEquals(DurabilityPolicy.Mode.NONE, DurabilityPolicy.Mode.of("none"));
+        assertEquals(DurabilityPolicy.Mode.PER_COMMAND, DurabilityPolicy.Mode.of("per-command"));
+        assertEquals(DurabilityPolicy.Mode.GROUP, DurabilityPolicy.Mode.of(" GROUP "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownModeIsRejected() {
+        DurabilityPolicy.Mode.of("always");
+    }
+
+    @Test
+    public void testGroupCollectsFilesUntilSync() throws IOException {
+        DurabilityPolicy policy = new DurabilityPolicy(DurabilityPolicy.Mode.GROUP, 60_000, 1024);
+
+        policy.written(a, 2, null);
+        policy.written(b, 2, null);
+        policy.written(a, 2, null);
+        assertEquals(2, policy.pending());
+
+        policy.sync();
+        assertEquals(0, policy.pending());
+    }
+
+    @Test
+    public void testGroupCommitsAtOnceWhenTheBatchIsFull() throws IOException {
+        DurabilityPolicy policy = new DurabilityPolicy(DurabilityPolicy.Mode.GROUP, 60_000, 100);
+
+        policy.written(a, 60, null);
+        assertEquals(1, policy.pending());
+        policy.written(b, 60, null);
+        assertEquals(0, policy.pending());
+    }
+
+    @Test(timeout = 10000)
+    public void testGroupCommitsAfterTheInterval() throws Exception {
+        DurabilityPolicy policy = new DurabilityPolicy(DurabilityPolicy.Mode.GROUP, 20, Long.MAX_VALUE);
+
+        policy.written(a, 2, null);
+        while (policy.pending() > 0) {
+            Thread.sleep(5);
+        }
+        policy.written(b, 2, null);
+        while (policy.pending() > 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testFilesRemovedBeforeTheCommitAreSkipped() throws IOException {
+        DurabilityPolicy perCommand = new DurabilityPolicy(DurabilityPolicy.Mode.PER_COMMAND, 0, 0);
+        DurabilityPolicy group = new DurabilityPolicy(DurabilityPolicy.Mode.GROUP, 60_000, 1024);
+        group.written(a, 2, null);
+        Files.delete(a);
+
+        perCommand.written(a, 2, null);
+        group.sync();
+        assertEquals(0, group.pending());
+    }
+
+    @Test
+    public void testNoneKeepsNothing() throws IOException {
+        DurabilityPolicy.NONE.written(a, 2, null);
+
+        assertFalse(DurabilityPolicy.NONE.isEnabled());
+        assertEquals(0, DurabilityPolicy.NONE.pending());
+    }
+}
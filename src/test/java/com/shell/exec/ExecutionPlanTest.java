@@ -0,0 +1,106 @@
+package com.shell.exec;
+
+import com.shell.parser.Parser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests compiling Commands into plans and running one plan repeatedly.
+ */
+public class ExecutionPlanTest {
+
+    private static final UnaryOperator<String> RESOLVER = name -> name.equals("cat") ? "/bin/cat" : null;
+
+    private Path testDir;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("plan-test-");
+        Files.writeString(testDir.resolve("input.txt"), "apple\nbanana\n");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = testDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testDir.toFile().delete();
+    }
+
+    private ExecutionPlan compile(String line) {
+        return ExecutionPlan.compile(Parser.parse(line), testDir, RESOLVER, "echo"::equals);
+    }
+
+    @Test
+    public void testStagesAreResolvedWhenCompiled() {
+        ExecutionPlan plan = compile("cat < input.txt | echo hi | nosuch -x >> out.txt 2> err.txt");
+
+        assertEquals(3, plan.size());
+        ExecutionPlan.Stage cat = plan.stage(0);
+        assertEquals("/bin/cat", cat.executable());
+        assertEquals(List.of("/bin/cat"), cat.argv());
+        assertEquals(testDir.resolve("input.txt").toFile(), cat.inFile());
+        assertEquals(ProcessBuilder.Redirect.Type.READ, cat.input().type());
+
+        ExecutionPlan.Stage echo = plan.stage(1);
+        assertTrue(echo.isBuiltin());
+        assertNull(echo.executable());
+        assertEquals(List.of("hi"), echo.args());
+
+        ExecutionPlan.Stage last = plan.stage(2);
+        assertNull(last.executable());
+        assertEquals(List.of("nosuch", "-x"), last.argv());
+        assertEquals(ProcessBuilder.Redirect.Type.APPEND, last.output().type());
+        assertEquals(testDir.resolve("err.txt").toFile(), last.error().file());
+    }
+
+    @Test
+    public void testSimpleCommandHasNoRedirections() {
+        ExecutionPlan.Stage stage = compile("cat input.txt").stage(0);
+
+        assertFalse(stage.isRedirected());
+        assertNull(stage.input());
+        assertNull(stage.output());
+        assertNull(stage.error());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testArgvCannotBeModified() {
+        compile("cat input.txt").stage(0).argv().set(0, "/bin/rm");
+    }
+
+    @Test
+    public void testPlanRunsRepeatedly() throws IOException {
+        ExecutionPlan plan = compile("cat input.txt | cat >> out.txt");
+        ExecutionContext ctx = ExecutionContext.inherit(testDir);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, PipelineExecutor.execute(plan, ctx, InProcessCommands.NONE));
+        }
+
+        assertEquals("apple\nbanana\n".repeat(3), Files.readString(testDir.resolve("out.txt")));
+    }
+
+    @Test
+    public void testBackgroundPlanKeepsItsStages() {
+        ExecutionPlan plan = compile("cat input.txt | sort > out.txt &");
+
+        assertTrue(plan.isBackground());
+        assertEquals(2, plan.size());
+        assertEquals(testDir.resolve("out.txt").toFile(), plan.stage(1).outFile());
+        assertFalse(compile("cat input.txt").isBackground());
+    }
+}
@@ -0,0 +1,98 @@
+package com.shell.exec;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguousAndWithinThreePercent() {
+        assertEquals(0, LatencyHistogram.index(0));
+        assertEquals(63, LatencyHistogram.index(63));
+        int previous = LatencyHistogram.index(63);
+        for (long value = 64; value < 1 << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(index == previous || index == previous + 1);
+            long highest = LatencyHistogram.highestInBucket(index);
+            assertTrue(highest >= value);
+            assertTrue((highest - value) <= value / 32);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKED,
+                LatencyHistogram.highestInBucket(LatencyHistogram.index(LatencyHistogram.MAX_TRACKED)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            h.record(micros * 1000);
+        }
+
+        assertEquals(1000, h.count());
+        assertEquals(500_500, h.mean(), 1e-6);
+        assertEquals(1_000_000, h.max());
+        assertEquals(500_000, h.percentile(50), 500_000 / 32.0);
+        assertEquals(990_000, h.percentile(99), 990_000 / 32.0);
+        assertEquals(1_000_000, h.percentile(100));
+        assertEquals(1000, h.percentile(0), 1000 / 32.0);
+    }
+
+    @Test
+    public void testOutOfRangeValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(LatencyHistogram.MAX_TRACKED * 4);
+
+        assertEquals(0, h.percentile(50));
+        assertEquals(LatencyHistogram.MAX_TRACKED * 4, h.percentile(99));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(42);
+        h.reset();
+
+        assertEquals(0, h.count());
+        assertEquals(0, h.max());
+        assertEquals(0, h.percentile(99));
+        assertEquals(0, h.mean(), 0);
+    }
+
+    @Test
+    public void testStatsByPhaseAndExecutable() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(LatencyStats.Phase.PARSE, null, 10);
+        stats.record(LatencyStats.Phase.SPAWN, "grep", 2000);
+        stats.record(LatencyStats.Phase.SPAWN, "sort", 3000);
+        stats.record(LatencyStats.Phase.RUN, "grep", 50);
+
+        assertEquals(1, stats.phase(LatencyStats.Phase.PARSE).count());
+        assertEquals(2, stats.phase(LatencyStats.Phase.SPAWN).count());
+        Map<String, Map<LatencyStats.Phase, LatencyHistogram>> byExecutable = stats.byExecutable();
+        assertEquals("[grep, sort]", byExecutable.keySet().toString());
+        assertEquals("[SPAWN, RUN]", byExecutable.get("grep").keySet().toString());
+
+        stats.reset();
+        assertEquals(0, stats.phase(LatencyStats.Phase.SPAWN).count());
+        assertTrue(stats.byExecutable().isEmpty());
+
+        LatencyStats.DISABLED.record(LatencyStats.Phase.RUN, "grep", 1);
+        assertEquals(0, LatencyStats.DISABLED.phase(LatencyStats.Phase.RUN).count());
+    }
+
+    @Test
+    public void testExecutablesBeyondTheLimitShareOneRow() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < LatencyStats.MAX_EXECUTABLES + 10; i++) {
+            stats.record(LatencyStats.Phase.RESOLVE, "cmd" + i, 1);
+        }
+
+        assertEquals(LatencyStats.MAX_EXECUTABLES + 1, stats.byExecutable().size());
+        assertEquals(10, stats.byExecutable().get(LatencyStats.OTHER).get(LatencyStats.Phase.RESOLVE).count());
+    }
+}
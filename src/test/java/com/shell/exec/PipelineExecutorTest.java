@@ -0,0 +1,220 @@
+package com.shell.exec;
+
+import com.shell.parser.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Executes real pipelines through PipelineExecutor and verifies the files they produce.
+ */
+public class PipelineExecutorTest {
+
+    private Path testDir;
+
+    @Before
+    public void setUp() throws IOException {
+        testDir = Files.createTempDirectory("pipeline-test-");
+        Files.writeString(testDir.resolve("input.txt"), "apple\nbanana\napricot\ncherry\n");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = testDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testDir.toFile().delete();
+    }
+
+    private int run(String line) {
+        PipelineCommand pipeline = (PipelineCommand) Parser.parse(line);
+        return PipelineExecutor.execute(pipeline.getCommands(), testDir);
+    }
+
+    /**
+     * Stand-in built-ins: a producer, a filter, a consumer and one that only sets a status.
+     * repeat N writes N "y" lines, forever when N is negative.
+     */
+    private static final InProcessCommands STUB_BUILTINS = new InProcessCommands() {
+        @Override
+        public boolean isInProcess(String executable) {
+            return Set.of("emit", "repeat", "upper", "count", "fail").contains(executable);
+        }
+
+        @Override
+        public int run(String executable, List<String> args, InputStream in, OutputStream out, OutputStream err)
+                throws IOException {
+            switch (executable) {
+                case "emit":
+                    out.write((String.join(" ", args) + "\n").getBytes());
+                    return 0;
+                case "repeat":
+                    byte[] line = "y\n".getBytes();
+                    for (long i = 0, n = Long.parseLong(args.get(0)); n < 0 || i < n; i++) {
+                        out.write(line);
+                    }
+                    return 0;
+                case "upper":
+                    int b;
+                    while ((b = in.read()) != -1) {
+                        out.write(Character.toUpperCase(b));
+                    }
+                    return 0;
+                case "count":
+                    long total = 0;
+                    byte[] buf = new byte[8192];
+                    int n;
+                    while ((n = in.read(buf)) != -1) {
+                        total += n;
+                    }
+                    out.write((total + "\n").getBytes());
+                    return 0;
+                default:
+                    return 3;
+            }
+        }
+    };
+
+    private int runWithBuiltins(String line) {
+        PipelineCommand pipeline = (PipelineCommand) Parser.parse(line);
+        return PipelineExecutor.execute(pipeline.getCommands(), testDir, STUB_BUILTINS);
+    }
+
+    private String read(String name) throws IOException {
+        return Files.readString(testDir.resolve(name));
+    }
+
+    @Test
+    public void testTwoStagePipelineToFile() throws Exception {
+        assertEquals(0, run("cat input.txt | grep ap > out.txt"));
+        assertEquals("apple\napricot\n", read("out.txt"));
+    }
+
+    @Test
+    public void testInputRedirectionThroughThreeStages() throws Exception {
+        assertEquals(0, run("cat < input.txt | grep a | wc -l > count.txt"));
+        assertEquals("3", read("count.txt").trim());
+    }
+
+    @Test
+    public void testAppendFromPipeline() throws Exception {
+        Files.writeString(testDir.resolve("log.txt"), "first\n");
+        run("cat input.txt | grep cherry >> log.txt");
+        assertEquals("first\ncherry\n", read("log.txt"));
+    }
+
+    @Test
+    public void testStderrRedirectionOnLastStage() throws Exception {
+        run("cat input.txt | cat missing.txt 2> err.txt");
+        assertTrue(read("err.txt").contains("missing.txt"));
+    }
+
+    @Test
+    public void testFirstStageWithoutInputGetsEof() throws Exception {
+        // cat with no file and no input redirection must not block on stdin
+        assertEquals(0, run("cat | wc -c > bytes.txt"));
+        assertEquals("0", read("bytes.txt").trim());
+    }
+
+    @Test
+    public void testExitCodeIsLastStage() {
+        assertEquals(1, run("cat input.txt | grep nomatch > out.txt"));
+    }
+
+    @Test
+    public void testUnknownCommandFailsToStart() {
+        assertEquals(-1, run("cat input.txt | no_such_command_xyz"));
+    }
+
+    @Test(timeout = 10000)
+    public void testProducerIgnoringSigpipeIsStoppedWhenConsumerExits() throws Exception {
+        // the producer survives EPIPE and would loop forever without early termination
+        assertEquals(0, run("sh -c 'trap \"\" PIPE; while :; do echo y 2>/dev/null; done' | head -1 > head.txt"));
+        assertEquals("y\n", read("head.txt"));
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedUpstreamIsDestroyedWhenDownstreamExits() {
+        long start = System.nanoTime();
+        assertEquals(0, run("sleep 30 | true"));
+        assertTrue("upstream should be destroyed promptly",
+                System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test(timeout = 10000)
+    public void testUpstreamProcessTreeIsDestroyed() throws Exception {
+        run("sh -c 'sleep 30 & echo $! > child.pid; wait' | sleep 1");
+        long pid = Long.parseLong(read("child.pid").trim());
+        ProcessHandle child = ProcessHandle.of(pid).orElse(null);
+        if (child != null) {
+            child.onExit().get();
+        }
+        assertFalse(ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false));
+    }
+
+    @Test
+    public void testBuiltinProducerFeedsProcess() throws Exception {
+        assertEquals(0, runWithBuiltins("emit hello world | tr a-z A-Z > out.txt"));
+        assertEquals("HELLO WORLD\n", read("out.txt"));
+    }
+
+    @Test
+    public void testBuiltinFilterBetweenProcesses() throws Exception {
+        assertEquals(0, runWithBuiltins("cat input.txt | upper | grep AP > out.txt"));
+        assertEquals("APPLE\nAPRICOT\n", read("out.txt"));
+    }
+
+    @Test
+    public void testBuiltinsConnectedToEachOther() throws Exception {
+        assertEquals(0, runWithBuiltins("emit abc | upper | count > out.txt"));
+        assertEquals("4\n", read("out.txt"));
+    }
+
+    @Test(timeout = 10000)
+    public void testBuiltinPipeAppliesBackpressure() throws Exception {
+        // far more than the in-JVM pipe holds, so the producer must block and resume
+        assertEquals(0, runWithBuiltins("repeat 500000 | count > out.txt"));
+        assertEquals("1000000\n", read("out.txt"));
+    }
+
+    @Test(timeout = 10000)
+    public void testEndlessBuiltinProducerStopsWhenConsumerExits() throws Exception {
+        assertEquals(0, runWithBuiltins("repeat -1 | head -1 > out.txt"));
+        assertEquals("y\n", read("out.txt"));
+    }
+
+    @Test(timeout = 10000)
+    public void testEndlessBuiltinProducerStopsWhenBuiltinConsumerExits() {
+        assertEquals(3, runWithBuiltins("repeat -1 | fail"));
+    }
+
+    @Test
+    public void testInputRedirectionOnBuiltinFirstStage() throws Exception {
+        assertEquals(0, runWithBuiltins("upper < input.txt | head -1 > out.txt"));
+        assertEquals("APPLE\n", read("out.txt"));
+    }
+
+    @Test(timeout = 10000)
+    public void testMissingInputOfBuiltinFirstStageEndsTheNextStagesInput() throws Exception {
+        assertEquals(0, runWithBuiltins("upper < missing.txt | cat > out.txt"));
+        assertEquals("", read("out.txt"));
+        assertEquals(0, runWithBuiltins("upper < missing.txt | count > out.txt"));
+        assertEquals("0\n", read("out.txt"));
+    }
+
+    @Test
+    public void testExitCodeOfBuiltinLastStage() {
+        assertEquals(3, runWithBuiltins("cat input.txt | fail"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.shell.exec;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for pipeline pumps running on the shared pump executor.
+ */
+public class PumpGroupTest {
+
+    @Test
+    public void testPumpCopiesAndIsJoined() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PumpGroup pumps = new PumpGroup(System.err)) {
+            pumps.pump(new ByteArrayInputStream("hello pump".getBytes(StandardCharsets.UTF_8)), out);
+            pumps.awaitAll();
+        }
+        assertEquals("hello pump", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPumpThreadsAreNamed() throws Exception {
+        try (PumpGroup pumps = new PumpGroup(System.err)) {
+            Future<String> name = pumps.submit(() -> Thread.currentThread().getName());
+            assertTrue(name.get().startsWith(PumpExecutor.THREAD_PREFIX));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelUnblocksPumpWaitingForInput() throws Exception {
+        PipedOutputStream writer = new PipedOutputStream();
+        PipedInputStream reader = new PipedInputStream(writer);
+        PumpGroup pumps = new PumpGroup(System.err);
+        pumps.pump(reader, new ByteArrayOutputStream());
+
+        pumps.cancel();
+        pumps.awaitAll();
+    }
+
+    @Test
+    public void testVanishedReaderIsNotReported() throws Exception {
+        OutputStream closedDest = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        try (PumpGroup pumps = new PumpGroup(new PrintStream(err, true))) {
+            pumps.pump(new ByteArrayInputStream(new byte[]{1, 2, 3}), closedDest);
+            pumps.awaitAll();
+        }
+        assertEquals("", err.toString());
+    }
+
+    @Test
+    public void testFailureIsReportedOnTheGroupsStderr() throws Exception {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("disk on fire");
+            }
+        };
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        try (PumpGroup pumps = new PumpGroup(new PrintStream(err, true))) {
+            pumps.pump(failing, new ByteArrayOutputStream());
+            pumps.awaitAll();
+        }
+        assertEquals("pipeline: disk on fire\n", err.toString());
+    }
+
+    @Test
+    public void testSaturatedPoolFailsInsteadOfQueueing() throws Exception {
+        ThreadPoolExecutor oneThread = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try (PumpGroup pumps = new PumpGroup(oneThread, System.err)) {
+            PipedInputStream blocked = new PipedInputStream(new PipedOutputStream());
+            pumps.pump(blocked, new ByteArrayOutputStream());
+            try {
+                pumps.pump(new ByteArrayInputStream(new byte[1]), new ByteArrayOutputStream());
+                fail("second pump should be rejected");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("no pump thread"));
+            }
+        } finally {
+            oneThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSubmitAfterCancelFails() {
+        PumpGroup pumps = new PumpGroup(Executors.newSingleThreadExecutor(), System.err);
+        pumps.cancel();
+        try {
+            pumps.submit(() -> null);
+            fail("cancelled group must not accept work");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.shell.exec;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResourceUsageTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long UNKNOWN = ResourceUsage.UNKNOWN;
+
+    @Test
+    public void testTotalSumsCpuAndBytesAndKeepsTheLargestPeak() {
+        ResourceUsage producer = new ResourceUsage("sh gen.sh", 90 * MS, 40 * MS, 10 * MS, 4096, 100, 2048);
+        ResourceUsage builtin = new ResourceUsage("wc -l", 80 * MS, 5 * MS, 1 * MS, UNKNOWN, UNKNOWN, UNKNOWN);
+        ResourceUsage consumer = new ResourceUsage("sort", 95 * MS, 20 * MS, 2 * MS, 8192, 2048, 2048);
+
+        ResourceUsage total = ResourceUsage.total("total", 100 * MS, List.of(producer, builtin, consumer));
+
+        assertEquals(100 * MS, total.wallNanos());
+        assertEquals(65 * MS, total.userNanos());
+        assertEquals(13 * MS, total.systemNanos());
+        assertEquals(78 * MS, total.cpuNanos());
+        assertEquals(8192, total.peakRssBytes());
+        assertEquals(2148, total.readBytes());
+        assertEquals(4096, total.writeBytes());
+    }
+
+    @Test
+    public void testNothingMeasuredStaysUnknown() {
+        ResourceUsage total = ResourceUsage.total("total", 3 * MS, List.of());
+
+        assertEquals(UNKNOWN, total.userNanos());
+        assertEquals(0, total.cpuNanos());
+        assertEquals(UNKNOWN, total.peakRssBytes());
+        assertTrue(total.toRow().matches(" +0\\.003s +- +- +- +- +-  total"));
+    }
+
+    @Test
+    public void testRowLinesUpWithTheHeader() {
+        ResourceUsage usage = new ResourceUsage("grep -c x", 1500 * MS, 1200 * MS, 250 * MS, 3 * 1024 * 1024,
+                512, 1536);
+
+        String row = usage.toRow();
+
+        assertEquals("   1.500s    1.200s    0.250s      3.0M      512B      1.5K  grep -c x", row);
+        assertEquals(ResourceUsage.header().indexOf("command"), row.indexOf("grep"));
+    }
+
+    @Test
+    public void testBytesUseBinaryUnits() {
+        assertEquals("0B", ResourceUsage.bytes(0));
+        assertEquals("1023B", ResourceUsage.bytes(1023));
+        assertEquals("1.0K", ResourceUsage.bytes(1024));
+        assertEquals("2.5G", ResourceUsage.bytes(5L * 1024 * 1024 * 1024 / 2));
+        assertEquals("-", ResourceUsage.bytes(UNKNOWN));
+    }
+}
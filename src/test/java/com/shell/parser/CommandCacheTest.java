@@ -0,0 +1,84 @@
+package com.shell.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parsed-command LRU cache and that what it hands out cannot be changed.
+ */
+public class CommandCacheTest {
+
+    @Test
+    public void testRepeatedLineIsServedFromTheCache() {
+        CommandCache cache = new CommandCache(4);
+
+        Command first = cache.parse("cat in.txt | grep x > out.txt");
+        Command second = cache.parse("cat in.txt | grep x > out.txt");
+
+        assertSame(first, second);
+        assertEquals(Parser.parse("cat in.txt | grep x > out.txt"), first);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedLineIsEvicted() {
+        CommandCache cache = new CommandCache(2);
+        Command a = cache.parse("echo a");
+        cache.parse("echo b");
+        cache.parse("echo a");      // a is now more recent than b
+        cache.parse("echo c");      // evicts b
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertSame(a, cache.parse("echo a"));
+        long misses = cache.misses();
+        cache.parse("echo b");
+        assertEquals(misses + 1, cache.misses());
+    }
+
+    @Test
+    public void testParseErrorsAreNotCached() {
+        CommandCache cache = new CommandCache(2);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.parse("echo 'unterminated");
+                fail("expected a parse error");
+            } catch (RuntimeException expected) {
+                // the next attempt parses again
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePositive() {
+        new CommandCache(0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testArgsCannotBeModified() {
+        new CommandCache(1).parse("echo hello").getArgs().add("world");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPipelineStagesCannotBeModified() {
+        PipelineCommand pipeline = (PipelineCommand) new CommandCache(1).parse("echo a | cat");
+        pipeline.getCommands().remove(0);
+    }
+
+    @Test
+    public void testCommandsCopyTheirInput() {
+        List<String> args = new ArrayList<>(List.of("a"));
+        SimpleCommand cmd = new SimpleCommand("echo", args);
+        args.add("b");
+
+        assertEquals(List.of("a"), cmd.getArgs());
+    }
+}
@@ -0,0 +1,125 @@
+package com.shell.parser;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the single-pass lexer and what Parser builds from its tokens.
+ */
+public class LexerTest {
+
+    private static String types(String line) {
+        Lexer lexer = Lexer.lex(line);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lexer.size(); i++) {
+            sb.append(sb.length() == 0 ? "" : " ").append(lexer.type(i));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testOperatorsAreTyped() {
+        assertEquals("WORD REDIR_IN WORD PIPE WORD REDIR_APPEND WORD REDIR_ERR WORD",
+                types("sort < in | uniq >> out 2> err"));
+        assertEquals("WORD WORD REDIR_OUT WORD", types("echo hi > out"));
+    }
+
+    @Test
+    public void testWordsAreSlicesOfTheInput() {
+        Lexer lexer = Lexer.lex("  echo   hello");
+
+        assertEquals(2, lexer.size());
+        assertEquals(2, lexer.offset(0));
+        assertEquals(4, lexer.length(0));
+        assertEquals(9, lexer.offset(1));
+        assertEquals("hello", lexer.text(1));
+    }
+
+    @Test
+    public void testOperatorsNeedNoSpaces() {
+        assertEquals("WORD WORD REDIR_OUT WORD PIPE WORD", types("echo hi>out|cat"));
+    }
+
+    @Test
+    public void testQuotedOperatorsAreWords() {
+        assertEquals("WORD WORD WORD", types("echo 'a|b' \">\""));
+        assertEquals("WORD WORD", types("echo a\\|b"));
+    }
+
+    @Test
+    public void testStderrOperatorOnlyStartsAWord() {
+        assertEquals("WORD WORD REDIR_ERR WORD", types("ls missing 2>err"));
+        assertEquals("WORD WORD REDIR_OUT WORD", types("ls file2>out"));
+    }
+
+    @Test
+    public void testQuotedPipeDoesNotSplitThePipeline() {
+        Command cmd = Parser.parse("echo \"a | b\" | grep '|'");
+
+        assertEquals(CommandType.PIPELINE, cmd.getType());
+        List<Command> stages = ((PipelineCommand) cmd).getCommands();
+        assertEquals(2, stages.size());
+        assertEquals(List.of("a | b"), stages.get(0).getArgs());
+        assertEquals(List.of("|"), stages.get(1).getArgs());
+    }
+
+    @Test
+    public void testRedirectionWithoutSpaces() {
+        RedirectionCommand rc = (RedirectionCommand) Parser.parse("sort<in.txt>>out.txt");
+
+        assertEquals("sort", rc.getExecutable());
+        assertTrue(rc.getArgs().isEmpty());
+        assertEquals("in.txt", rc.getStdInFile());
+        assertEquals("out.txt", rc.getStdOutFile());
+        assertTrue(rc.isAppend());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOperatorFollowedByOperator() {
+        Parser.parse("echo hi > | cat");
+    }
+
+    @Test
+    public void testTrailingAmpersandRunsTheLineInTheBackground() {
+        assertEquals("WORD WORD BACKGROUND", types("sleep 5&"));
+
+        Command cmd = Parser.parse("sort < in | uniq > out &");
+
+        assertEquals(CommandType.BACKGROUND, cmd.getType());
+        Command job = ((BackgroundCommand) cmd).getCommand();
+        assertEquals(CommandType.PIPELINE, job.getType());
+        assertEquals("sort", cmd.getExecutable());
+    }
+
+    @Test
+    public void testQuotedAmpersandIsAWord() {
+        assertEquals("WORD WORD", types("echo 'a&b'"));
+        assertEquals(CommandType.SIMPLE, Parser.parse("echo a\\&").getType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAmpersandOnlyEndsALine() {
+        Parser.parse("sleep 1 & echo done");
+    }
+
+    @Test
+    public void testLeadingTimeTimesTheWholeLine() {
+        Command cmd = Parser.parse("time sort < in | uniq -c &");
+
+        assertEquals(CommandType.BACKGROUND, cmd.getType());
+        Command timed = ((BackgroundCommand) cmd).getCommand();
+        assertEquals(CommandType.TIMED, timed.getType());
+        assertEquals(CommandType.PIPELINE, ((TimedCommand) timed).getCommand().getType());
+        assertEquals("sort", cmd.getExecutable());
+    }
+
+    @Test
+    public void testTimeAloneOrQuotedIsACommand() {
+        assertEquals(CommandType.SIMPLE, Parser.parse("time").getType());
+        assertEquals(CommandType.SIMPLE, Parser.parse("echo time").getType());
+        assertEquals(CommandType.TIMED, Parser.parse("time time").getType());
+    }
+}
@@ -0,0 +1,156 @@
+package com.shell.path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the executable resolution cache behind findExecutable and the `hash` built-in.
+ */
+public class ExecutableCacheTest {
+
+    private Path binA;
+    private Path binB;
+    private AtomicReference<String> path;
+    private AtomicLong clock;
+    private ExecutableCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        binA = Files.createTempDirectory("bin-a-");
+        binB = Files.createTempDirectory("bin-b-");
+        path = new AtomicReference<>(binA + ":" + binB);
+        clock = new AtomicLong();
+        cache = new ExecutableCache(path::get, clock::get, null);
+    }
+
+    @After
+    public void tearDown() {
+        for (Path dir : new Path[]{binA, binB}) {
+            File[] files = dir.toFile().listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.toFile().delete();
+        }
+    }
+
+    private Path createExecutable(Path dir, String name) throws IOException {
+        Path exe = dir.resolve(name);
+        Files.writeString(exe, "#!/bin/sh\n");
+        exe.toFile().setExecutable(true);
+        return exe;
+    }
+
+    @Test
+    public void testResolveCountsMissThenHit() throws IOException {
+        Path tool = createExecutable(binB, "tool");
+
+        assertEquals(tool.toString(), cache.resolve("tool"));
+        assertEquals(tool.toString(), cache.resolve("tool"));
+        assertEquals(tool.toString(), cache.resolve("tool"));
+
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.hits("tool"));
+    }
+
+    @Test
+    public void testNonExecutableFileIsNotResolved() throws IOException {
+        Files.writeString(binA.resolve("data"), "not a program");
+        assertNull(cache.resolve("data"));
+    }
+
+    @Test
+    public void testPathChangeInvalidatesTable() throws IOException {
+        Path inB = createExecutable(binB, "tool");
+        assertEquals(inB.toString(), cache.resolve("tool"));
+
+        path.set(binB.toString());
+        assertEquals(inB.toString(), cache.resolve("tool"));
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    public void testNewExecutableInEarlierDirectoryShadowsCachedOne() throws IOException {
+        createExecutable(binB, "tool");
+        cache.resolve("tool");
+
+        Path shadow = createExecutable(binA, "tool");
+        // make the directory change visible even on coarse-grained mtime filesystems
+        Files.setLastModifiedTime(binA, FileTime.fromMillis(12345));
+
+        assertEquals(shadow.toString(), cache.resolve("tool"));
+    }
+
+    @Test
+    public void testNegativeEntryExpiresAfterTtl() throws IOException {
+        assertNull(cache.resolve("later"));
+        createExecutable(binA, "later");
+
+        // still inside the TTL: the "not found" answer is reused
+        assertNull(cache.resolve("later"));
+        assertEquals(1, cache.hits());
+
+        clock.addAndGet(ExecutableCache.NEGATIVE_TTL_MILLIS);
+        assertEquals(binA.resolve("later").toString(), cache.resolve("later"));
+    }
+
+    @Test
+    public void testCommandInstalledAfterAMissIsFoundThroughTheIndex() throws Exception {
+        PathIndex index = new PathIndex(path.get(), null);
+        index.start();
+        assertTrue(index.awaitReady(10, TimeUnit.SECONDS));
+        cache = new ExecutableCache(path::get, clock::get, index);
+
+        assertNull(cache.resolve("later"));
+        createExecutable(binB, "later");
+        Files.setLastModifiedTime(binB, FileTime.fromMillis(12345));
+
+        clock.addAndGet(ExecutableCache.NEGATIVE_TTL_MILLIS);
+        assertEquals(binB.resolve("later").toString(), cache.resolve("later"));
+    }
+
+    @Test
+    public void testClearAndRemove() throws IOException {
+        createExecutable(binA, "one");
+        createExecutable(binA, "two");
+        assertTrue(cache.add("one"));
+        assertTrue(cache.add("two"));
+        assertEquals(2, cache.entries().size());
+
+        assertTrue(cache.remove("one"));
+        assertFalse(cache.remove("one"));
+        assertEquals(1, cache.entries().size());
+
+        cache.clear();
+        assertTrue(cache.entries().isEmpty());
+    }
+
+    @Test
+    public void testAddUnknownCommand() {
+        assertFalse(cache.add("definitely_not_a_command_xyz"));
+        assertTrue("negative entries are not listed", cache.entries().isEmpty());
+    }
+
+    @Test
+    public void testNamesWithSlashAreNotCached() throws IOException {
+        Path tool = createExecutable(binA, "tool");
+        assertEquals(tool.toString(), cache.resolve(tool.toString()));
+        assertTrue(cache.entries().isEmpty());
+        assertEquals(0, cache.misses());
+    }
+}
@@ -0,0 +1,166 @@
+package com.shell.path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the background PATH index and its on-disk snapshot.
+ */
+public class PathIndexTest {
+
+    private Path binA;
+    private Path binB;
+    private Path cacheDir;
+    private Path snapshotFile;
+    private String pathEnv;
+
+    @Before
+    public void setUp() throws IOException {
+        binA = Files.createTempDirectory("idx-a-");
+        binB = Files.createTempDirectory("idx-b-");
+        cacheDir = Files.createTempDirectory("idx-cache-");
+        snapshotFile = cacheDir.resolve("path-index.bin");
+        pathEnv = binA + ":" + binB;
+
+        createExecutable(binA, "grep");
+        createExecutable(binB, "grep");
+        createExecutable(binB, "sort");
+        Files.writeString(binB.resolve("README"), "not executable");
+    }
+
+    @After
+    public void tearDown() {
+        for (Path dir : new Path[]{binA, binB, cacheDir}) {
+            File[] files = dir.toFile().listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.toFile().delete();
+        }
+    }
+
+    private void createExecutable(Path dir, String name) throws IOException {
+        Path exe = dir.resolve(name);
+        Files.writeString(exe, "#!/bin/sh\n");
+        exe.toFile().setExecutable(true);
+    }
+
+    private long[] currentMtimes() {
+        return PathIndex.mtimes(PathIndex.split(pathEnv));
+    }
+
+    private PathIndex startedIndex() throws InterruptedException {
+        PathIndex index = new PathIndex(pathEnv, snapshotFile);
+        index.start();
+        assertTrue(index.awaitReady(10, TimeUnit.SECONDS));
+        return index;
+    }
+
+    @Test
+    public void testIndexFindsFirstDirectoryInPathOrder() throws Exception {
+        PathIndex index = startedIndex();
+
+        assertEquals(0, index.lookup(pathEnv, currentMtimes(), "grep"));
+        assertEquals(1, index.lookup(pathEnv, currentMtimes(), "sort"));
+        assertEquals(PathIndex.ABSENT, index.lookup(pathEnv, currentMtimes(), "README"));
+        assertEquals(PathIndex.ABSENT, index.lookup(pathEnv, currentMtimes(), "missing"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testUnknownForDifferentPath() throws Exception {
+        PathIndex index = startedIndex();
+        assertEquals(PathIndex.UNKNOWN, index.lookup(binB.toString(), new long[1], "sort"));
+    }
+
+    @Test
+    public void testSnapshotIsWrittenAndReloaded() throws Exception {
+        startedIndex();
+        assertTrue(Files.exists(snapshotFile));
+
+        PathIndex reloaded = new PathIndex(pathEnv, snapshotFile);
+        reloaded.start();
+        assertTrue("a matching snapshot is usable without a scan", reloaded.isReady());
+        assertEquals(1, reloaded.lookup(pathEnv, currentMtimes(), "sort"));
+    }
+
+    @Test
+    public void testFailedSnapshotLeavesNoTemporaryFile() throws Exception {
+        // A non-empty directory where the snapshot goes: the final move fails
+        Files.createDirectory(snapshotFile);
+        Path blocker = Files.writeString(snapshotFile.resolve("keep"), "x");
+        try {
+            PathIndex index = startedIndex();
+
+            assertEquals(1, index.lookup(pathEnv, currentMtimes(), "sort"));
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(List.of(snapshotFile), files.collect(Collectors.toList()));
+            }
+        } finally {
+            Files.delete(blocker);
+        }
+    }
+
+    @Test
+    public void testBackgroundStartLoadsTheSnapshot() throws Exception {
+        startedIndex();
+
+        PathIndex reloaded = new PathIndex(pathEnv, snapshotFile);
+        reloaded.startInBackground();
+        assertTrue(reloaded.awaitReady(10, TimeUnit.SECONDS));
+        assertEquals(1, reloaded.lookup(pathEnv, currentMtimes(), "sort"));
+    }
+
+    @Test
+    public void testSnapshotIgnoredWhenDirectoryChanged() throws Exception {
+        startedIndex();
+        createExecutable(binB, "uniq");
+        Files.setLastModifiedTime(binB, FileTime.fromMillis(12345));
+
+        PathIndex index = new PathIndex(pathEnv, snapshotFile);
+        index.start();
+        assertTrue(index.awaitReady(10, TimeUnit.SECONDS));
+        assertEquals(1, index.lookup(pathEnv, currentMtimes(), "uniq"));
+    }
+
+    @Test
+    public void testStaleMtimesAreUnknown() throws Exception {
+        PathIndex index = startedIndex();
+        long[] changed = currentMtimes();
+        changed[0]++;
+        assertEquals(PathIndex.UNKNOWN, index.lookup(pathEnv, changed, "grep"));
+    }
+
+    @Test
+    public void testSuggestions() throws Exception {
+        PathIndex index = startedIndex();
+        assertEquals(Arrays.asList("grep"), index.suggest("gerp"));
+        assertEquals(Arrays.asList("sort"), index.suggest("srt"));
+        assertTrue(index.suggest("completely-different").isEmpty());
+    }
+
+    @Test
+    public void testExecutableCacheUsesIndex() throws Exception {
+        PathIndex index = startedIndex();
+        ExecutableCache cache = new ExecutableCache(() -> pathEnv, index);
+
+        assertEquals(binA.resolve("grep").toString(), cache.resolve("grep"));
+        assertNull(cache.resolve("missing"));
+    }
+}